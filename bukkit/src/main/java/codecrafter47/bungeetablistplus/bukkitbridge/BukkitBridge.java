@@ -22,12 +22,15 @@ import codecrafter47.bungeetablistplus.api.bukkit.BungeeTabListPlusBukkitAPI;
 import codecrafter47.bungeetablistplus.api.bukkit.Variable;
 import codecrafter47.bungeetablistplus.bukkitbridge.placeholderapi.PlaceholderAPIHook;
 import codecrafter47.bungeetablistplus.common.BTLPDataKeys;
+import codecrafter47.bungeetablistplus.common.BridgeProtocol;
 import codecrafter47.bungeetablistplus.common.Constants;
+import codecrafter47.bungeetablistplus.data.CollectionPolicy;
 import codecrafter47.bungeetablistplus.data.DataAccess;
 import codecrafter47.bungeetablistplus.data.DataKey;
 import codecrafter47.bungeetablistplus.data.JoinedDataAccess;
 import codecrafter47.bungeetablistplus.data.bukkit.AbstractBukkitDataAccess;
 import codecrafter47.bungeetablistplus.data.bukkit.PlayerDataAccess;
+import codecrafter47.bungeetablistplus.data.bukkit.PlayerDataChangeListener;
 import codecrafter47.bungeetablistplus.data.bukkit.ServerDataAccess;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.HashMultimap;
@@ -35,6 +38,7 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
 import org.bukkit.Server;
+import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
@@ -43,15 +47,21 @@ import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.event.server.PluginDisableEvent;
 import org.bukkit.event.server.PluginEnableEvent;
 import org.bukkit.plugin.Plugin;
-import org.bukkit.scheduler.BukkitRunnable;
 
 import java.io.*;
 import java.lang.reflect.Field;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.logging.Level;
@@ -59,12 +69,25 @@ import java.util.logging.Level;
 public class BukkitBridge extends BungeeTabListPlusBukkitAPI implements Listener {
     private final Plugin plugin;
 
-    private ServerDataUpdateTask serverDataUpdateTask = null;
+    /**
+     * Event driven keys are still collected every few cycles in case they have been
+     * changed without firing an event, e.g. by another plugin.
+     */
+    private static final int EVENT_DRIVEN_KEYS_REFRESH_INTERVAL = 10;
+
+    // stay well below the maximum plugin message size of 32766 bytes
+    private static final int MAX_BATCH_SIZE = 30000;
+
+    private static final int MAX_HISTORY_SIZE = 30;
+
+    // one per proxy, each proxy has its own sequence of server data updates
+    private final Map<Long, ServerDataUpdateTask> serverDataUpdateTasks = new ConcurrentHashMap<>();
 
     private final Map<UUID, PlayerDataUpdateTask> playerInformationUpdaters = new ConcurrentHashMap<>();
 
     private DataAccess<Player> playerDataAccess;
     private DataAccess<Server> serverDataAccess;
+    private PlayerDataChangeListener playerDataChangeListener = null;
 
     private PlaceholderAPIHook placeholderAPIHook = null;
 
@@ -95,14 +118,26 @@ public class BukkitBridge extends BungeeTabListPlusBukkitAPI implements Listener
                         String subchannel = in.readUTF();
                         if (subchannel.equals(Constants.subchannelRequestPlayerVariable)) {
                             DataKey<Object> dataKey = (DataKey<Object>) in.readObject();
+                            getPlayerDataUpdateTask(player).handshake = BridgeProtocol.readHandshake(in);
                             getPlayerDataUpdateTask(player).requestValue(dataKey);
                         } else if (subchannel.equals(Constants.subchannelRequestServerVariable)) {
                             DataKey<Object> dataKey = (DataKey<Object>) in.readObject();
-                            this.serverDataUpdateTask.requestValue(dataKey);
+                            getPlayerDataUpdateTask(player).handshake = BridgeProtocol.readHandshake(in);
+                            getServerDataUpdateTask(player).requestValue(dataKey);
                         } else if (subchannel.equals(Constants.subchannelRequestResetPlayerVariables)) {
+                            getPlayerDataUpdateTask(player).handshake = BridgeProtocol.readHandshake(in);
                             getPlayerDataUpdateTask(player).reset();
                         } else if (subchannel.equals(Constants.subchannelRequestResetServerVariables)) {
-                            serverDataUpdateTask.reset();
+                            getPlayerDataUpdateTask(player).handshake = BridgeProtocol.readHandshake(in);
+                            getServerDataUpdateTask(player).reset();
+                        } else if (subchannel.equals(Constants.subchannelRequestMissingPlayerData)) {
+                            int sequence = in.readInt();
+                            getPlayerDataUpdateTask(player).handshake = BridgeProtocol.readHandshake(in);
+                            getPlayerDataUpdateTask(player).requestResend(sequence);
+                        } else if (subchannel.equals(Constants.subchannelRequestMissingServerData)) {
+                            int sequence = in.readInt();
+                            getPlayerDataUpdateTask(player).handshake = BridgeProtocol.readHandshake(in);
+                            getServerDataUpdateTask(player).requestResend(sequence);
                         } else if (subchannel.equals(Constants.subchannelPlaceholder)) {
                             String placeholder = in.readUTF();
                             PlaceholderAPIHook hook = this.placeholderAPIHook;
@@ -131,14 +166,119 @@ public class BukkitBridge extends BungeeTabListPlusBukkitAPI implements Listener
                 });
         plugin.getServer().getPluginManager().registerEvents(this, plugin);
 
-        updateDataHooks();
+        loadCollectionPolicies();
 
-        // start generalInformation update task
-        this.serverDataUpdateTask = new ServerDataUpdateTask();
-        this.serverDataUpdateTask.runTaskTimerAsynchronously(plugin, 0, 20);
+        updateDataHooks();
 
-        // start update tasks for players already on the server
+        // create update tasks for players already on the server
         plugin.getServer().getOnlinePlayers().forEach(this::getPlayerDataUpdateTask);
+
+        // a single task collects the data of the server and all players
+        plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, this::collectData, 0, 20);
+    }
+
+    private void collectData() {
+        for (ServerDataUpdateTask task : serverDataUpdateTasks.values()) {
+            try {
+                task.run();
+            } catch (Throwable th) {
+                plugin.getLogger().log(Level.SEVERE, "Unexpected exception", th);
+            }
+        }
+        // players connected through a proxy supporting the binary protocol are sent in one batch per proxy
+        Map<Long, List<PlayerDataUpdateTask>> batches = new HashMap<>();
+        for (PlayerDataUpdateTask task : playerInformationUpdaters.values()) {
+            BridgeProtocol.Handshake handshake = task.handshake;
+            if (handshake.getVersion() >= BridgeProtocol.VERSION) {
+                batches.computeIfAbsent(handshake.getProxyId(), id -> new ArrayList<>()).add(task);
+            } else {
+                try {
+                    task.run();
+                } catch (Throwable th) {
+                    plugin.getLogger().log(Level.SEVERE, "Unexpected exception", th);
+                }
+            }
+        }
+        for (List<PlayerDataUpdateTask> batch : batches.values()) {
+            try {
+                sendPlayerDataUpdates(batch);
+            } catch (Throwable th) {
+                plugin.getLogger().log(Level.SEVERE, "Unexpected exception", th);
+            }
+        }
+    }
+
+    private void sendPlayerDataUpdates(List<PlayerDataUpdateTask> tasks) throws IOException {
+        List<byte[]> entries = new ArrayList<>();
+        int size = 0;
+        Player sender = null;
+        for (PlayerDataUpdateTask task : tasks) {
+            if (!task.player.isOnline()) {
+                continue;
+            }
+            byte[] entry;
+            try {
+                BridgeProtocol.DataUpdate update = task.nextUpdate(playerDataAccess, task.player);
+                if (update == null) {
+                    continue;
+                }
+                ByteArrayOutputStream os = new ByteArrayOutputStream();
+                DataOutputStream out = new DataOutputStream(os);
+                BridgeProtocol.writeUUID(out, task.player.getUniqueId());
+                BridgeProtocol.writeDataUpdate(out, update);
+                out.close();
+                entry = os.toByteArray();
+            } catch (Throwable th) {
+                plugin.getLogger().log(Level.SEVERE, "Unexpected exception", th);
+                continue;
+            }
+            if (!entries.isEmpty() && size + entry.length > MAX_BATCH_SIZE) {
+                sendPlayerDataUpdates(sender, entries);
+                entries.clear();
+                size = 0;
+            }
+            entries.add(entry);
+            size += entry.length;
+            sender = task.player;
+        }
+        if (!entries.isEmpty()) {
+            sendPlayerDataUpdates(sender, entries);
+        }
+    }
+
+    private void sendPlayerDataUpdates(Player sender, List<byte[]> entries) throws IOException {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(os);
+        BridgeProtocol.writeHeader(out, Constants.subchannelUpdatePlayers);
+        BridgeProtocol.writeVarInt(out, entries.size());
+        for (byte[] entry : entries) {
+            out.write(entry);
+        }
+        out.close();
+        sender.sendPluginMessage(plugin, Constants.channel, os.toByteArray());
+    }
+
+    private void loadCollectionPolicies() {
+        plugin.saveDefaultConfig();
+        CollectionPolicy.clearOverrides();
+        ConfigurationSection section = plugin.getConfig().getConfigurationSection("collection-policies");
+        if (section != null) {
+            for (String id : section.getKeys(false)) {
+                ConfigurationSection entry = section.getConfigurationSection(id);
+                if (entry == null) {
+                    continue;
+                }
+                try {
+                    CollectionPolicy policy = CollectionPolicy.DEFAULT
+                            .withPollInterval(entry.getInt("poll-interval", CollectionPolicy.DEFAULT.getPollInterval()))
+                            .withChangeThreshold(entry.getDouble("change-threshold", CollectionPolicy.DEFAULT.getChangeThreshold()))
+                            .withMaxStaleness(entry.getInt("max-staleness", CollectionPolicy.DEFAULT.getMaxStaleness()));
+                    CollectionPolicy.override(id, policy);
+                } catch (IllegalArgumentException ex) {
+                    plugin.getLogger().warning("Invalid collection policy for " + id + ": " + ex.getMessage());
+                }
+            }
+        }
     }
 
     private void updateDataHooks() {
@@ -154,15 +294,29 @@ public class BukkitBridge extends BungeeTabListPlusBukkitAPI implements Listener
             playerDataAccess = JoinedDataAccess.of(new PlayerDataAccess(plugin), new ThirdPartyVariablesAccess());
         }
         serverDataAccess = JoinedDataAccess.of(new ServerDataAccess(plugin), new BTLPServerDataKeyAccess());
+
+        if (playerDataChangeListener != null) {
+            playerDataChangeListener.unregister();
+        }
+        playerDataChangeListener = new PlayerDataChangeListener(plugin, (player, keys) -> {
+            PlayerDataUpdateTask task = playerInformationUpdaters.get(player.getUniqueId());
+            if (task != null) {
+                task.changedKeys.addAll(keys);
+            }
+        });
+        playerDataChangeListener.register();
     }
 
     private PlayerDataUpdateTask getPlayerDataUpdateTask(Player player) {
-        if (playerInformationUpdaters.get(player.getUniqueId()) == null) {
-            PlayerDataUpdateTask playerDataUpdateTask = new PlayerDataUpdateTask(player);
-            playerDataUpdateTask.runTaskTimerAsynchronously(plugin, 0, 20);
-            playerInformationUpdaters.put(player.getUniqueId(), playerDataUpdateTask);
-        }
-        return playerInformationUpdaters.get(player.getUniqueId());
+        return playerInformationUpdaters.computeIfAbsent(player.getUniqueId(), uuid -> new PlayerDataUpdateTask(player));
+    }
+
+    /**
+     * Get the task sending the server data to the proxy the player is connected to. All
+     * proxies using the legacy format share a task.
+     */
+    private ServerDataUpdateTask getServerDataUpdateTask(Player player) {
+        return serverDataUpdateTasks.computeIfAbsent(getPlayerDataUpdateTask(player).handshake.getProxyId(), ServerDataUpdateTask::new);
     }
 
     @EventHandler
@@ -172,14 +326,7 @@ public class BukkitBridge extends BungeeTabListPlusBukkitAPI implements Listener
 
     @EventHandler
     public void onPlayerLeave(PlayerQuitEvent event) {
-        Player player = event.getPlayer();
-        if (playerInformationUpdaters.containsKey(player.getUniqueId())) {
-            try {
-                playerInformationUpdaters.remove(player.getUniqueId()).cancel();
-            } catch (Exception ex) {
-                plugin.getLogger().log(Level.SEVERE, "An exception occurred while removing a player", ex);
-            }
-        }
+        playerInformationUpdaters.remove(event.getPlayer().getUniqueId());
     }
 
     @EventHandler
@@ -218,6 +365,27 @@ public class BukkitBridge extends BungeeTabListPlusBukkitAPI implements Listener
         }
     }
 
+    protected void sendDataUpdate(String subchannel, BridgeProtocol.DataUpdate update, Player player) {
+        try {
+            ByteArrayOutputStream os = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(os);
+            BridgeProtocol.writeHeader(out, subchannel);
+            BridgeProtocol.writeDataUpdate(out, update);
+            out.close();
+            player.sendPluginMessage(plugin, Constants.channel, os.toByteArray());
+        } catch (IOException ex) {
+            plugin.getLogger().log(Level.SEVERE, null, ex);
+        }
+    }
+
+    /**
+     * Get the bridge protocol version supported by the proxy the player is connected to.
+     */
+    private int getProtocolVersion(Player player) {
+        PlayerDataUpdateTask task = playerInformationUpdaters.get(player.getUniqueId());
+        return task != null ? task.handshake.getVersion() : 0;
+    }
+
     @Override
     protected void registerVariable0(Plugin plugin, Variable variable) {
         Preconditions.checkNotNull(plugin, "plugin");
@@ -299,16 +467,69 @@ public class BukkitBridge extends BungeeTabListPlusBukkitAPI implements Listener
         }
     }
 
-    public abstract class DataUpdateTask<B> extends BukkitRunnable {
+    public abstract class DataUpdateTask<B> implements Runnable {
         Map<DataKey<?>, Object> sentData = new ConcurrentHashMap<>();
         ImmutableSet<DataKey<?>> requestedData = ImmutableSet.of();
         boolean requestedReset = true;
+        // event driven keys which need to be collected again
+        final Set<DataKey<?>> changedKeys = ConcurrentHashMap.newKeySet();
+        // changed keys are marked when the event fires, which may be before the change is applied, so they are
+        // collected in the following cycle once more
+        private final Set<DataKey<?>> recollectKeys = new HashSet<>();
+        private final Set<DataKey<?>> collectedKeys = new HashSet<>();
+        // cycle in which the value known to the proxy has been sent
+        private final Map<DataKey<?>, Integer> sentCycle = new HashMap<>();
+        private int cycle = 0;
+        // sequence number of the last delta sent using the binary protocol, 0 if none has been sent
+        private int sequence = 0;
+        // recently sent deltas, so deltas the proxy missed can be sent again
+        private final Deque<BridgeProtocol.DataUpdate> history = new ArrayDeque<>();
+        private final AtomicInteger requestedResend = new AtomicInteger();
 
         protected final void update(Player player, DataAccess<B> dataAccess, B boundType, String subchannel) {
-            Map<DataKey<?>, Object> newData = new ConcurrentHashMap<>();
-            requestedData.parallelStream().forEach(value -> {
-                dataAccess.getValue(value, boundType).ifPresent(data -> newData.put(value, data));
-            });
+            Map<DataKey<?>, Object> delta = collect(dataAccess, boundType);
+            if (!delta.isEmpty()) {
+                sendInformation(subchannel, delta, player);
+            }
+        }
+
+        /**
+         * Collect the requested data and compute the changes to the data known
+         * to the proxy. The caller is responsible for sending the returned delta.
+         */
+        protected final Map<DataKey<?>, Object> collect(DataAccess<B> dataAccess, B boundType) {
+            Set<DataKey<?>> eventDrivenKeys = getEventDrivenKeys();
+            cycle++;
+            Map<DataKey<?>, Object> newData = new HashMap<>();
+            for (DataKey<?> key : requestedData) {
+                CollectionPolicy policy = CollectionPolicy.of(key);
+                boolean collect;
+                if (changedKeys.remove(key)) {
+                    collect = true;
+                    recollectKeys.add(key);
+                } else if (requestedReset || !collectedKeys.contains(key) || recollectKeys.remove(key)) {
+                    collect = true;
+                } else if (eventDrivenKeys.contains(key)) {
+                    // unchanged since we last collected it, unless it has been changed without an event
+                    collect = cycle % EVENT_DRIVEN_KEYS_REFRESH_INTERVAL == 0;
+                } else {
+                    collect = cycle % policy.getPollInterval() == 0;
+                }
+                Object sentValue = sentData.get(key);
+                Object value = sentValue;
+                if (collect) {
+                    value = dataAccess.getValue(key, boundType).orElse(null);
+                    collectedKeys.add(key);
+                    if (!requestedReset && value != null && sentValue != null && !policy.isSignificantChange(sentValue, value)
+                            && cycle - sentCycle.getOrDefault(key, cycle) < policy.getMaxStaleness()) {
+                        // change is below the threshold, the proxy keeps the value it knows
+                        value = sentValue;
+                    }
+                }
+                if (value != null) {
+                    newData.put(key, value);
+                }
+            }
             Map<DataKey<?>, Object> delta = new HashMap<>();
             for (Map.Entry<DataKey<?>, Object> entry : sentData.entrySet()) {
                 if (!newData.containsKey(entry.getKey())) {
@@ -323,14 +544,75 @@ public class BukkitBridge extends BungeeTabListPlusBukkitAPI implements Listener
                 }
             }
 
-            if (!delta.isEmpty()) {
-                sendInformation(subchannel, delta, player);
+            for (DataKey<?> key : delta.keySet()) {
+                sentCycle.put(key, cycle);
             }
             sentData = newData;
 
             if (requestedReset) {
                 requestedReset = false;
             }
+            return delta;
+        }
+
+        /**
+         * Collect the requested data and create the next numbered update for a proxy
+         * supporting the binary protocol.
+         *
+         * @return the update to send or null if nothing has changed
+         */
+        protected final BridgeProtocol.DataUpdate nextUpdate(DataAccess<B> dataAccess, B boundType) {
+            if (sequence == 0) {
+                requestedReset = true;
+            }
+            boolean snapshot = requestedReset;
+            Map<DataKey<?>, Object> delta = collect(dataAccess, boundType);
+            int resendFrom = requestedResend.getAndSet(0);
+
+            if (snapshot) {
+                history.clear();
+                return record(new BridgeProtocol.DataUpdate(0, sequence + 1, delta));
+            }
+            BridgeProtocol.DataUpdate update = null;
+            if (!delta.isEmpty()) {
+                update = record(new BridgeProtocol.DataUpdate(sequence, sequence + 1, delta));
+            }
+            if (resendFrom > 0 && resendFrom <= sequence) {
+                // merge all deltas starting at the requested one
+                Map<DataKey<?>, Object> merged = new HashMap<>();
+                int baseSequence = -1;
+                for (BridgeProtocol.DataUpdate sent : history) {
+                    if (sent.getSequence() >= resendFrom) {
+                        if (baseSequence == -1) {
+                            baseSequence = sent.getBaseSequence();
+                        }
+                        merged.putAll(sent.getDelta());
+                    }
+                }
+                if (baseSequence == 0 || baseSequence == resendFrom - 1) {
+                    return new BridgeProtocol.DataUpdate(baseSequence, sequence, merged);
+                }
+                // the history doesn't reach back far enough, send a snapshot with the next update
+                requestedReset = true;
+            }
+            return update;
+        }
+
+        private BridgeProtocol.DataUpdate record(BridgeProtocol.DataUpdate update) {
+            sequence = update.getSequence();
+            history.addLast(update);
+            if (history.size() > MAX_HISTORY_SIZE) {
+                history.removeFirst();
+            }
+            return update;
+        }
+
+        protected Set<DataKey<?>> getEventDrivenKeys() {
+            return ImmutableSet.of();
+        }
+
+        public void requestResend(int sequence) {
+            requestedResend.set(sequence);
         }
 
         public void requestValue(DataKey<?> dataKey) {
@@ -345,24 +627,53 @@ public class BukkitBridge extends BungeeTabListPlusBukkitAPI implements Listener
     }
 
     public class ServerDataUpdateTask extends DataUpdateTask<Server> {
+        private final long proxyId;
+
+        public ServerDataUpdateTask(long proxyId) {
+            this.proxyId = proxyId;
+        }
 
         @Override
         public void run() {
-            plugin.getServer().getOnlinePlayers().stream().findAny().ifPresent(player -> {
+            // messages can only be sent through a player connected to the proxy
+            Player player = null;
+            for (PlayerDataUpdateTask task : playerInformationUpdaters.values()) {
+                if (task.handshake.getProxyId() == proxyId && task.player.isOnline()) {
+                    player = task.player;
+                    break;
+                }
+            }
+            if (player == null) {
+                // no player on this server is connected through the proxy right now, the
+                // sequence continues once one is
+                return;
+            }
+            if (getProtocolVersion(player) >= BridgeProtocol.VERSION) {
+                BridgeProtocol.DataUpdate update = nextUpdate(serverDataAccess, plugin.getServer());
+                if (update != null) {
+                    sendDataUpdate(Constants.subchannelUpdateServerSequenced, update, player);
+                }
+            } else {
                 update(player, serverDataAccess, plugin.getServer(), Constants.subchannelUpdateServer);
                 sendHash(Constants.subchannelServerHash, sentData.hashCode(), player);
-            });
+            }
         }
-
     }
 
     public class PlayerDataUpdateTask extends DataUpdateTask<Player> {
         private final Player player;
+        volatile BridgeProtocol.Handshake handshake = BridgeProtocol.Handshake.LEGACY;
 
         public PlayerDataUpdateTask(Player player) {
             this.player = player;
         }
 
+        @Override
+        protected Set<DataKey<?>> getEventDrivenKeys() {
+            PlayerDataChangeListener listener = playerDataChangeListener;
+            return listener != null ? listener.getEventDrivenKeys() : ImmutableSet.of();
+        }
+
         @Override
         public void run() {
             update(player, playerDataAccess, player, Constants.subchannelUpdatePlayer);
@@ -38,11 +38,14 @@ import codecrafter47.bungeetablistplus.player.FakePlayerManagerImpl;
 import codecrafter47.bungeetablistplus.player.IPlayerProvider;
 import codecrafter47.bungeetablistplus.player.Player;
 import codecrafter47.bungeetablistplus.protocol.ProtocolManager;
+import codecrafter47.bungeetablistplus.skin.SkinPool;
+import codecrafter47.bungeetablistplus.tracking.DependencyTracker;
 import codecrafter47.bungeetablistplus.tablist.DefaultCustomTablist;
 import codecrafter47.bungeetablistplus.tablistproviders.legacy.CheckedTabListProvider;
 import codecrafter47.bungeetablistplus.updater.UpdateChecker;
 import codecrafter47.bungeetablistplus.updater.UpdateNotifier;
 import codecrafter47.bungeetablistplus.util.PingTask;
+import codecrafter47.bungeetablistplus.util.TimingWheel;
 import codecrafter47.bungeetablistplus.version.BungeeProtocolVersionProvider;
 import codecrafter47.bungeetablistplus.version.ProtocolSupportVersionProvider;
 import codecrafter47.bungeetablistplus.version.ProtocolVersionProvider;
@@ -67,7 +70,6 @@ import java.lang.reflect.Field;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
@@ -178,7 +180,7 @@ public class BungeeTabListPlus extends BungeeTabListPlusAPI {
     @Getter
     private ProtocolVersionProvider protocolVersionProvider;
 
-    private Map<Float, Set<Runnable>> scheduledTasks = new ConcurrentHashMap<>();
+    private final TimingWheel timingWheel = new TimingWheel(10, TimeUnit.MILLISECONDS);
 
     /**
      * Called when the plugin is enabled
@@ -248,7 +250,7 @@ public class BungeeTabListPlus extends BungeeTabListPlusAPI {
             bugReportingService.registerLogger(getLogger());
         }
 
-        resendThread = new ResendThread();
+        resendThread = new ResendThread(config.tablistUpdateThreads);
 
         File headsFolder = new File(plugin.getDataFolder(), "heads");
 
@@ -368,7 +370,8 @@ public class BungeeTabListPlus extends BungeeTabListPlusAPI {
 
         ProxyServer.getInstance().getPluginManager().registerListener(plugin,
                 listener);
-        plugin.getProxy().getScheduler().runAsync(plugin, resendThread);
+        resendThread.start(plugin);
+        timingWheel.start(plugin);
         restartRefreshThread();
     }
 
@@ -376,6 +379,9 @@ public class BungeeTabListPlus extends BungeeTabListPlusAPI {
         if (bugReportingService != null) {
             bugReportingService.unregisterLogger(getLogger());
         }
+        if (skins != null) {
+            skins.onDisable();
+        }
     }
 
     private Double requestedUpdateInterval = null;
@@ -395,7 +401,7 @@ public class BungeeTabListPlus extends BungeeTabListPlusAPI {
             try {
                 refreshThread = ProxyServer.getInstance().getScheduler().
                         schedule(
-                                plugin, this::resendTabLists,
+                                plugin, this::refreshTabLists,
                                 (long) (updateInterval * 1000),
                                 (long) (updateInterval * 1000),
                                 TimeUnit.MILLISECONDS);
@@ -436,11 +442,13 @@ public class BungeeTabListPlus extends BungeeTabListPlusAPI {
         try {
             // todo requestedUpdateInterval = null;
             config = YamlConfig.read(new FileInputStream(new File(plugin.getDataFolder(), "config.yml")), MainConfig.class);
+            DependencyTracker.onReload();
             placeholderManager.reload();
             if (reloadTablists()) return false;
             fakePlayerManager.reload();
             resendTabLists();
             restartRefreshThread();
+            dataManager.restartPingUpdateTask();
             skins.onReload();
         } catch (IOException | YAMLException ex) {
             plugin.getLogger().log(Level.WARNING, "Unable to reload Config", ex);
@@ -456,6 +464,7 @@ public class BungeeTabListPlus extends BungeeTabListPlusAPI {
         }
         tabListManager.customTabLists = tabLists.customTabLists;
         tabLists = tabListManager;
+        DependencyTracker.onReload();
         return false;
     }
 
@@ -498,11 +507,26 @@ public class BungeeTabListPlus extends BungeeTabListPlusAPI {
      * updates the tabList on all connected clients
      */
     public void resendTabLists() {
+        DependencyTracker.nextUpdateCycle();
         for (ProxiedPlayer player : ProxyServer.getInstance().getPlayers()) {
             resendThread.add(player);
         }
     }
 
+    /**
+     * updates the tabList of all connected clients which might have changed
+     * since their last update
+     */
+    private void refreshTabLists() {
+        DependencyTracker.nextUpdateCycle();
+        for (ProxiedPlayer player : ProxyServer.getInstance().getPlayers()) {
+            ConnectedPlayer connectedPlayer = connectedPlayerManager.getPlayerIfPresent(player);
+            if (connectedPlayer == null || connectedPlayer.getDependencyTracker().isDirty()) {
+                resendThread.add(player);
+            }
+        }
+    }
+
     public void runInMainThread(Runnable runnable) {
         resendThread.execute(runnable);
     }
@@ -517,6 +541,14 @@ public class BungeeTabListPlus extends BungeeTabListPlusAPI {
         resendThread.add(player);
     }
 
+    /**
+     * Updates the parts of the tab list of a player which have been marked as changed, e.g. animations. The whole
+     * tab list is only updated if anything else it depends on has changed as well.
+     */
+    public void updateTabListPartiallyForPlayer(ProxiedPlayer player) {
+        resendThread.addPartial(player);
+    }
+
     /**
      * Getter for an instance of the PlayerManager. For internal use only.
      *
@@ -587,6 +619,7 @@ public class BungeeTabListPlus extends BungeeTabListPlusAPI {
         if (!hidden[0]) {
             if (ProxyServer.getInstance().getPluginManager().getPlugin("ProxySuite") != null) {
                 try {
+                    DependencyTracker.recordUntrackableRead();
                     ProxiedPlayer proxiedPlayer = ProxyServer.getInstance().getPlayer(player.getName());
                     if (proxiedPlayer != null) {
                         hidden[0] |= ProxySuiteAPI.isVanished(proxiedPlayer);
@@ -611,6 +644,7 @@ public class BungeeTabListPlus extends BungeeTabListPlusAPI {
             if (!hiddenPlayers.contains(name))
                 hiddenPlayers.add(name);
         }
+        DependencyTracker.onPlayersChanged();
     }
 
     /**
@@ -625,6 +659,7 @@ public class BungeeTabListPlus extends BungeeTabListPlusAPI {
             String name = player.getName();
             hiddenPlayers.remove(name);
         }
+        DependencyTracker.onPlayersChanged();
     }
 
     public static boolean isHiddenServer(String serverName) {
@@ -747,12 +782,12 @@ public class BungeeTabListPlus extends BungeeTabListPlusAPI {
             if (properties != null) {
                 for (LoginResult.Property s : properties) {
                     if (s.getName().equals("textures")) {
-                        return new Icon(player.getUniqueId(), new String[][]{{s.getName(), s.getValue(), s.getSignature()}});
+                        return SkinPool.icon(player.getUniqueId(), new String[][]{{s.getName(), s.getValue(), s.getSignature()}});
                     }
                 }
             }
         }
-        return new Icon(player.getUniqueId(), new String[0][]);
+        return SkinPool.icon(player.getUniqueId(), new String[0][]);
     }
 
     @Override
@@ -760,15 +795,13 @@ public class BungeeTabListPlus extends BungeeTabListPlusAPI {
         getSkinManager().createIcon(image, callback);
     }
 
-    public void registerTask(float interval, Runnable task) {
-        boolean first = !scheduledTasks.containsKey(interval);
-        scheduledTasks.computeIfAbsent(interval, f -> Collections.newSetFromMap(new ConcurrentHashMap<>())).add(task);
-        if (first) {
-            getProxy().getScheduler().schedule(getPlugin(), () -> scheduledTasks.get(interval).forEach(Runnable::run), (long) (interval * 1000), (long) (interval * 1000), TimeUnit.MILLISECONDS);
-        }
-    }
-
-    public void unregisterTask(float interval, Runnable task) {
-        scheduledTasks.get(interval).remove(task);
+    /**
+     * Runs the task every {@code interval} seconds on the timing wheel thread. Tasks should only mark something as
+     * dirty and leave the actual work to the tab list update.
+     *
+     * @return handle to cancel the task
+     */
+    public TimingWheel.Task registerTask(float interval, Runnable task) {
+        return timingWheel.schedule(interval, task);
     }
 }
@@ -19,48 +19,90 @@
 package codecrafter47.bungeetablistplus;
 
 import codecrafter47.bungeetablistplus.config.Config;
-import codecrafter47.bungeetablistplus.config.DynamicSizeConfig;
-import codecrafter47.bungeetablistplus.config.FixedSizeConfig;
 import codecrafter47.bungeetablistplus.context.Context;
+import codecrafter47.bungeetablistplus.data.DataKeys;
 import codecrafter47.bungeetablistplus.layout.LayoutException;
 import codecrafter47.bungeetablistplus.managers.ConnectedPlayerManager;
 import codecrafter47.bungeetablistplus.player.ConnectedPlayer;
 import codecrafter47.bungeetablistplus.tablisthandler.PlayerTablistHandler;
 import codecrafter47.bungeetablistplus.tablistproviders.*;
+import codecrafter47.bungeetablistplus.tracking.DependencyTracker;
+import codecrafter47.bungeetablistplus.util.ReflectionUtil;
 import gnu.trove.set.hash.THashSet;
 import net.md_5.bungee.api.connection.ProxiedPlayer;
+import net.md_5.bungee.api.plugin.Plugin;
 
-import java.util.Collections;
-import java.util.Objects;
-import java.util.Queue;
-import java.util.Set;
+import java.util.*;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.logging.Level;
 
 class ResendThread implements Runnable, Executor {
 
-    private final Queue<ProxiedPlayer> queue = new ConcurrentLinkedQueue<>();
     private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
-    private final Set<ProxiedPlayer> set = Collections.synchronizedSet(new THashSet<>());
     private final ReentrantLock lock = new ReentrantLock();
     private final Condition condition = lock.newCondition();
     private Thread mainThread = null;
 
+    /**
+     * Tab list updates hold the read lock, tasks submitted via {@link #execute(Runnable)} hold the write lock.
+     * This way updates of different players can run concurrently while tasks still never observe a tab list
+     * update in progress.
+     */
+    private final ReadWriteLock updateLock = new ReentrantReadWriteLock();
+
+    private final SharedTablistProviders sharedTablistProviders = new SharedTablistProviders();
+
+    private final Worker[] workers;
+    private final Map<Object, Integer> shardByEventLoop = Collections.synchronizedMap(new IdentityHashMap<>());
+    private int nextShard = 0;
+
+    ResendThread(int workerCount) {
+        workers = new Worker[Math.max(1, workerCount)];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Worker();
+        }
+    }
+
+    public void start(Plugin plugin) {
+        plugin.getProxy().getScheduler().runAsync(plugin, this);
+        for (Worker worker : workers) {
+            plugin.getProxy().getScheduler().runAsync(plugin, worker);
+        }
+    }
+
     public void add(ProxiedPlayer player) {
-        lock.lock();
+        workers[getShard(player)].add(player, true);
+    }
+
+    /**
+     * Like {@link #add(ProxiedPlayer)}, but if nothing the last update of the player has read has changed only
+     * the parts of the tab list which have advanced since are updated, e.g. animations.
+     */
+    public void addPartial(ProxiedPlayer player) {
+        workers[getShard(player)].add(player, false);
+    }
+
+    /**
+     * All players sharing a netty event loop are updated by the same worker, so the updates a worker hands
+     * over to the event loops are not spread across all worker threads.
+     */
+    private int getShard(ProxiedPlayer player) {
+        if (workers.length == 1) {
+            return 0;
+        }
+        Object eventLoop;
         try {
-            if (!set.contains(player)) {
-                set.add(player);
-                queue.add(player);
-                condition.signal();
-            }
-        } finally {
-            lock.unlock();
+            eventLoop = ReflectionUtil.getChannelWrapper(player).getHandle().eventLoop();
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+            return (player.getUniqueId().hashCode() & Integer.MAX_VALUE) % workers.length;
         }
+        return shardByEventLoop.computeIfAbsent(eventLoop, loop -> nextShard++ % workers.length);
     }
 
     @Override
@@ -83,7 +125,7 @@ class ResendThread implements Runnable, Executor {
         mainThread = Thread.currentThread();
         while (true) {
             try {
-                while (tasks.isEmpty() && queue.isEmpty()) {
+                while (tasks.isEmpty()) {
                     lock.lock();
                     try {
                         condition.await(1, TimeUnit.SECONDS);
@@ -91,65 +133,131 @@ class ResendThread implements Runnable, Executor {
                         lock.unlock();
                     }
                 }
-                while (!tasks.isEmpty()) {
-                    tasks.poll().run();
+                updateLock.writeLock().lock();
+                try {
+                    while (!tasks.isEmpty()) {
+                        try {
+                            tasks.poll().run();
+                        } catch (Throwable th) {
+                            BungeeTabListPlus.getInstance().reportError(th);
+                        }
+                    }
+                } finally {
+                    updateLock.writeLock().unlock();
                 }
-                if (!queue.isEmpty()) {
+            } catch (InterruptedException ex) {
+                break;
+            } catch (Throwable th) {
+                BungeeTabListPlus.getInstance().reportError(th);
+            }
+        }
+    }
+
+    private class Worker implements Runnable {
+        private final Queue<ProxiedPlayer> queue = new ConcurrentLinkedQueue<>();
+        private final Set<ProxiedPlayer> set = Collections.synchronizedSet(new THashSet<>());
+        // players in the queue which need a full update
+        private final Set<ProxiedPlayer> fullUpdates = new THashSet<>();
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition condition = lock.newCondition();
+
+        private void add(ProxiedPlayer player, boolean fullUpdate) {
+            lock.lock();
+            try {
+                if (fullUpdate) {
+                    fullUpdates.add(player);
+                }
+                if (!set.contains(player)) {
+                    set.add(player);
+                    queue.add(player);
+                    condition.signal();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                try {
+                    while (queue.isEmpty()) {
+                        lock.lock();
+                        try {
+                            condition.await(1, TimeUnit.SECONDS);
+                        } finally {
+                            lock.unlock();
+                        }
+                    }
                     ProxiedPlayer player = queue.poll();
-                    set.remove(player);
+                    boolean fullUpdate;
+                    lock.lock();
+                    try {
+                        set.remove(player);
+                        fullUpdate = fullUpdates.remove(player);
+                    } finally {
+                        lock.unlock();
+                    }
                     if (player.getServer() != null) {
                         ConnectedPlayerManager connectedPlayerManager = BungeeTabListPlus.getInstance().getConnectedPlayerManager();
                         ConnectedPlayer connectedPlayer = connectedPlayerManager.getPlayerIfPresent(player);
                         if (connectedPlayer != null) {
-                            update(player, connectedPlayer);
+                            DependencyTracker dependencyTracker = connectedPlayer.getDependencyTracker();
+                            if (dependencyTracker.isOutdated()) {
+                                fullUpdate = true;
+                            }
+                            updateLock.readLock().lock();
+                            if (fullUpdate) {
+                                dependencyTracker.begin();
+                            } else {
+                                dependencyTracker.resume();
+                            }
+                            try {
+                                update(player, connectedPlayer, fullUpdate);
+                            } finally {
+                                dependencyTracker.end();
+                                updateLock.readLock().unlock();
+                            }
                         }
                     }
-                } else {
-                    set.clear();
+                } catch (InterruptedException ex) {
+                    break;
+                } catch (Throwable th) {
+                    BungeeTabListPlus.getInstance().reportError(th);
                 }
-            } catch (InterruptedException ex) {
-                break;
-            } catch (Throwable th) {
-                BungeeTabListPlus.getInstance().reportError(th);
             }
         }
     }
 
-    private void update(ProxiedPlayer player, ConnectedPlayer connectedPlayer) {
+    private void update(ProxiedPlayer player, ConnectedPlayer connectedPlayer, boolean fullUpdate) {
         PlayerTablistHandler tablistHandler = connectedPlayer.getPlayerTablistHandler();
 
         try {
             if (connectedPlayer.getCustomTablist() != null) {
+                // custom tab lists are updated by their owner, we cannot know when
+                DependencyTracker.recordUntrackableRead();
                 tablistHandler.setTablistProvider((TablistProvider) connectedPlayer.getCustomTablist());
             } else {
                 TablistProvider tablistProvider = tablistHandler.getTablistProvider();
                 Context context = new Context().put(Context.KEY_VIEWER, connectedPlayer);
                 Config config = BungeeTabListPlus.getInstance().getTabListManager().getNewConfigForContext(context);
-                if (config != null && (!(tablistProvider instanceof ConfigTablistProvider) || ((ConfigTablistProvider) tablistProvider).config != config)) {
-                    tablistHandler.setTablistProvider(createTablistProvider(context, config));
+                if (config != null) {
+                    boolean canSeeHiddenPlayers = connectedPlayer.get(DataKeys.permission("bungeetablistplus.seevanished")).orElse(false);
+                    tablistHandler.setTablistProvider(sharedTablistProviders.getTablistProvider(config, canSeeHiddenPlayers, connectedPlayer, tablistProvider));
                     tablistProvider = tablistHandler.getTablistProvider();
                 } else if (config == null && tablistProvider instanceof ConfigTablistProvider) {
                     tablistHandler.setTablistProvider(tablistProvider = LegacyTablistProvider.INSTANCE);
                 }
 
                 if (tablistProvider instanceof LegacyTablistProvider) {
+                    DependencyTracker.recordUntrackableRead();
                     ((LegacyTablistProvider) tablistProvider).update(tablistHandler);
                 } else if (tablistProvider instanceof ConfigTablistProvider) {
-                    ((ConfigTablistProvider) tablistProvider).update();
+                    sharedTablistProviders.update((ConfigTablistProvider) tablistProvider, fullUpdate);
                 }
             }
         } catch (Throwable th) {
             BungeeTabListPlus.getInstance().getLogger().log(th instanceof LayoutException ? Level.WARNING : Level.SEVERE, "Error while updating tablist", th);
         }
     }
-
-    private ConfigTablistProvider createTablistProvider(Context context, Config config) {
-        if (config instanceof FixedSizeConfig) {
-            return new FixedSizeConfigTablistProvider((FixedSizeConfig) config, context);
-        } else if (config instanceof DynamicSizeConfig) {
-            return new DynamicSizeConfigTablistProvider((DynamicSizeConfig) config, context);
-        } else {
-            throw new RuntimeException("Unknown tab list config type: " + config.getClass());
-        }
-    }
 }
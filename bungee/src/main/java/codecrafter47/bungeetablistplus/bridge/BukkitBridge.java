@@ -21,12 +21,16 @@ package codecrafter47.bungeetablistplus.bridge;
 import codecrafter47.bungeetablistplus.BungeeTabListPlus;
 import codecrafter47.bungeetablistplus.api.bungee.placeholder.PlaceholderProvider;
 import codecrafter47.bungeetablistplus.common.BTLPDataKeys;
+import codecrafter47.bungeetablistplus.common.BridgeProtocol;
 import codecrafter47.bungeetablistplus.common.Constants;
 import codecrafter47.bungeetablistplus.data.DataCache;
 import codecrafter47.bungeetablistplus.data.DataKey;
 import codecrafter47.bungeetablistplus.placeholder.Placeholder;
 import codecrafter47.bungeetablistplus.player.Player;
+import codecrafter47.bungeetablistplus.tracking.TrackingDataCache;
 import com.google.common.collect.Sets;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
 import net.md_5.bungee.api.ProxyServer;
 import net.md_5.bungee.api.config.ServerInfo;
 import net.md_5.bungee.api.connection.ProxiedPlayer;
@@ -40,16 +44,23 @@ import javax.annotation.Nullable;
 import java.io.*;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 
 public class BukkitBridge implements Listener {
     private final BungeeTabListPlus plugin;
 
-    private final Map<String, BukkitData> serverInformation = new HashMap<>();
+    private final Map<String, BukkitData> serverInformation = new ConcurrentHashMap<>();
     private final Map<ProxiedPlayer, BukkitData> playerInformation = new IdentityHashMap<>();
 
+    private static final long MISSING_DATA_REQUEST_TIMEOUT = 5000;
+
+    // identifies this proxy to the bridge plugins, which batch data by proxy
+    private final long proxyId = new Random().nextLong();
+
     private final Set<String> registeredThirdPartyVariables = new HashSet<>();
     private final ReentrantLock thirdPartyVariablesLock = new ReentrantLock();
 
@@ -109,62 +120,179 @@ public class BukkitBridge implements Listener {
         if (event.getTag().equals(Constants.channel)) {
             event.setCancelled(true);
             if (event.getReceiver() instanceof ProxiedPlayer && event.getSender() instanceof Server) {
-                plugin.runInMainThread(() -> {
-                    try {
-                        ProxiedPlayer player = (ProxiedPlayer) event.getReceiver();
-                        Server server = (Server) event.getSender();
-
-                        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(event.getData()));
-
-                        String subchannel = in.readUTF();
-
-                        switch (subchannel) {
-                            case Constants.subchannelUpdateServer:
-                                updateData(in, getServerDataCache(server.getInfo().getName()));
-                                break;
-                            case Constants.subchannelUpdatePlayer:
-                                updateData(in, getPlayerDataCache(player));
-                                break;
-                            case Constants.subchannelPlayerHash:
-                                BukkitData bukkitData = getPlayerDataCache(player);
-                                if (bukkitData == null || bukkitData.getMap().hashCode() != in.readInt()) {
-                                    requestReset(player);
-                                }
-                                break;
-                            case Constants.subchannelServerHash:
-                                if (getServerDataCache(server.getInfo().getName()).getMap().hashCode() != in.readInt()) {
-                                    requestReset(server);
-                                }
-                                break;
-                            case Constants.subchannelPlaceholder:
-                                plugin.getPlaceholderAPIHook().onPlaceholderConfirmed(in.readUTF());
-                                break;
-                            default:
-                                plugin.getLogger().log(Level.SEVERE,
-                                        "BukkitBridge on server " + server.getInfo().
-                                                getName() + " send an unknown packet! Is everything up-to-date?");
-                                break;
-                        }
-                    } catch (StreamCorruptedException ex) {
-                        plugin.getLogger().log(Level.WARNING, "BungeeTabListPlus_BukkitBridge.jar on server {0} needs to be updated", ((Server) event.getSender()).getInfo());
-                    } catch (IOException | ClassNotFoundException ex) {
-                        plugin.getLogger().log(Level.SEVERE, "Exception while parsing data from Bukkit", ex);
+                ProxiedPlayer player = (ProxiedPlayer) event.getReceiver();
+                Server server = (Server) event.getSender();
+                try {
+                    // decode on the thread which received the message, the main thread only applies the result
+                    Runnable task = decode(player, server, event.getData());
+                    if (task != null) {
+                        plugin.runInMainThread(task);
                     }
-                });
+                } catch (StreamCorruptedException ex) {
+                    if (BridgeProtocol.isBinary(event.getData())) {
+                        plugin.getLogger().log(Level.WARNING, "Received a corrupt message from server " + server.getInfo().getName(), ex);
+                    } else {
+                        plugin.getLogger().log(Level.WARNING, "BungeeTabListPlus_BukkitBridge.jar on server {0} needs to be updated", server.getInfo());
+                    }
+                } catch (IOException | ClassNotFoundException ex) {
+                    plugin.getLogger().log(Level.SEVERE, "Exception while parsing data from Bukkit", ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Decode a message from the bridge plugin.
+     *
+     * @return a task applying the message, to be run in the main thread, or null
+     */
+    @Nullable
+    private Runnable decode(ProxiedPlayer player, Server server, byte[] data) throws IOException, ClassNotFoundException {
+        boolean binary = BridgeProtocol.isBinary(data);
+        DataInput in;
+        String subchannel;
+        if (binary) {
+            DataInputStream dataInputStream = new DataInputStream(new ByteArrayInputStream(data));
+            subchannel = BridgeProtocol.readHeader(dataInputStream);
+            in = dataInputStream;
+        } else {
+            ObjectInputStream objectInputStream = new ObjectInputStream(new ByteArrayInputStream(data));
+            subchannel = objectInputStream.readUTF();
+            in = objectInputStream;
+        }
+        String serverName = server.getInfo().getName();
+
+        switch (subchannel) {
+            case Constants.subchannelUpdateServer: {
+                Map<DataKey<?>, Object> delta = readUnsequencedDelta(in);
+                return () -> updateData(delta, getServerDataCache(serverName));
+            }
+            case Constants.subchannelUpdateServerSequenced: {
+                BridgeProtocol.DataUpdate update = BridgeProtocol.readDataUpdate(in);
+                return () -> applyDataUpdate(getServerDataCache(serverName), update,
+                        () -> requestReset(server), sequence -> requestMissingData(server, sequence));
+            }
+            case Constants.subchannelUpdatePlayer: {
+                Map<DataKey<?>, Object> delta = readUnsequencedDelta(in);
+                return () -> updateData(delta, getPlayerDataCache(player));
+            }
+            case Constants.subchannelUpdatePlayers: {
+                List<PlayerDataUpdate> updates = readPlayerDataUpdates(in);
+                return () -> applyPlayerDataUpdates(server, updates);
             }
+            case Constants.subchannelPlayerHash: {
+                int hash = in.readInt();
+                return () -> {
+                    BukkitData bukkitData = getPlayerDataCache(player);
+                    if (bukkitData == null || bukkitData.getMap().hashCode() != hash) {
+                        requestReset(player);
+                    }
+                };
+            }
+            case Constants.subchannelServerHash: {
+                int hash = in.readInt();
+                return () -> {
+                    if (getServerDataCache(serverName).getMap().hashCode() != hash) {
+                        requestReset(server);
+                    }
+                };
+            }
+            case Constants.subchannelPlaceholder: {
+                String placeholder = binary ? BridgeProtocol.readString(in) : in.readUTF();
+                return () -> plugin.getPlaceholderAPIHook().onPlaceholderConfirmed(placeholder);
+            }
+            default:
+                plugin.getLogger().log(Level.SEVERE,
+                        "BukkitBridge on server " + serverName + " send an unknown packet! Is everything up-to-date?");
+                return null;
+        }
+    }
+
+    /**
+     * Read the delta of an updateS or updateP message. Legacy messages contain a serialized map,
+     * binary ones, as sent by the Sponge bridge, a delta without sequence numbers.
+     */
+    @SuppressWarnings("unchecked")
+    static Map<DataKey<?>, Object> readUnsequencedDelta(DataInput in) throws IOException, ClassNotFoundException {
+        if (in instanceof ObjectInputStream) {
+            return Collections.unmodifiableMap((Map<DataKey<?>, Object>) ((ObjectInputStream) in).readObject());
         }
+        return Collections.unmodifiableMap(BridgeProtocol.readDelta(in));
     }
 
     @SuppressWarnings("unchecked")
-    private void updateData(ObjectInputStream in, DataCache dataCache) throws IOException, ClassNotFoundException {
+    private void updateData(Map<DataKey<?>, Object> delta, @Nullable DataCache dataCache) {
         if (dataCache == null) {
             return;
         }
-        for (Entry<DataKey, Object> entry : ((Map<DataKey, Object>) in.readObject()).entrySet()) {
-            dataCache.updateValue(entry.getKey(), entry.getValue());
+        for (Entry<DataKey<?>, Object> entry : delta.entrySet()) {
+            dataCache.updateValue((DataKey<Object>) entry.getKey(), entry.getValue());
         }
     }
 
+    private static List<PlayerDataUpdate> readPlayerDataUpdates(DataInput in) throws IOException {
+        int size = BridgeProtocol.readLength(in);
+        List<PlayerDataUpdate> updates = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            UUID uuid = BridgeProtocol.readUUID(in);
+            updates.add(new PlayerDataUpdate(uuid, BridgeProtocol.readDataUpdate(in)));
+        }
+        return updates;
+    }
+
+    private void applyPlayerDataUpdates(Server server, List<PlayerDataUpdate> updates) {
+        for (PlayerDataUpdate update : updates) {
+            ProxiedPlayer player = plugin.getProxy().getPlayer(update.getUuid());
+            if (player == null || player.getServer() == null || player.getServer().getInfo() != server.getInfo()) {
+                // data of the previous server arriving after a server switch
+                continue;
+            }
+            BukkitData bukkitData = getPlayerDataCache(player);
+            if (bukkitData == null) {
+                continue;
+            }
+            applyDataUpdate(bukkitData, update.getUpdate(), () -> requestReset(player), sequence -> requestMissingData(player, sequence));
+        }
+    }
+
+    /**
+     * Apply an update if it continues the sequence of updates already applied to
+     * the cache, otherwise request the missing ones.
+     */
+    @SuppressWarnings("unchecked")
+    private void applyDataUpdate(BukkitData bukkitData, BridgeProtocol.DataUpdate update, Runnable requestSnapshot, IntConsumer requestMissing) {
+        if (update.isSnapshot()) {
+            for (DataKey<?> key : bukkitData.getMap().keySet()) {
+                if (!update.getDelta().containsKey(key)) {
+                    bukkitData.updateValue((DataKey<Object>) key, null);
+                }
+            }
+        } else if (update.getBaseSequence() != bukkitData.sequence) {
+            if (update.getSequence() > bukkitData.sequence) {
+                long now = System.currentTimeMillis();
+                // give the bridge some time to answer before asking again
+                if (now - bukkitData.lastMissingDataRequest > MISSING_DATA_REQUEST_TIMEOUT) {
+                    bukkitData.lastMissingDataRequest = now;
+                    if (bukkitData.sequence == 0) {
+                        requestSnapshot.run();
+                    } else {
+                        requestMissing.accept(bukkitData.sequence + 1);
+                    }
+                }
+            }
+            return;
+        }
+        for (Entry<DataKey<?>, Object> entry : update.getDelta().entrySet()) {
+            bukkitData.updateValue((DataKey<Object>) entry.getKey(), entry.getValue());
+        }
+        bukkitData.sequence = update.getSequence();
+        bukkitData.lastMissingDataRequest = 0;
+    }
+
+    public void writeHandshake(DataOutput out) throws IOException {
+        BridgeProtocol.writeHandshake(out, proxyId);
+    }
+
     @EventHandler
     public void onServerChange(ServerConnectedEvent event) {
         ProxiedPlayer player = event.getPlayer();
@@ -191,6 +319,7 @@ public class BukkitBridge implements Listener {
                     ObjectOutputStream out = new ObjectOutputStream(os);
                     out.writeUTF(Constants.subchannelRequestServerVariable);
                     out.writeObject(key);
+                    writeHandshake(out);
                     out.close();
                     serverInfo.sendData(Constants.channel, os.toByteArray());
                 } catch (IOException ex) {
@@ -206,6 +335,7 @@ public class BukkitBridge implements Listener {
             ByteArrayOutputStream os = new ByteArrayOutputStream();
             ObjectOutputStream out = new ObjectOutputStream(os);
             out.writeUTF(Constants.subchannelRequestResetPlayerVariables);
+            writeHandshake(out);
             out.close();
             player.sendData(Constants.channel, os.toByteArray());
         } catch (IOException ex) {
@@ -218,6 +348,35 @@ public class BukkitBridge implements Listener {
             ByteArrayOutputStream os = new ByteArrayOutputStream();
             ObjectOutputStream out = new ObjectOutputStream(os);
             out.writeUTF(Constants.subchannelRequestResetServerVariables);
+            writeHandshake(out);
+            out.close();
+            server.sendData(Constants.channel, os.toByteArray());
+        } catch (IOException ex) {
+            plugin.getLogger().log(Level.SEVERE, "Error while requesting data from bukkit", ex);
+        }
+    }
+
+    private void requestMissingData(ProxiedPlayer player, int sequence) {
+        try {
+            ByteArrayOutputStream os = new ByteArrayOutputStream();
+            ObjectOutputStream out = new ObjectOutputStream(os);
+            out.writeUTF(Constants.subchannelRequestMissingPlayerData);
+            out.writeInt(sequence);
+            writeHandshake(out);
+            out.close();
+            Optional.ofNullable(player.getServer()).ifPresent(server -> server.sendData(Constants.channel, os.toByteArray()));
+        } catch (IOException ex) {
+            plugin.getLogger().log(Level.SEVERE, "Error while requesting data from bukkit", ex);
+        }
+    }
+
+    private void requestMissingData(Server server, int sequence) {
+        try {
+            ByteArrayOutputStream os = new ByteArrayOutputStream();
+            ObjectOutputStream out = new ObjectOutputStream(os);
+            out.writeUTF(Constants.subchannelRequestMissingServerData);
+            out.writeInt(sequence);
+            writeHandshake(out);
             out.close();
             server.sendData(Constants.channel, os.toByteArray());
         } catch (IOException ex) {
@@ -235,9 +394,19 @@ public class BukkitBridge implements Listener {
         playerInformation.remove(player);
     }
 
-    public static class BukkitData extends DataCache {
+    @Getter
+    @AllArgsConstructor
+    private static class PlayerDataUpdate {
+        private final UUID uuid;
+        private final BridgeProtocol.DataUpdate update;
+    }
+
+    public static class BukkitData extends TrackingDataCache {
         private Set<DataKey> requestedData = Sets.newConcurrentHashSet();
         private long lastAccess = System.currentTimeMillis();
+        // sequence number of the last update applied, 0 if none
+        private int sequence = 0;
+        private long lastMissingDataRequest = 0;
 
         public Set<DataKey> getRequestedData() {
             if (System.currentTimeMillis() - lastAccess > 1000) {
@@ -246,5 +415,12 @@ public class BukkitBridge implements Listener {
             }
             return requestedData;
         }
+
+        @Override
+        public void clear() {
+            super.clear();
+            sequence = 0;
+            lastMissingDataRequest = 0;
+        }
     }
 }
@@ -21,7 +21,6 @@ package codecrafter47.bungeetablistplus.config;
 
 import codecrafter47.bungeetablistplus.context.Context;
 import codecrafter47.bungeetablistplus.expression.Expression;
-import codecrafter47.bungeetablistplus.expression.ExpressionResult;
 import codecrafter47.bungeetablistplus.placeholder.Placeholder;
 import codecrafter47.bungeetablistplus.template.TextTemplate;
 import codecrafter47.bungeetablistplus.yamlconfig.Subtype;
@@ -106,7 +105,7 @@ public abstract class CustomPlaceholder {
 
             @Override
             public String evaluate(Context context) {
-                return condition.evaluate(context, ExpressionResult.BOOLEAN) ? trueReplacement.evaluate(context) : falseReplacement.evaluate(context);
+                return condition.evaluateBoolean(context) ? trueReplacement.evaluate(context) : falseReplacement.evaluate(context);
             }
         }
     }
@@ -134,7 +133,7 @@ public abstract class CustomPlaceholder {
 
             @Override
             public String evaluate(Context context) {
-                TextTemplate replacement = replacements.get(expression.evaluate(context, ExpressionResult.STRING));
+                TextTemplate replacement = replacements.get(expression.evaluateString(context));
                 if (replacement != null) {
                     return replacement.evaluate(context);
                 } else if (defaultReplacement != null) {
@@ -39,6 +39,20 @@ public class MainConfig implements UpdatableConfig {
     })
     public double tablistUpdateInterval = 1;
 
+    @Comment({
+            "time in seconds after which changed pings are shown in the tabList",
+            "pings change all the time, a larger value avoids updating all tabLists showing pings that often",
+            "set this to -1 to use the tablistUpdateInterval"
+    })
+    public double pingUpdateInterval = -1;
+
+    @Comment({
+            "number of threads used to update the tab lists of the players",
+            "increasing this can help on networks with many players and a proxy with multiple cpu cores",
+            "changing this requires a restart of the proxy"
+    })
+    public int tablistUpdateThreads = 1;
+
     @Comment({
             "whether tabList should be resend if a player joins or leaves the server"
     })
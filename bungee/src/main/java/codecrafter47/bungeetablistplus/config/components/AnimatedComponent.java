@@ -20,12 +20,17 @@
 package codecrafter47.bungeetablistplus.config.components;
 
 import codecrafter47.bungeetablistplus.BungeeTabListPlus;
+import codecrafter47.bungeetablistplus.api.bungee.CustomTablist;
 import codecrafter47.bungeetablistplus.context.Context;
+import codecrafter47.bungeetablistplus.tablistproviders.ConfigTablistProvider;
+import codecrafter47.bungeetablistplus.util.TimingWheel;
 import com.google.common.base.Preconditions;
 import lombok.Data;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 
 @Data
 public class AnimatedComponent extends Component {
@@ -63,6 +68,8 @@ public class AnimatedComponent extends Component {
 
         private List<Component.Instance> frames;
         private int activeComponent = -1;
+        private final AtomicInteger pendingAdvances = new AtomicInteger();
+        private TimingWheel.Task task;
 
         protected Instance(Context context) {
             super(context);
@@ -75,14 +82,19 @@ public class AnimatedComponent extends Component {
         @Override
         public void activate() {
             super.activate();
-            BungeeTabListPlus.getInstance().registerTask(getInterval(), this);
+            pendingAdvances.set(0);
+            task = BungeeTabListPlus.getInstance().registerTask(getInterval(), this);
         }
 
         @Override
         public void deactivate() {
             super.deactivate();
-            synchronized (context.get(Context.KEY_TAB_LIST)) {
-                BungeeTabListPlus.getInstance().unregisterTask(getInterval(), this);
+            if (task != null) {
+                task.cancel();
+                task = null;
+            }
+            if (activeComponent != -1) {
+                frames.get(activeComponent).deactivate();
                 activeComponent = -1;
             }
         }
@@ -95,38 +107,70 @@ public class AnimatedComponent extends Component {
         @Override
         public void update2ndStep() {
             super.update2ndStep();
-            synchronized (context.get(Context.KEY_TAB_LIST)) {
-                if (activeComponent == -1) {
-                    activeComponent = 0;
-                    Component.Instance component = frames.get(0);
-                    component.activate();
-                    component.update1stStep();
-                    component.setPosition(row, column, size);
-                    component.update2ndStep();
-                } else {
-                    Component.Instance component = frames.get(activeComponent);
-                    component.update1stStep();
-                    component.setPosition(row, column, size);
-                    component.update2ndStep();
-                }
+            if (activeComponent == -1) {
+                activeComponent = 0;
+                frames.get(0).activate();
+            } else {
+                advance(pendingAdvances.getAndSet(0));
+            }
+            render();
+        }
+
+        /**
+         * Renders the next frame if the animation has advanced since it has last been rendered, without updating
+         * the rest of the tab list.
+         *
+         * @return whether a different frame has been rendered
+         */
+        public boolean updateAnimation() {
+            if (!active || !hasValidPosition || activeComponent == -1) {
+                return false;
+            }
+            if (!advance(pendingAdvances.getAndSet(0))) {
+                return false;
             }
+            render();
+            return true;
         }
 
+        /**
+         * Calls the action with row and column of each slot of the tab list covered by the animation.
+         */
+        public void forEachSlot(BiConsumer<Integer, Integer> action) {
+            int columns = context.get(Context.KEY_COLUMNS);
+            for (int n = 0; n < size; n++) {
+                action.accept(row + n / columns, column + n % columns);
+            }
+        }
+
+        private boolean advance(int advances) {
+            int next = (activeComponent + advances) % frames.size();
+            if (next == activeComponent) {
+                return false;
+            }
+            frames.get(activeComponent).deactivate();
+            activeComponent = next;
+            frames.get(activeComponent).activate();
+            return true;
+        }
+
+        private void render() {
+            Component.Instance component = frames.get(activeComponent);
+            component.update1stStep();
+            component.setPosition(row, column, size);
+            component.update2ndStep();
+        }
+
+        /**
+         * Called by the timing wheel. Only records that the animation has advanced, the frame is switched by the
+         * next tab list update of the viewer, which only renders the animation unless something else has changed.
+         */
         @Override
         public void run() {
-            if (activeComponent != -1) {
-                synchronized (context.get(Context.KEY_TAB_LIST)) {
-                    frames.get(activeComponent).deactivate();
-                    activeComponent++;
-                    if (activeComponent >= frames.size()) {
-                        activeComponent = 0;
-                    }
-                    Component.Instance component = frames.get(activeComponent);
-                    component.activate();
-                    component.update1stStep();
-                    component.setPosition(row, column, size);
-                    component.update2ndStep();
-                }
+            pendingAdvances.incrementAndGet();
+            CustomTablist tabList = context.get(Context.KEY_TAB_LIST);
+            if (tabList instanceof ConfigTablistProvider) {
+                ((ConfigTablistProvider) tabList).requestAnimationUpdate(this);
             }
         }
 
@@ -21,6 +21,7 @@ package codecrafter47.bungeetablistplus.config.components;
 
 import codecrafter47.bungeetablistplus.api.bungee.CustomTablist;
 import codecrafter47.bungeetablistplus.context.Context;
+import codecrafter47.bungeetablistplus.tablist.AbstractCustomTablist;
 import codecrafter47.bungeetablistplus.template.IconTemplate;
 import codecrafter47.bungeetablistplus.template.PingTemplate;
 import codecrafter47.bungeetablistplus.template.TextTemplate;
@@ -34,6 +35,11 @@ import lombok.Setter;
 @Setter
 public class BasicComponent extends Component {
 
+    /**
+     * Enough spaces to fill the widest slot.
+     */
+    private static final String SPACES = Strings.repeat(" ", 360);
+
     private TextTemplate text;
     private IconTemplate icon;
     private PingTemplate ping;
@@ -64,32 +70,48 @@ public class BasicComponent extends Component {
         public void update2ndStep() {
             super.update2ndStep();
             CustomTablist tablist = context.get(Context.KEY_TAB_LIST);
-            String text = getText().evaluate(context);
-
-            if (alignment != Alignment.LEFT) {
-                int slotWidth = 80;
-                if (tablist.getSize() <= 60) {
-                    slotWidth = 110;
-                } else if (tablist.getSize() <= 40) {
-                    slotWidth = 180;
-                } else if (tablist.getSize() <= 20) {
-                    slotWidth = 360;
+            StringBuilder text = TextTemplate.getBuffer();
+            int start = text.length();
+            try {
+                getText().appendTo(text, context);
+                if (alignment != Alignment.LEFT) {
+                    align(text, start, tablist.getSize());
                 }
-                int textLength = FastChat.legacyTextLength(text, '&');
-                int space = slotWidth - textLength;
-                if (space > 0) {
-                    int spaces = (int) (space / ChatUtil.getCharWidth(' ', false));
-                    int spacesBefore = spaces;
-                    int spacesBehind = 0;
-                    if (alignment == Alignment.CENTER) {
-                        spacesBefore = spaces >> 1;
-                        spacesBehind = spaces - spacesBefore;
-                    }
-                    text = Strings.repeat(" ", spacesBefore) + text + "&r" + Strings.repeat(" ", spacesBehind);
+                // the buffer is usually empty before, so the builder itself can be handed on without copying
+                CharSequence slotText = start == 0 ? text : text.subSequence(start, text.length());
+                if (tablist instanceof AbstractCustomTablist) {
+                    ((AbstractCustomTablist) tablist).setSlot(row, column, getIcon().evaluate(context), slotText, getPing().evaluate(context));
+                } else {
+                    tablist.setSlot(row, column, getIcon().evaluate(context), slotText.toString(), getPing().evaluate(context));
                 }
+            } finally {
+                text.setLength(start);
             }
+        }
 
-            tablist.setSlot(row, column, getIcon().evaluate(context), text, getPing().evaluate(context));
+        private void align(StringBuilder text, int start, int size) {
+            int slotWidth = 80;
+            if (size <= 60) {
+                slotWidth = 110;
+            } else if (size <= 40) {
+                slotWidth = 180;
+            } else if (size <= 20) {
+                slotWidth = 360;
+            }
+            int textLength = FastChat.legacyTextLength(start == 0 ? text : text.subSequence(start, text.length()), '&');
+            int space = slotWidth - textLength;
+            if (space > 0) {
+                int spaces = (int) (space / ChatUtil.getCharWidth(' ', false));
+                int spacesBefore = spaces;
+                int spacesBehind = 0;
+                if (alignment == Alignment.CENTER) {
+                    spacesBefore = spaces >> 1;
+                    spacesBehind = spaces - spacesBefore;
+                }
+                text.insert(start, SPACES, 0, spacesBefore);
+                text.append("&r");
+                text.append(SPACES, 0, spacesBehind);
+            }
         }
 
         @Override
@@ -21,7 +21,6 @@ package codecrafter47.bungeetablistplus.config.components;
 
 import codecrafter47.bungeetablistplus.context.Context;
 import codecrafter47.bungeetablistplus.expression.Expression;
-import codecrafter47.bungeetablistplus.expression.ExpressionResult;
 
 public class ConditionalComponent extends Component {
     private Expression condition;
@@ -89,7 +88,7 @@ public class ConditionalComponent extends Component {
             if (component != null) {
                 component.deactivate();
             }
-            if (condition.evaluate(context, ExpressionResult.BOOLEAN)) {
+            if (condition.evaluateBoolean(context)) {
                 component = trueReplacement.toInstance(context);
             } else {
                 component = falseReplacement.toInstance(context);
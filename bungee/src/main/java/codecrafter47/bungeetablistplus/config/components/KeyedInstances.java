@@ -0,0 +1,81 @@
+/*
+ * BungeeTabListPlus - a BungeeCord plugin to customize the tablist
+ *
+ * Copyright (C) 2014 - 2015 Florian Stober
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package codecrafter47.bungeetablistplus.config.components;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the component instances of a dynamic list alive across updates.
+ * <p>
+ * During an update instances are requested by key, e.g. by player or server name. An instance requested in the
+ * previous update is reused, otherwise a new instance is created and activated. {@link #finish()} deactivates the
+ * instances which have not been requested again, so only the changes between two updates cause allocations.
+ */
+public class KeyedInstances<K> {
+
+    private Map<K, Component.Instance> previous = new HashMap<>();
+    private Map<K, Component.Instance> current = new HashMap<>();
+    private final List<Component.Instance> duplicates = new ArrayList<>();
+
+    public Component.Instance get(K key, Supplier<Component.Instance> factory) {
+        Component.Instance instance = previous.remove(key);
+        if (instance == null) {
+            instance = factory.get();
+            instance.activate();
+        }
+        if (current.putIfAbsent(key, instance) != null) {
+            // the same key twice in one update, can't be reused
+            duplicates.add(instance);
+        }
+        return instance;
+    }
+
+    /**
+     * Deactivates all instances not requested since the last call.
+     */
+    public void finish() {
+        previous.values().forEach(Component.Instance::deactivate);
+        previous.clear();
+        Map<K, Component.Instance> map = previous;
+        previous = current;
+        current = map;
+        duplicates.forEach(Component.Instance::deactivate);
+        duplicates.clear();
+    }
+
+    public boolean isEmpty() {
+        return previous.isEmpty() && current.isEmpty();
+    }
+
+    /**
+     * Deactivates all instances.
+     */
+    public void clear() {
+        previous.values().forEach(Component.Instance::deactivate);
+        previous.clear();
+        current.values().forEach(Component.Instance::deactivate);
+        current.clear();
+        duplicates.forEach(Component.Instance::deactivate);
+        duplicates.clear();
+    }
+}
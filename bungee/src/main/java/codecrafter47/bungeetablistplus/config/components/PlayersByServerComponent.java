@@ -92,7 +92,7 @@ public class PlayersByServerComponent extends Component {
 
     public class Instance extends Component.Instance {
 
-        private List<Component.Instance> activeComponents = new ArrayList<>();
+        private Map<String, ServerComponents> activeComponents = new HashMap<>();
         private Map<String, List<Player>> playersByServer = new LinkedHashMap<>();
         private int preferredSize;
 
@@ -103,7 +103,7 @@ public class PlayersByServerComponent extends Component {
         @Override
         public void deactivate() {
             super.deactivate();
-            activeComponents.forEach(Component.Instance::deactivate);
+            activeComponents.values().forEach(ServerComponents::deactivate);
             activeComponents.clear();
         }
 
@@ -139,8 +139,6 @@ public class PlayersByServerComponent extends Component {
 
         @Override
         public void update2ndStep() {
-            activeComponents.forEach(Component.Instance::deactivate);
-            activeComponents.clear();
             super.update2ndStep();
             // figure out how much space each server gets
             int rows = size / context.get(Context.KEY_COLUMNS);
@@ -167,20 +165,21 @@ public class PlayersByServerComponent extends Component {
                     }
                 }
             } while (rows > 0 && change);
-            // create the components
+            // update the components, components of servers and players already visible in the last update are reused
+            Set<String> visibleServers = new HashSet<>();
             int pos = 0;
             for (int i = 0; i < servers.size() && pos < size; i++) {
                 String server = servers.get(i);
                 pos = ((pos + context.get(Context.KEY_COLUMNS) - 1) / context.get(Context.KEY_COLUMNS)) * context.get(Context.KEY_COLUMNS);
                 List<Player> players = playersByServer.get(server);
+                visibleServers.add(server);
+                ServerComponents serverComponents = activeComponents.computeIfAbsent(server, ServerComponents::new);
+                Context serverContext = serverComponents.context.put(Context.KEY_SERVER_PLAYER_COUNT, players.size());
                 // Header
-                Context serverContext = context.derived().put(Context.KEY_SERVER, server).put(Context.KEY_SERVER_PLAYER_COUNT, players.size());
-                Component.Instance header = serverHeader.toInstance(serverContext);
-                header.activate();
+                Component.Instance header = serverComponents.header;
                 header.update1stStep();
                 header.setPosition(row + (pos / context.get(Context.KEY_COLUMNS)), column, serverHeader.getSize());
                 header.update2ndStep();
-                activeComponents.add(header);
                 pos += serverHeader.getSize();
                 // Players
                 int playersMaxSize = playersByServer.get(server).size() * playerComponent.getSize();
@@ -190,25 +189,40 @@ public class PlayersByServerComponent extends Component {
                 int pos2 = 0;
                 for (j = 0; (allFit || pos2 + morePlayersComponent.getSize() < serverSize) && j < players.size(); j++) {
                     Player player = players.get(j);
-                    Component.Instance component = playerComponent.toInstance(serverContext.derived().put(Context.KEY_PLAYER, player));
-                    component.activate();
+                    Component.Instance component = serverComponents.players.get(player, () -> playerComponent.toInstance(serverContext.derived().put(Context.KEY_PLAYER, player)));
                     component.update1stStep();
                     component.setPosition(row + ((pos + pos2) / context.get(Context.KEY_COLUMNS)), column + ((pos + pos2) % context.get(Context.KEY_COLUMNS)), playerComponent.getSize());
                     component.update2ndStep();
-                    activeComponents.add(component);
                     pos2 += playerComponent.getSize();
                 }
+                serverComponents.players.finish();
                 if (!allFit) {
-                    Component.Instance component = morePlayersComponent.toInstance(serverContext.derived().put(Context.KEY_OTHER_PLAYERS_COUNT, players.size() - j));
-                    component.activate();
+                    if (serverComponents.morePlayers == null) {
+                        serverComponents.morePlayersContext = serverContext.derived();
+                        serverComponents.morePlayers = morePlayersComponent.toInstance(serverComponents.morePlayersContext);
+                        serverComponents.morePlayers.activate();
+                    }
+                    serverComponents.morePlayersContext.put(Context.KEY_OTHER_PLAYERS_COUNT, players.size() - j);
+                    Component.Instance component = serverComponents.morePlayers;
                     component.update1stStep();
                     component.setPosition(row + ((pos + pos2) / context.get(Context.KEY_COLUMNS)), column + ((pos + pos2) % context.get(Context.KEY_COLUMNS)), morePlayersComponent.getSize());
                     component.update2ndStep();
-                    activeComponents.add(component);
                     pos2 += morePlayersComponent.getSize();
+                } else if (serverComponents.morePlayers != null) {
+                    serverComponents.morePlayers.deactivate();
+                    serverComponents.morePlayers = null;
+                    serverComponents.morePlayersContext = null;
                 }
                 pos += pos2;
             }
+            // remove servers no longer visible
+            for (Iterator<ServerComponents> iterator = activeComponents.values().iterator(); iterator.hasNext(); ) {
+                ServerComponents serverComponents = iterator.next();
+                if (!visibleServers.contains(serverComponents.server)) {
+                    serverComponents.deactivate();
+                    iterator.remove();
+                }
+            }
         }
 
         @Override
@@ -230,5 +244,29 @@ public class PlayersByServerComponent extends Component {
         public boolean isBlockAligned() {
             return true;
         }
+
+        private class ServerComponents {
+            private final String server;
+            private final Context context;
+            private final Component.Instance header;
+            private final KeyedInstances<Player> players = new KeyedInstances<>();
+            private Component.Instance morePlayers = null;
+            private Context morePlayersContext = null;
+
+            private ServerComponents(String server) {
+                this.server = server;
+                this.context = Instance.this.context.derived().put(Context.KEY_SERVER, server);
+                this.header = serverHeader.toInstance(context);
+                this.header.activate();
+            }
+
+            private void deactivate() {
+                header.deactivate();
+                players.clear();
+                if (morePlayers != null) {
+                    morePlayers.deactivate();
+                }
+            }
+        }
     }
 }
@@ -75,7 +75,9 @@ public class PlayersComponent extends Component {
 
     public class Instance extends Component.Instance {
         private List<Player> players = Collections.emptyList();
-        private List<Component.Instance> activeComponents = new ArrayList<>();
+        private final KeyedInstances<Player> activeComponents = new KeyedInstances<>();
+        private Component.Instance morePlayers = null;
+        private Context morePlayersContext = null;
 
         protected Instance(Context context) {
             super(context);
@@ -84,42 +86,51 @@ public class PlayersComponent extends Component {
         @Override
         public void deactivate() {
             super.deactivate();
-            activeComponents.forEach(Component.Instance::deactivate);
             activeComponents.clear();
+            if (morePlayers != null) {
+                morePlayers.deactivate();
+                morePlayers = null;
+                morePlayersContext = null;
+            }
         }
 
         @Override
         public void update1stStep() {
             super.update1stStep();
-            players = context.get(Context.KEY_PLAYER_SETS).get(playerSet);
+            // copy, the player set may be shared with other tab lists
+            players = new ArrayList<>(context.get(Context.KEY_PLAYER_SETS).get(playerSet));
             playerOrder.sort(context, players);
         }
 
         @Override
         public void update2ndStep() {
-            activeComponents.forEach(Component.Instance::deactivate);
-            activeComponents.clear();
             super.update2ndStep();
             boolean allFit = super.size >= players.size() * playerComponent.getSize();
             int pos = 0;
             int i;
             for (i = 0; (allFit || pos + playerComponent.getSize() + morePlayersComponent.getSize() <= super.size) && i < players.size(); i++) {
                 Player player = players.get(i);
-                Component.Instance component = playerComponent.toInstance(context.derived().put(Context.KEY_PLAYER, player));
-                component.activate();
+                Component.Instance component = activeComponents.get(player, () -> playerComponent.toInstance(context.derived().put(Context.KEY_PLAYER, player)));
                 component.update1stStep();
                 component.setPosition(row + (pos / context.get(Context.KEY_COLUMNS)), column + (pos % context.get(Context.KEY_COLUMNS)), playerComponent.getSize());
                 component.update2ndStep();
-                activeComponents.add(component);
                 pos += playerComponent.getSize();
             }
+            activeComponents.finish();
             if (!allFit) {
-                Component.Instance component = morePlayersComponent.toInstance(context.derived().put(Context.KEY_OTHER_PLAYERS_COUNT, players.size() - i));
-                component.activate();
-                component.update1stStep();
-                component.setPosition(row + (pos / context.get(Context.KEY_COLUMNS)), column + (pos % context.get(Context.KEY_COLUMNS)), morePlayersComponent.getSize());
-                component.update2ndStep();
-                activeComponents.add(component);
+                if (morePlayers == null) {
+                    morePlayersContext = context.derived();
+                    morePlayers = morePlayersComponent.toInstance(morePlayersContext);
+                    morePlayers.activate();
+                }
+                morePlayersContext.put(Context.KEY_OTHER_PLAYERS_COUNT, players.size() - i);
+                morePlayers.update1stStep();
+                morePlayers.setPosition(row + (pos / context.get(Context.KEY_COLUMNS)), column + (pos % context.get(Context.KEY_COLUMNS)), morePlayersComponent.getSize());
+                morePlayers.update2ndStep();
+            } else if (morePlayers != null) {
+                morePlayers.deactivate();
+                morePlayers = null;
+                morePlayersContext = null;
             }
         }
 
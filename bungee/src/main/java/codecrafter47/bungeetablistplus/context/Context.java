@@ -25,7 +25,6 @@ import codecrafter47.bungeetablistplus.player.Player;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
-import java.util.Arrays;
 import java.util.Map;
 
 public class Context {
@@ -43,21 +42,28 @@ public class Context {
     public static final ContextKey<Map<String, CustomPlaceholder>> KEY_CUSTOM_PLACEHOLDERS = new ContextKey<>();
 
     // Parent
+    private final Context parent;
     private final Object[] elements;
 
     // Constructor
     public Context() {
+        parent = null;
         elements = new Object[nextId];
     }
 
     private Context(@Nonnull Context parent) {
-        elements = Arrays.copyOf(parent.elements, nextId);
+        this.parent = parent;
+        elements = new Object[nextId];
     }
 
     @SuppressWarnings("unchecked")
     @Nullable
     public <T> T get(@Nonnull ContextKey<T> key) {
-        return (T) elements[key.index];
+        Object element = elements[key.index];
+        if (element == null && parent != null) {
+            return parent.get(key);
+        }
+        return (T) element;
     }
 
     public <T> Context put(@Nonnull ContextKey<T> key, @Nonnull T element) {
@@ -65,6 +71,10 @@ public class Context {
         return this;
     }
 
+    /**
+     * Creates a child context. Values not put into the child are looked up in the parent, so later changes to the
+     * parent are visible in the child. This allows component instances to be kept across updates.
+     */
     public Context derived() {
         return new Context(this);
     }
@@ -0,0 +1,103 @@
+/*
+ * BungeeTabListPlus - a BungeeCord plugin to customize the tablist
+ *
+ * Copyright (C) 2014 - 2015 Florian Stober
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package codecrafter47.bungeetablistplus.context;
+
+import codecrafter47.bungeetablistplus.BungeeTabListPlus;
+import codecrafter47.bungeetablistplus.api.bungee.IPlayer;
+import codecrafter47.bungeetablistplus.config.PlayerSet;
+import codecrafter47.bungeetablistplus.config.PlayerVisibility;
+import codecrafter47.bungeetablistplus.player.IPlayerProvider;
+import codecrafter47.bungeetablistplus.player.Player;
+import codecrafter47.bungeetablistplus.tracking.DependencyTracker;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Caches the members of player sets whose filter does not depend on the viewer.
+ * <p>
+ * Such a set is the same for every viewer, so it is computed once and shared by all tab lists using it. A cached
+ * set is recomputed once anything it has read changes, see {@link DependencyTracker#isOutdated()}. Entries are
+ * recomputed under their own lock, so tab lists using different player sets do not wait for each other.
+ */
+public class SharedPlayerSets {
+
+    // weak keys use identity comparison, player sets are replaced on reload
+    private final ConcurrentMap<PlayerSet, Entry> entries = CacheBuilder.newBuilder().weakKeys().<PlayerSet, Entry>build().asMap();
+
+    /**
+     * Get the members of a player set with a viewer independent filter.
+     *
+     * @param playerSet           the player set
+     * @param canSeeHiddenPlayers whether the viewer may see hidden players
+     * @return an immutable list of the members of the player set
+     */
+    public List<Player> get(PlayerSet playerSet, boolean canSeeHiddenPlayers) {
+        Entry entry = entries.computeIfAbsent(playerSet, p -> new Entry());
+        if (!entry.tracker.isOutdated()) {
+            DependencyTracker.recordDependenciesOf(entry.tracker);
+        } else {
+            synchronized (entry) {
+                if (entry.tracker.isOutdated()) {
+                    entry.tracker.begin();
+                    try {
+                        entry.update(playerSet);
+                    } finally {
+                        entry.tracker.end();
+                    }
+                } else {
+                    DependencyTracker.recordDependenciesOf(entry.tracker);
+                }
+            }
+        }
+
+        PlayerVisibility hiddenPlayers = playerSet.getHiddenPlayers();
+        if (hiddenPlayers == PlayerVisibility.VISIBLE || (hiddenPlayers == PlayerVisibility.VISIBLE_TO_ADMINS && canSeeHiddenPlayers)) {
+            return entry.players;
+        } else {
+            return entry.visiblePlayers;
+        }
+    }
+
+    private static class Entry {
+        private final DependencyTracker tracker = new DependencyTracker();
+        private volatile ImmutableList<Player> players = ImmutableList.of();
+        private volatile ImmutableList<Player> visiblePlayers = ImmutableList.of();
+
+        private void update(PlayerSet playerSet) {
+            ImmutableList.Builder<Player> players = ImmutableList.builder();
+            ImmutableList.Builder<Player> visiblePlayers = ImmutableList.builder();
+            for (IPlayerProvider playerProvider : BungeeTabListPlus.getInstance().playerProviders) {
+                for (IPlayer p : playerProvider.getPlayers()) {
+                    Player player = (Player) p;
+                    if (playerSet.getFilter().evaluateBoolean(new Context().put(Context.KEY_PLAYER, player))) {
+                        players.add(player);
+                        if (!BungeeTabListPlus.isHidden(player)) {
+                            visiblePlayers.add(player);
+                        }
+                    }
+                }
+            }
+            this.players = players.build();
+            this.visiblePlayers = visiblePlayers.build();
+        }
+    }
+}
@@ -41,6 +41,7 @@ public class Expression {
             .build();
 
     private final Part root;
+    private final boolean viewerIndependent;
 
     public Expression(String expression) {
         ExpressionTokenizer tokenizer = new ExpressionTokenizer(expression);
@@ -49,6 +50,7 @@ public class Expression {
         while (null != (t = tokenizer.nextToken())) {
             tokens.add(t);
         }
+        Part root;
         try {
             root = parse(tokens);
         } catch (Exception ex) {
@@ -57,6 +59,8 @@ public class Expression {
         if (!tokens.isEmpty()) {
             throw new IllegalArgumentException("More closing than opening parenthesis in expression \"" + expression + "\"");
         }
+        this.root = root.simplify();
+        viewerIndependent = this.root.isViewerIndependent();
     }
 
     private Part parse(List<Token> tokens) {
@@ -145,7 +149,7 @@ public class Expression {
         } else if (token instanceof StringToken) {
             return new StringPart(((StringToken) token).getLiteral());
         } else if (token instanceof PlaceholderToken) {
-            return new PlaceholderPart(((PlaceholderToken) token).getPlaceholder());
+            return new PlaceholderPart(((PlaceholderToken) token).getPlaceholder(), ((PlaceholderToken) token).isViewerIndependent());
         } else if (token == Token.NEGATION) {
             return new NegatedPart(readPartToken(tokens));
         } else if (token == Token.OPENING_PARENTHESIS) {
@@ -163,8 +167,104 @@ public class Expression {
         return root.evaluate(context, resultType);
     }
 
+    public boolean evaluateBoolean(Context context) {
+        return root.evaluateBoolean(context);
+    }
+
+    public double evaluateNumber(Context context) {
+        return root.evaluateNumber(context);
+    }
+
+    public String evaluateString(Context context) {
+        return root.evaluateString(context);
+    }
+
+    /**
+     * Checks whether the result of this expression is independent of the viewer.
+     * Such expressions evaluate to the same result for all viewers and can be
+     * evaluated once for all of them.
+     *
+     * @return true if the expression does not reference the viewer
+     */
+    public boolean isViewerIndependent() {
+        return viewerIndependent;
+    }
+
+    private static boolean isViewerIndependent(List<Part> parts) {
+        for (Part part : parts) {
+            if (!part.isViewerIndependent()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static List<Part> simplify(List<Part> parts) {
+        List<Part> result = new ArrayList<>(parts.size());
+        for (Part part : parts) {
+            result.add(part.simplify());
+        }
+        return result;
+    }
+
+    private static boolean isConstant(List<Part> parts) {
+        for (Part part : parts) {
+            if (!(part instanceof LiteralPart)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static double asDouble(@Nonnull String text) {
+        // every number Double.parseDouble accepts contains a digit or is NaN or Infinity,
+        // this saves us from throwing an exception for most non-numeric strings
+        boolean mayBeNumber = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if ((c >= '0' && c <= '9') || c == 'N' || c == 'I') {
+                mayBeNumber = true;
+                break;
+            }
+        }
+        if (mayBeNumber) {
+            try {
+                return Double.parseDouble(text);
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        return text.length();
+    }
+
     private static abstract class Part {
-        public abstract <T> T evaluate(Context context, ExpressionResult<T> resultType);
+
+        @SuppressWarnings("unchecked")
+        public <T> T evaluate(Context context, ExpressionResult<T> resultType) {
+            if (resultType == ExpressionResult.STRING) {
+                return (T) evaluateString(context);
+            } else if (resultType == ExpressionResult.NUMBER) {
+                return (T) (Double) evaluateNumber(context);
+            } else if (resultType == ExpressionResult.BOOLEAN) {
+                return (T) (Boolean) evaluateBoolean(context);
+            } else {
+                throw new IllegalArgumentException("Unknown result type" + resultType);
+            }
+        }
+
+        public abstract String evaluateString(Context context);
+
+        public abstract double evaluateNumber(Context context);
+
+        public abstract boolean evaluateBoolean(Context context);
+
+        public abstract boolean isViewerIndependent();
+
+        /**
+         * Replaces sub expressions which do not contain any placeholders by their result.
+         *
+         * @return the simplified part
+         */
+        public abstract Part simplify();
     }
 
     private abstract static class LiteralPart extends Part {
@@ -181,16 +281,28 @@ public class Expression {
         }
 
         @Override
-        public <T> T evaluate(Context context, ExpressionResult<T> resultType) {
-            if (resultType == ExpressionResult.STRING) {
-                return (T) text;
-            } else if (resultType == ExpressionResult.NUMBER) {
-                return (T) (Double) doubleResult;
-            } else if (resultType == ExpressionResult.BOOLEAN) {
-                return (T) (Boolean) booleanResult;
-            } else {
-                throw new IllegalArgumentException("Unknown result type" + resultType);
-            }
+        public String evaluateString(Context context) {
+            return text;
+        }
+
+        @Override
+        public double evaluateNumber(Context context) {
+            return doubleResult;
+        }
+
+        @Override
+        public boolean evaluateBoolean(Context context) {
+            return booleanResult;
+        }
+
+        @Override
+        public boolean isViewerIndependent() {
+            return true;
+        }
+
+        @Override
+        public Part simplify() {
+            return this;
         }
     }
 
@@ -199,16 +311,6 @@ public class Expression {
         private StringPart(@Nonnull String text) {
             super(text, asDouble(text), Boolean.parseBoolean(text));
         }
-
-        private static double asDouble(@Nonnull String text) {
-            double v;
-            try {
-                v = Double.parseDouble(text);
-            } catch (NumberFormatException ex) {
-                v = text.length();
-            }
-            return v;
-        }
     }
 
     private static class NumberPart extends LiteralPart {
@@ -219,54 +321,77 @@ public class Expression {
     }
 
     private static class BooleanPart extends LiteralPart {
+        private static final BooleanPart TRUE = new BooleanPart(true);
+        private static final BooleanPart FALSE = new BooleanPart(false);
 
         private BooleanPart(boolean literal) {
             super(Boolean.toString(literal), literal ? 1 : 0, literal);
         }
+
+        private static BooleanPart of(boolean literal) {
+            return literal ? TRUE : FALSE;
+        }
     }
 
     private static class PlaceholderPart extends Part {
         private Placeholder placeholder;
+        private final boolean viewerIndependent;
 
-        public PlaceholderPart(Placeholder p) {
+        public PlaceholderPart(Placeholder p, boolean viewerIndependent) {
             this.placeholder = p;
+            this.viewerIndependent = viewerIndependent;
         }
 
         @Override
-        public <T> T evaluate(Context context, ExpressionResult<T> resultType) {
-            String result = placeholder.evaluate(context);
-            if (resultType == ExpressionResult.STRING) {
-                return (T) result;
-            } else if (resultType == ExpressionResult.NUMBER) {
-                try {
-                    return (T) (Double) Double.parseDouble(result);
-                } catch (NumberFormatException ex) {
-                    double length = result.length();
-                    return (T) (Double) length;
-                }
-            } else if (resultType == ExpressionResult.BOOLEAN) {
-                return (T) (Boolean) Boolean.parseBoolean(result);
-            } else {
-                throw new IllegalArgumentException("Unknown result type" + resultType);
-            }
+        public boolean isViewerIndependent() {
+            return viewerIndependent;
+        }
+
+        @Override
+        public Part simplify() {
+            return this;
+        }
+
+        @Override
+        public String evaluateString(Context context) {
+            return placeholder.evaluate(context);
+        }
+
+        @Override
+        public double evaluateNumber(Context context) {
+            return asDouble(placeholder.evaluate(context));
+        }
+
+        @Override
+        public boolean evaluateBoolean(Context context) {
+            return Boolean.parseBoolean(placeholder.evaluate(context));
         }
     }
 
     private static abstract class LogicPart extends Part {
+
         @Override
-        public <T> T evaluate(Context context, ExpressionResult<T> resultType) {
-            if (resultType == ExpressionResult.STRING) {
-                return (T) Boolean.toString(evaluate(context));
-            } else if (resultType == ExpressionResult.NUMBER) {
-                return (T) (Double) (evaluate(context) ? 1.0 : 0.0);
-            } else if (resultType == ExpressionResult.BOOLEAN) {
-                return (T) (Boolean) evaluate(context);
-            } else {
-                throw new IllegalArgumentException("Unknown result type" + resultType);
+        public String evaluateString(Context context) {
+            return Boolean.toString(evaluateBoolean(context));
+        }
+
+        @Override
+        public double evaluateNumber(Context context) {
+            return evaluateBoolean(context) ? 1.0 : 0.0;
+        }
+
+        @Override
+        public Part simplify() {
+            Part part = simplifyOperands();
+            if (part instanceof LogicPart && ((LogicPart) part).isConstant()) {
+                return BooleanPart.of(part.evaluateBoolean(null));
             }
+            return part;
         }
 
-        protected abstract boolean evaluate(Context context);
+        protected abstract Part simplifyOperands();
+
+        protected abstract boolean isConstant();
     }
 
     private static class NegatedPart extends LogicPart {
@@ -277,164 +402,294 @@ public class Expression {
         }
 
         @Override
-        protected boolean evaluate(Context context) {
-            return !part.evaluate(context, ExpressionResult.BOOLEAN);
+        public boolean isViewerIndependent() {
+            return part.isViewerIndependent();
+        }
+
+        @Override
+        protected Part simplifyOperands() {
+            return new NegatedPart(part.simplify());
+        }
+
+        @Override
+        protected boolean isConstant() {
+            return part instanceof LiteralPart;
+        }
+
+        @Override
+        public boolean evaluateBoolean(Context context) {
+            return !part.evaluateBoolean(context);
         }
     }
 
     private static class AndPart extends LogicPart {
-        private final List<Part> parts;
+        private final Part[] parts;
 
         private AndPart(List<Part> parts) {
-            this.parts = parts;
+            this.parts = parts.toArray(new Part[parts.size()]);
         }
 
         @Override
-        protected boolean evaluate(Context context) {
-            boolean res = true;
-            for (int i = 0; res && i < parts.size(); i++) {
-                Part part = parts.get(i);
-                res &= part.evaluate(context, ExpressionResult.BOOLEAN);
+        public boolean isViewerIndependent() {
+            return Expression.isViewerIndependent(Arrays.asList(parts));
+        }
+
+        @Override
+        protected Part simplifyOperands() {
+            List<Part> remaining = new ArrayList<>(parts.length);
+            for (Part part : simplify(Arrays.asList(parts))) {
+                if (part instanceof LiteralPart) {
+                    if (!part.evaluateBoolean(null)) {
+                        return BooleanPart.FALSE;
+                    }
+                } else {
+                    remaining.add(part);
+                }
             }
-            return res;
+            if (remaining.isEmpty()) {
+                return BooleanPart.TRUE;
+            }
+            return new AndPart(remaining);
+        }
+
+        @Override
+        protected boolean isConstant() {
+            return Expression.isConstant(Arrays.asList(parts));
+        }
+
+        @Override
+        public boolean evaluateBoolean(Context context) {
+            for (Part part : parts) {
+                if (!part.evaluateBoolean(context)) {
+                    return false;
+                }
+            }
+            return true;
         }
     }
 
     private static class OrPart extends LogicPart {
-        private final List<Part> parts;
+        private final Part[] parts;
 
         private OrPart(List<Part> parts) {
-            this.parts = parts;
+            this.parts = parts.toArray(new Part[parts.size()]);
         }
 
         @Override
-        protected boolean evaluate(Context context) {
-            boolean res = false;
-            for (int i = 0; !res && i < parts.size(); i++) {
-                Part part = parts.get(i);
-                res |= part.evaluate(context, ExpressionResult.BOOLEAN);
+        public boolean isViewerIndependent() {
+            return Expression.isViewerIndependent(Arrays.asList(parts));
+        }
+
+        @Override
+        protected Part simplifyOperands() {
+            List<Part> remaining = new ArrayList<>(parts.length);
+            for (Part part : simplify(Arrays.asList(parts))) {
+                if (part instanceof LiteralPart) {
+                    if (part.evaluateBoolean(null)) {
+                        return BooleanPart.TRUE;
+                    }
+                } else {
+                    remaining.add(part);
+                }
+            }
+            if (remaining.isEmpty()) {
+                return BooleanPart.FALSE;
             }
-            return res;
+            return new OrPart(remaining);
+        }
+
+        @Override
+        protected boolean isConstant() {
+            return Expression.isConstant(Arrays.asList(parts));
+        }
+
+        @Override
+        public boolean evaluateBoolean(Context context) {
+            for (Part part : parts) {
+                if (part.evaluateBoolean(context)) {
+                    return true;
+                }
+            }
+            return false;
         }
     }
 
-    private static class EqualPart extends LogicPart {
-        private final Part a;
-        private final Part b;
+    private static abstract class BinaryOperatorPart extends LogicPart {
+        protected final Part a;
+        protected final Part b;
 
-        private EqualPart(Part a, Part b) {
+        private BinaryOperatorPart(Part a, Part b) {
             this.a = a;
             this.b = b;
         }
 
         @Override
-        protected boolean evaluate(Context context) {
-            return Objects.equals(a.evaluate(context, ExpressionResult.STRING), b.evaluate(context, ExpressionResult.STRING));
+        public boolean isViewerIndependent() {
+            return a.isViewerIndependent() && b.isViewerIndependent();
+        }
+
+        @Override
+        protected Part simplifyOperands() {
+            return create(a.simplify(), b.simplify());
+        }
+
+        @Override
+        protected boolean isConstant() {
+            return a instanceof LiteralPart && b instanceof LiteralPart;
+        }
+
+        protected abstract BinaryOperatorPart create(Part a, Part b);
+    }
+
+    private static class EqualPart extends BinaryOperatorPart {
+
+        private EqualPart(Part a, Part b) {
+            super(a, b);
+        }
+
+        @Override
+        protected BinaryOperatorPart create(Part a, Part b) {
+            return new EqualPart(a, b);
+        }
+
+        @Override
+        public boolean evaluateBoolean(Context context) {
+            return Objects.equals(a.evaluateString(context), b.evaluateString(context));
         }
     }
 
-    private static class NotEqualPart extends LogicPart {
-        private final Part a;
-        private final Part b;
+    private static class NotEqualPart extends BinaryOperatorPart {
 
         private NotEqualPart(Part a, Part b) {
-            this.a = a;
-            this.b = b;
+            super(a, b);
         }
 
         @Override
-        protected boolean evaluate(Context context) {
-            return !Objects.equals(a.evaluate(context, ExpressionResult.STRING), b.evaluate(context, ExpressionResult.STRING));
+        protected BinaryOperatorPart create(Part a, Part b) {
+            return new NotEqualPart(a, b);
+        }
+
+        @Override
+        public boolean evaluateBoolean(Context context) {
+            return !Objects.equals(a.evaluateString(context), b.evaluateString(context));
         }
     }
 
-    private static class GreaterThanPart extends LogicPart {
-        private final Part a;
-        private final Part b;
+    private static class GreaterThanPart extends BinaryOperatorPart {
 
         private GreaterThanPart(Part a, Part b) {
-            this.a = a;
-            this.b = b;
+            super(a, b);
         }
 
         @Override
-        protected boolean evaluate(Context context) {
-            return a.evaluate(context, ExpressionResult.NUMBER) > b.evaluate(context, ExpressionResult.NUMBER);
+        protected BinaryOperatorPart create(Part a, Part b) {
+            return new GreaterThanPart(a, b);
+        }
+
+        @Override
+        public boolean evaluateBoolean(Context context) {
+            return a.evaluateNumber(context) > b.evaluateNumber(context);
         }
     }
 
-    private static class LesserThanPart extends LogicPart {
-        private final Part a;
-        private final Part b;
+    private static class LesserThanPart extends BinaryOperatorPart {
 
         private LesserThanPart(Part a, Part b) {
-            this.a = a;
-            this.b = b;
+            super(a, b);
         }
 
         @Override
-        protected boolean evaluate(Context context) {
-            return a.evaluate(context, ExpressionResult.NUMBER) < b.evaluate(context, ExpressionResult.NUMBER);
+        protected BinaryOperatorPart create(Part a, Part b) {
+            return new LesserThanPart(a, b);
+        }
+
+        @Override
+        public boolean evaluateBoolean(Context context) {
+            return a.evaluateNumber(context) < b.evaluateNumber(context);
         }
     }
 
-    private static class GreaterOrEqualThanPart extends LogicPart {
-        private final Part a;
-        private final Part b;
+    private static class GreaterOrEqualThanPart extends BinaryOperatorPart {
 
         private GreaterOrEqualThanPart(Part a, Part b) {
-            this.a = a;
-            this.b = b;
+            super(a, b);
         }
 
         @Override
-        protected boolean evaluate(Context context) {
-            return a.evaluate(context, ExpressionResult.NUMBER) >= b.evaluate(context, ExpressionResult.NUMBER);
+        protected BinaryOperatorPart create(Part a, Part b) {
+            return new GreaterOrEqualThanPart(a, b);
+        }
+
+        @Override
+        public boolean evaluateBoolean(Context context) {
+            return a.evaluateNumber(context) >= b.evaluateNumber(context);
         }
     }
 
-    private static class LesserOrEqualThanPart extends LogicPart {
-        private final Part a;
-        private final Part b;
+    private static class LesserOrEqualThanPart extends BinaryOperatorPart {
 
         private LesserOrEqualThanPart(Part a, Part b) {
-            this.a = a;
-            this.b = b;
+            super(a, b);
         }
 
         @Override
-        protected boolean evaluate(Context context) {
-            return a.evaluate(context, ExpressionResult.NUMBER) <= b.evaluate(context, ExpressionResult.NUMBER);
+        protected BinaryOperatorPart create(Part a, Part b) {
+            return new LesserOrEqualThanPart(a, b);
+        }
+
+        @Override
+        public boolean evaluateBoolean(Context context) {
+            return a.evaluateNumber(context) <= b.evaluateNumber(context);
         }
     }
 
     private static class ConcatStringPart extends Part {
-        private final List<Part> parts;
+        private final Part[] parts;
 
         private ConcatStringPart(List<Part> parts) {
-            this.parts = parts;
+            this.parts = parts.toArray(new Part[parts.size()]);
         }
 
         @Override
-        public <T> T evaluate(Context context, ExpressionResult<T> resultType) {
-            String result = "";
-            for (Part part : parts) {
-                result += part.evaluate(context, ExpressionResult.STRING);
-            }
-            if (resultType == ExpressionResult.STRING) {
-                return (T) result;
-            } else if (resultType == ExpressionResult.NUMBER) {
-                try {
-                    return (T) (Double) Double.parseDouble(result);
-                } catch (NumberFormatException ex) {
-                    double length = result.length();
-                    return (T) (Double) length;
+        public boolean isViewerIndependent() {
+            return Expression.isViewerIndependent(Arrays.asList(parts));
+        }
+
+        @Override
+        public Part simplify() {
+            List<Part> simplified = new ArrayList<>(parts.length);
+            for (Part part : simplify(Arrays.asList(parts))) {
+                // merge adjacent literals
+                int last = simplified.size() - 1;
+                if (part instanceof LiteralPart && last >= 0 && simplified.get(last) instanceof LiteralPart) {
+                    simplified.set(last, new StringPart(simplified.get(last).evaluateString(null) + part.evaluateString(null)));
+                } else {
+                    simplified.add(part);
                 }
-            } else if (resultType == ExpressionResult.BOOLEAN) {
-                return (T) (Boolean) Boolean.parseBoolean(result);
-            } else {
-                throw new IllegalArgumentException("Unknown result type" + resultType);
             }
+            if (simplified.size() == 1 && simplified.get(0) instanceof LiteralPart) {
+                return simplified.get(0) instanceof StringPart ? simplified.get(0) : new StringPart(simplified.get(0).evaluateString(null));
+            }
+            return new ConcatStringPart(simplified);
+        }
+
+        @Override
+        public String evaluateString(Context context) {
+            StringBuilder result = new StringBuilder();
+            for (Part part : parts) {
+                result.append(part.evaluateString(context));
+            }
+            return result.toString();
+        }
+
+        @Override
+        public double evaluateNumber(Context context) {
+            return asDouble(evaluateString(context));
+        }
+
+        @Override
+        public boolean evaluateBoolean(Context context) {
+            return Boolean.parseBoolean(evaluateString(context));
         }
     }
 }
@@ -28,10 +28,13 @@ public class PlaceholderToken extends Token {
     @Nonnull
     @NonNull
     private final Placeholder placeholder;
+    private final boolean viewerIndependent;
 
     public PlaceholderToken(@Nonnull @NonNull String value) {
         super(value);
-        this.placeholder = Placeholder.of(value.substring(2, value.length() - 1));
+        String s = value.substring(2, value.length() - 1);
+        this.placeholder = Placeholder.of(s);
+        this.viewerIndependent = Placeholder.isViewerIndependent(s);
     }
 
     @Nonnull
@@ -39,4 +42,8 @@ public class PlaceholderToken extends Token {
     public Placeholder getPlaceholder() {
         return placeholder;
     }
+
+    public boolean isViewerIndependent() {
+        return viewerIndependent;
+    }
 }
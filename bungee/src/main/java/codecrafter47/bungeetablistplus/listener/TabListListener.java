@@ -21,6 +21,7 @@ package codecrafter47.bungeetablistplus.listener;
 import codecrafter47.bungeetablistplus.BungeeTabListPlus;
 import codecrafter47.bungeetablistplus.managers.ConnectedPlayerManager;
 import codecrafter47.bungeetablistplus.player.ConnectedPlayer;
+import codecrafter47.bungeetablistplus.tracking.DependencyTracker;
 import codecrafter47.bungeetablistplus.util.ReflectionUtil;
 import net.md_5.bungee.UserConnection;
 import net.md_5.bungee.api.ChatColor;
@@ -53,6 +54,7 @@ public class TabListListener implements Listener {
             }
             ConnectedPlayer connectedPlayer = new ConnectedPlayer(e.getPlayer());
             manager.onPlayerConnected(connectedPlayer);
+            DependencyTracker.onPlayersChanged();
 
             if (plugin.getConfig().updateOnPlayerJoinLeave) {
                 plugin.resendTabLists();
@@ -71,6 +73,7 @@ public class TabListListener implements Listener {
             if (connectedPlayer != null && connectedPlayer.getPlayer() == e.getPlayer()) {
                 manager.onPlayerDisconnected(connectedPlayer);
             }
+            DependencyTracker.onPlayersChanged();
 
             // hack to revert changes from https://github.com/SpigotMC/BungeeCord/commit/830f18a35725f637d623594eaaad50b566376e59
             Server server = e.getPlayer().getServer();
@@ -85,6 +88,7 @@ public class TabListListener implements Listener {
 
     @EventHandler
     public void onServerSwitch(ServerSwitchEvent e) {
+        DependencyTracker.onPlayersChanged();
         plugin.updateTabListForPlayer(e.getPlayer());
         if (plugin.getConfig().updateOnServerChange) {
             plugin.resendTabLists();
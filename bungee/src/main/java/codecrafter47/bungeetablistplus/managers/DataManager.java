@@ -25,25 +25,65 @@ import codecrafter47.bungeetablistplus.data.DataCache;
 import codecrafter47.bungeetablistplus.data.DataKey;
 import codecrafter47.bungeetablistplus.data.DataKeys;
 import codecrafter47.bungeetablistplus.player.ConnectedPlayer;
+import codecrafter47.bungeetablistplus.tracking.DependencyTracker;
 import net.md_5.bungee.UserConnection;
 import net.md_5.bungee.api.ProxyServer;
 import net.md_5.bungee.api.connection.ProxiedPlayer;
 import net.md_5.bungee.api.connection.Server;
 import net.md_5.bungee.api.plugin.Listener;
+import net.md_5.bungee.api.scheduler.ScheduledTask;
 
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 
 public class DataManager extends AbstractDataAccess<ProxiedPlayer> implements Listener {
     private final BungeeTabListPlus bungeeTabListPlus;
     private final PermissionManager permissionManager;
+    private ScheduledTask pingUpdateTask;
 
     public DataManager(BungeeTabListPlus bungeeTabListPlus, PermissionManager permissionManager) {
         this.bungeeTabListPlus = bungeeTabListPlus;
         this.permissionManager = permissionManager;
         init();
         ProxyServer.getInstance().getScheduler().schedule(bungeeTabListPlus.getPlugin(), this::updateData, 1, 1, TimeUnit.SECONDS);
+        restartPingUpdateTask();
+    }
+
+    /**
+     * Pings change all the time, they are polled every pingUpdateInterval seconds and tab lists
+     * showing them are marked dirty if any has changed. Needs to be called again if the config
+     * has been reloaded.
+     */
+    public void restartPingUpdateTask() {
+        if (pingUpdateTask != null) {
+            pingUpdateTask.cancel();
+        }
+        double updateInterval = bungeeTabListPlus.getConfig().pingUpdateInterval;
+        if (updateInterval <= 0) {
+            updateInterval = bungeeTabListPlus.getConfig().tablistUpdateInterval;
+        }
+        if (updateInterval <= 0 || updateInterval > 2) {
+            // same as the fallback of the refresh thread
+            updateInterval = 2;
+        }
+        try {
+            pingUpdateTask = ProxyServer.getInstance().getScheduler().schedule(bungeeTabListPlus.getPlugin(), this::updatePings,
+                    (long) (updateInterval * 1000), (long) (updateInterval * 1000), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException ignored) {
+            // this occurs on proxy shutdown -> we can safely ignore it
+        }
+    }
+
+    private void updatePings() {
+        boolean pingsChanged = false;
+        for (ConnectedPlayer player : bungeeTabListPlus.getConnectedPlayerManager().getPlayers()) {
+            pingsChanged |= player.updatePing();
+        }
+        if (pingsChanged) {
+            DependencyTracker.onPingsChanged();
+        }
     }
 
     private void init() {
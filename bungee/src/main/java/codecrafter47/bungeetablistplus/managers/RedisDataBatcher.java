@@ -0,0 +1,163 @@
+/*
+ * BungeeTabListPlus - a BungeeCord plugin to customize the tablist
+ *
+ * Copyright (C) 2014 - 2015 Florian Stober
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package codecrafter47.bungeetablistplus.managers;
+
+import codecrafter47.bungeetablistplus.common.BridgeProtocol;
+import codecrafter47.bungeetablistplus.data.DataKey;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Collects the data published to the other proxies and sends it in batches.
+ * <p>
+ * All changes made during one flush window are coalesced per player and key, so
+ * only the latest value of each key is published. A frame starts with the
+ * protocol version and the fingerprint of the key table, followed by the number
+ * of players and the uuid and delta of each player, encoded using
+ * {@link BridgeProtocol}. Data requests use the same format with null values.
+ */
+public class RedisDataBatcher {
+
+    /**
+     * Frames are closed once they exceed this size, so a single message never
+     * blocks the pub/sub connection for long.
+     */
+    static final int MAX_FRAME_SIZE = 60000;
+
+    private final Consumer<String> publisher;
+    private final Consumer<Runnable> flushScheduler;
+
+    private Map<UUID, Map<DataKey<?>, Object>> pending = new LinkedHashMap<>();
+    private boolean flushScheduled = false;
+
+    /**
+     * @param publisher      publishes an encoded frame
+     * @param flushScheduler runs the given task once the flush window has passed
+     */
+    public RedisDataBatcher(Consumer<String> publisher, Consumer<Runnable> flushScheduler) {
+        this.publisher = publisher;
+        this.flushScheduler = flushScheduler;
+    }
+
+    public void add(UUID uuid, DataKey<?> key, Object value) {
+        boolean scheduleFlush;
+        synchronized (this) {
+            pending.computeIfAbsent(uuid, id -> new HashMap<>()).put(key, value);
+            scheduleFlush = !flushScheduled;
+            flushScheduled = true;
+        }
+        if (scheduleFlush) {
+            flushScheduler.accept(this::flush);
+        }
+    }
+
+    /**
+     * Publish everything collected since the last flush.
+     */
+    public void flush() {
+        Map<UUID, Map<DataKey<?>, Object>> batch;
+        synchronized (this) {
+            batch = pending;
+            pending = new LinkedHashMap<>();
+            flushScheduled = false;
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            for (String frame : encode(batch)) {
+                publisher.accept(frame);
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    static List<String> encode(Map<UUID, Map<DataKey<?>, Object>> batch) throws IOException {
+        List<String> frames = new ArrayList<>();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(body);
+        int count = 0;
+        for (Map.Entry<UUID, Map<DataKey<?>, Object>> entry : batch.entrySet()) {
+            BridgeProtocol.writeUUID(out, entry.getKey());
+            BridgeProtocol.writeDelta(out, entry.getValue());
+            count++;
+            if (body.size() >= MAX_FRAME_SIZE) {
+                frames.add(encodeFrame(count, body));
+                body.reset();
+                count = 0;
+            }
+        }
+        if (count > 0) {
+            frames.add(encodeFrame(count, body));
+        }
+        return frames;
+    }
+
+    private static String encodeFrame(int count, ByteArrayOutputStream body) throws IOException {
+        ByteArrayOutputStream frame = new ByteArrayOutputStream(body.size() + 10);
+        DataOutputStream out = new DataOutputStream(frame);
+        out.writeByte(BridgeProtocol.VERSION);
+        out.writeInt(BridgeProtocol.KEY_TABLE_FINGERPRINT);
+        BridgeProtocol.writeVarInt(out, count);
+        body.writeTo(out);
+        out.close();
+        // RedisBungee only publishes strings
+        return Base64.getEncoder().encodeToString(frame.toByteArray());
+    }
+
+    /**
+     * Decode a frame.
+     *
+     * @param message the frame
+     * @return the delta of each player in the frame
+     * @throws StreamCorruptedException if the frame has been sent by a proxy running a different
+     *                                  version of BungeeTabListPlus, or is corrupt
+     */
+    public static Map<UUID, Map<DataKey<?>, Object>> decode(String message) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getDecoder().decode(message)));
+        int version = in.readUnsignedByte();
+        int fingerprint = in.readInt();
+        if (version != BridgeProtocol.VERSION || fingerprint != BridgeProtocol.KEY_TABLE_FINGERPRINT) {
+            throw new StreamCorruptedException("Incompatible protocol version " + version);
+        }
+        int count = BridgeProtocol.readLength(in);
+        Map<UUID, Map<DataKey<?>, Object>> batch = new LinkedHashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            UUID uuid = BridgeProtocol.readUUID(in);
+            batch.put(uuid, Collections.unmodifiableMap(BridgeProtocol.readDelta(in)));
+        }
+        return Collections.unmodifiableMap(batch);
+    }
+}
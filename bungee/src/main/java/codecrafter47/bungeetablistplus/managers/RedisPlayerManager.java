@@ -24,157 +24,321 @@ import codecrafter47.bungeetablistplus.data.DataKey;
 import codecrafter47.bungeetablistplus.player.ConnectedPlayer;
 import codecrafter47.bungeetablistplus.player.IPlayerProvider;
 import codecrafter47.bungeetablistplus.player.RedisPlayer;
+import codecrafter47.bungeetablistplus.tracking.DependencyTracker;
 import com.imaginarycode.minecraft.redisbungee.RedisBungee;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.imaginarycode.minecraft.redisbungee.events.PlayerChangedServerNetworkEvent;
+import com.imaginarycode.minecraft.redisbungee.events.PlayerJoinedNetworkEvent;
+import com.imaginarycode.minecraft.redisbungee.events.PlayerLeftNetworkEvent;
 import com.imaginarycode.minecraft.redisbungee.events.PubSubMessageEvent;
 import net.md_5.bungee.api.ProxyServer;
+import net.md_5.bungee.api.event.PostLoginEvent;
 import net.md_5.bungee.api.plugin.Listener;
 import net.md_5.bungee.event.EventHandler;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.StreamCorruptedException;
 import java.util.Base64;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Iterator;
-import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 import java.util.logging.Level;
-import java.util.stream.Collectors;
 
 
 public class RedisPlayerManager implements IPlayerProvider, Listener {
 
-    private static String CHANNEL_REQUEST_DATA = "btlp-data-request";
-    private static String CHANNEL_DATA = "btlp-data";
+    // used by older versions, still answered so data keeps flowing while the network is updated
+    private static final String CHANNEL_REQUEST_DATA = "btlp-data-request";
+    private static final String CHANNEL_DATA = "btlp-data";
+    private static final String CHANNEL_REQUEST_DATA_BATCH = "btlp-data-request-batch";
+    private static final String CHANNEL_DATA_BATCH = "btlp-data-batch";
 
-    private List<RedisPlayer> playerList = Collections.emptyList();
-    private Map<UUID, RedisPlayer> byUUID = new ConcurrentHashMap<>();
+    private static final long FLUSH_WINDOW_MILLIS = 50;
+    private static final long RECONCILE_INTERVAL_SECONDS = 30;
+
+    // all players on other proxies
+    private final Map<UUID, RedisPlayer> byUUID = new ConcurrentHashMap<>();
+    // the subset of the above whose name is known, these are visible in the tab list
+    private final Set<RedisPlayer> players = ConcurrentHashMap.newKeySet();
+    private final Collection<RedisPlayer> playersView = Collections.unmodifiableSet(players);
+    private final Cache<UUID, String> nameCache = CacheBuilder.newBuilder().expireAfterAccess(1, TimeUnit.HOURS).build();
+    private final Queue<RedisPlayer> pendingNameLookups = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean nameLookupScheduled = new AtomicBoolean(false);
     private final ConnectedPlayerManager connectedPlayerManager;
+    private final RedisDataBatcher requestBatcher = new RedisDataBatcher(message -> publish(CHANNEL_REQUEST_DATA_BATCH, message), RedisPlayerManager::scheduleFlush);
+    private final RedisDataBatcher dataBatcher = new RedisDataBatcher(message -> publish(CHANNEL_DATA_BATCH, message), RedisPlayerManager::scheduleFlush);
+    private boolean incompatibleVersionWarningShown = false;
 
     public RedisPlayerManager(ConnectedPlayerManager connectedPlayerManager) {
         this.connectedPlayerManager = connectedPlayerManager;
-        RedisBungee.getApi().registerPubSubChannels(CHANNEL_REQUEST_DATA, CHANNEL_DATA);
-        ProxyServer.getInstance().getScheduler().schedule(BungeeTabListPlus.getInstance().getPlugin(), this::updatePlayers, 1, 1, TimeUnit.SECONDS);
+        RedisBungee.getApi().registerPubSubChannels(CHANNEL_REQUEST_DATA, CHANNEL_DATA, CHANNEL_REQUEST_DATA_BATCH, CHANNEL_DATA_BATCH);
+        ProxyServer.getInstance().getScheduler().schedule(BungeeTabListPlus.getInstance().getPlugin(), this::reconcilePlayers, 0, RECONCILE_INTERVAL_SECONDS, TimeUnit.SECONDS);
         ProxyServer.getInstance().getPluginManager().registerListener(BungeeTabListPlus.getInstance().getPlugin(), this);
     }
 
     @Override
     public Collection<RedisPlayer> getPlayers() {
-        return playerList;
+        return playersView;
+    }
+
+    @EventHandler
+    public void onPlayerJoinedNetwork(PlayerJoinedNetworkEvent event) {
+        addPlayer(event.getUuid());
+    }
+
+    @EventHandler
+    public void onPlayerLeftNetwork(PlayerLeftNetworkEvent event) {
+        removePlayer(event.getUuid());
+    }
+
+    @EventHandler
+    public void onPlayerChangedServer(PlayerChangedServerNetworkEvent event) {
+        RedisPlayer player = byUUID.get(event.getUuid());
+        if (player != null && player.setServer(ProxyServer.getInstance().getServerInfo(event.getServer()))) {
+            DependencyTracker.onPlayersChanged();
+        }
+    }
+
+    @EventHandler
+    public void onPostLogin(PostLoginEvent event) {
+        // the player is now connected to this proxy and handled by the ConnectedPlayerManager
+        removePlayer(event.getPlayer().getUniqueId());
     }
 
     @EventHandler
-    @SuppressWarnings("unchecked")
     public void onRedisMessage(PubSubMessageEvent event) {
-        if (event.getChannel().equals(CHANNEL_REQUEST_DATA)) {
-            try {
-                ByteArrayInputStream inputStream = new ByteArrayInputStream(Base64.getDecoder().decode(event.getMessage()));
-                ObjectInputStream objectInputStream = new ObjectInputStream(inputStream);
-                UUID uuid = (UUID) objectInputStream.readObject();
-                DataKey<Object> dataKey = (DataKey<Object>) objectInputStream.readObject();
-                objectInputStream.close();
-
-                ConnectedPlayer player = connectedPlayerManager.getPlayerIfPresent(uuid);
-                if (player != null) {
-                    player.registerDataChangeListener(dataKey, new DataChangeListener(uuid, dataKey));
-                    updateData(uuid, dataKey, player.get(dataKey).orElse(null));
+        try {
+            switch (event.getChannel()) {
+                case CHANNEL_REQUEST_DATA_BATCH:
+                    onDataRequest(RedisDataBatcher.decode(event.getMessage()), false);
+                    break;
+                case CHANNEL_DATA_BATCH:
+                    onData(RedisDataBatcher.decode(event.getMessage()));
+                    break;
+                case CHANNEL_REQUEST_DATA:
+                    onDataRequest(readLegacyMessage(event.getMessage(), false), true);
+                    break;
+                case CHANNEL_DATA:
+                    onData(readLegacyMessage(event.getMessage(), true));
+                    break;
+            }
+        } catch (StreamCorruptedException ex) {
+            if (!incompatibleVersionWarningShown) {
+                incompatibleVersionWarningShown = true;
+                BungeeTabListPlus.getInstance().getLogger().warning("Another BungeeCord instance runs a different version of BungeeTabListPlus. All instances need to be updated to the same version.");
+            }
+        } catch (Throwable th) {
+            BungeeTabListPlus.getInstance().getLogger().log(Level.SEVERE, "Failed to process data from BungeeTabListPlus running on another BungeeCord instance", th);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void onDataRequest(Map<UUID, Map<DataKey<?>, Object>> request, boolean legacy) {
+        for (Map.Entry<UUID, Map<DataKey<?>, Object>> entry : request.entrySet()) {
+            UUID uuid = entry.getKey();
+            ConnectedPlayer player = connectedPlayerManager.getPlayerIfPresent(uuid);
+            if (player != null) {
+                for (DataKey<?> key : entry.getValue().keySet()) {
+                    DataKey<Object> dataKey = (DataKey<Object>) key;
+                    player.registerDataChangeListener(dataKey, new DataChangeListener(uuid, dataKey, legacy));
+                    Object value = player.get(dataKey).orElse(null);
+                    if (legacy) {
+                        updateDataLegacy(uuid, dataKey, value);
+                    } else {
+                        updateData(uuid, dataKey, value);
+                    }
                 }
-            } catch (Throwable th) {
-                BungeeTabListPlus.getInstance().getLogger().log(Level.SEVERE, "Failed to process data from BungeeTabListPlus running on another BungeeCord instance", th);
             }
-        } else if (event.getChannel().equals(CHANNEL_DATA)) {
-            try {
-                ByteArrayInputStream inputStream = new ByteArrayInputStream(Base64.getDecoder().decode(event.getMessage()));
-                ObjectInputStream objectInputStream = new ObjectInputStream(inputStream);
-                UUID uuid = (UUID) objectInputStream.readObject();
-                DataKey<Object> dataKey = (DataKey<Object>) objectInputStream.readObject();
-                Object value = objectInputStream.readObject();
-                objectInputStream.close();
-
-                RedisPlayer player = byUUID.get(uuid);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void onData(Map<UUID, Map<DataKey<?>, Object>> data) {
+        // decoded on the pub/sub thread, only applied in the main thread
+        BungeeTabListPlus.getInstance().runInMainThread(() -> {
+            for (Map.Entry<UUID, Map<DataKey<?>, Object>> entry : data.entrySet()) {
+                RedisPlayer player = byUUID.get(entry.getKey());
                 if (player != null) {
-                    BungeeTabListPlus.getInstance().runInMainThread(() -> player.getData().updateValue(dataKey, value));
+                    for (Map.Entry<DataKey<?>, Object> e : entry.getValue().entrySet()) {
+                        player.getData().updateValue((DataKey<Object>) e.getKey(), e.getValue());
+                    }
                 }
-            } catch (Throwable th) {
-                BungeeTabListPlus.getInstance().getLogger().log(Level.SEVERE, "Failed to process data from BungeeTabListPlus running on another BungeeCord instance", th);
             }
+        });
+    }
+
+    /**
+     * Read a message sent by an older version of BungeeTabListPlus.
+     */
+    private static Map<UUID, Map<DataKey<?>, Object>> readLegacyMessage(String message, boolean hasValue) throws IOException, ClassNotFoundException {
+        ByteArrayInputStream inputStream = new ByteArrayInputStream(Base64.getDecoder().decode(message));
+        try (ObjectInputStream objectInputStream = new ObjectInputStream(inputStream)) {
+            UUID uuid = (UUID) objectInputStream.readObject();
+            DataKey<?> dataKey = (DataKey<?>) objectInputStream.readObject();
+            Object value = hasValue ? objectInputStream.readObject() : null;
+            return Collections.singletonMap(uuid, Collections.singletonMap(dataKey, value));
         }
     }
 
-    private void updatePlayers() {
+    private void addPlayer(UUID uuid) {
+        if (connectedPlayerManager.getPlayerIfPresent(uuid) != null || byUUID.containsKey(uuid)) {
+            return;
+        }
+        RedisPlayer player = new RedisPlayer(uuid);
+        if (byUUID.putIfAbsent(uuid, player) != null) {
+            return;
+        }
+        String name = nameCache.getIfPresent(uuid);
+        if (name != null) {
+            player.setName(name);
+            showPlayer(player);
+            DependencyTracker.onPlayersChanged();
+        } else {
+            pendingNameLookups.add(player);
+            if (nameLookupScheduled.compareAndSet(false, true)) {
+                ProxyServer.getInstance().getScheduler().runAsync(BungeeTabListPlus.getInstance().getPlugin(), this::lookupNames);
+            }
+        }
+    }
+
+    private void showPlayer(RedisPlayer player) {
+        players.add(player);
+        // the player might have left in the meantime
+        if (byUUID.get(player.getUniqueID()) != player) {
+            players.remove(player);
+        }
+    }
+
+    private void removePlayer(UUID uuid) {
+        RedisPlayer player = byUUID.remove(uuid);
+        if (player != null && players.remove(player)) {
+            DependencyTracker.onPlayersChanged();
+        }
+    }
+
+    /**
+     * Resolve the names of all players that joined since the last run in one go.
+     */
+    private void lookupNames() {
+        boolean changed = false;
+        do {
+            RedisPlayer player;
+            while (null != (player = pendingNameLookups.poll())) {
+                try {
+                    String name = RedisBungee.getApi().getNameFromUuid(player.getUniqueID());
+                    if (name != null) {
+                        nameCache.put(player.getUniqueID(), name);
+                        player.setName(name);
+                        showPlayer(player);
+                        changed = true;
+                    }
+                } catch (RuntimeException ex) {
+                    BungeeTabListPlus.getInstance().getLogger().log(Level.WARNING, "Error while trying to fetch the name of a player from RedisBungee", ex);
+                }
+            }
+            nameLookupScheduled.set(false);
+        } while (!pendingNameLookups.isEmpty() && nameLookupScheduled.compareAndSet(false, true));
+        if (changed) {
+            DependencyTracker.onPlayersChanged();
+        }
+    }
+
+    /**
+     * The roster and the servers of the players are kept up to date by the network
+     * events fired by RedisBungee. This compares them to the full state once in a
+     * while in case an event has been missed. Also sets the initial servers.
+     */
+    private void reconcilePlayers() {
         Set<UUID> playersOnline = RedisBungee.getApi().getPlayersOnline();
 
-        // remove players which have gone offline
-        for (Iterator<UUID> iterator = byUUID.keySet().iterator(); iterator.hasNext(); ) {
-            UUID uuid = iterator.next();
+        for (UUID uuid : byUUID.keySet()) {
             if (!playersOnline.contains(uuid) || connectedPlayerManager.getPlayerIfPresent(uuid) != null) {
-                iterator.remove();
+                removePlayer(uuid);
             }
         }
 
-        // add new players
         for (UUID uuid : playersOnline) {
-            if (!byUUID.containsKey(uuid) && connectedPlayerManager.getPlayerIfPresent(uuid) == null) {
-                byUUID.put(uuid, new RedisPlayer(uuid));
-            }
+            addPlayer(uuid);
         }
 
-        // update list
-        playerList = byUUID.values().stream().filter(RedisPlayer::hasName).collect(Collectors.toList());
+        boolean serverChanged = false;
+        for (Map.Entry<String, UUID> entry : RedisBungee.getApi().getServerToPlayers().entries()) {
+            RedisPlayer player = byUUID.get(entry.getValue());
+            if (player != null) {
+                serverChanged |= player.setServer(ProxyServer.getInstance().getServerInfo(entry.getKey()));
+            }
+        }
+        if (serverChanged) {
+            DependencyTracker.onPlayersChanged();
+        }
     }
 
     public <T> void request(UUID uuid, DataKey<T> key) {
+        requestBatcher.add(uuid, key, null);
+    }
+
+    public <T> void updateData(UUID uuid, DataKey<T> key, T value) {
+        dataBatcher.add(uuid, key, value);
+    }
+
+    private <T> void updateDataLegacy(UUID uuid, DataKey<T> key, T value) {
         try {
             ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
             ObjectOutputStream objectOutputStream = new ObjectOutputStream(outputStream);
             objectOutputStream.writeObject(uuid);
             objectOutputStream.writeObject(key);
+            objectOutputStream.writeObject(value);
             objectOutputStream.close();
             byte[] bytes = outputStream.toByteArray();
-            RedisBungee.getApi().sendChannelMessage(CHANNEL_REQUEST_DATA, Base64.getEncoder().encodeToString(bytes));
-        } catch (RuntimeException ex) {
-            BungeeTabListPlus.getInstance().getLogger().log(Level.WARNING, "RedisBungee Error", ex);
+            publish(CHANNEL_DATA, Base64.getEncoder().encodeToString(bytes));
         } catch (Throwable th) {
-            BungeeTabListPlus.getInstance().getLogger().log(Level.SEVERE, "Failed to request data", th);
+            BungeeTabListPlus.getInstance().getLogger().log(Level.SEVERE, "Failed to send data", th);
         }
     }
 
-    public <T> void updateData(UUID uuid, DataKey<T> key, T value) {
+    private static void publish(String channel, String message) {
         try {
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            ObjectOutputStream objectOutputStream = new ObjectOutputStream(outputStream);
-            objectOutputStream.writeObject(uuid);
-            objectOutputStream.writeObject(key);
-            objectOutputStream.writeObject(value);
-            objectOutputStream.close();
-            byte[] bytes = outputStream.toByteArray();
-            RedisBungee.getApi().sendChannelMessage(CHANNEL_DATA, Base64.getEncoder().encodeToString(bytes));
+            RedisBungee.getApi().sendChannelMessage(channel, message);
         } catch (RuntimeException ex) {
             BungeeTabListPlus.getInstance().getLogger().log(Level.WARNING, "RedisBungee Error", ex);
-        } catch (Throwable th) {
-            BungeeTabListPlus.getInstance().getLogger().log(Level.SEVERE, "Failed to send data", th);
         }
     }
 
+    private static void scheduleFlush(Runnable flush) {
+        ProxyServer.getInstance().getScheduler().schedule(BungeeTabListPlus.getInstance().getPlugin(), flush, FLUSH_WINDOW_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
     private class DataChangeListener implements Consumer<Object> {
         private final UUID uuid;
         private final DataKey<Object> dataKey;
+        private final boolean legacy;
 
-        public DataChangeListener(UUID uuid, DataKey<Object> dataKey) {
+        public DataChangeListener(UUID uuid, DataKey<Object> dataKey, boolean legacy) {
             this.uuid = uuid;
             this.dataKey = dataKey;
+            this.legacy = legacy;
         }
 
         @Override
         public void accept(Object value) {
-            RedisPlayerManager.this.updateData(uuid, dataKey, value);
+            if (legacy) {
+                RedisPlayerManager.this.updateDataLegacy(uuid, dataKey, value);
+            } else {
+                RedisPlayerManager.this.updateData(uuid, dataKey, value);
+            }
         }
 
         @Override
@@ -184,6 +348,7 @@ public class RedisPlayerManager implements IPlayerProvider, Listener {
 
             DataChangeListener that = (DataChangeListener) o;
 
+            if (legacy != that.legacy) return false;
             if (!uuid.equals(that.uuid)) return false;
             return dataKey.equals(that.dataKey);
 
@@ -193,6 +358,7 @@ public class RedisPlayerManager implements IPlayerProvider, Listener {
         public int hashCode() {
             int result = uuid.hashCode();
             result = 31 * result + dataKey.hashCode();
+            result = 31 * result + (legacy ? 1 : 0);
             return result;
         }
     }
@@ -43,5 +43,7 @@ public interface SkinManager {
 
     void onReload();
 
+    void onDisable();
+
     void createIcon(BufferedImage image, Consumer<Icon> callback);
 }
@@ -22,6 +22,8 @@ import codecrafter47.bungeetablistplus.BungeeTabListPlus;
 import codecrafter47.bungeetablistplus.api.bungee.Icon;
 import codecrafter47.bungeetablistplus.api.bungee.Skin;
 import codecrafter47.bungeetablistplus.skin.PlayerSkin;
+import codecrafter47.bungeetablistplus.skin.SkinPool;
+import codecrafter47.bungeetablistplus.skin.SkinStore;
 import com.google.common.base.Charsets;
 import com.google.common.base.Preconditions;
 import com.google.common.cache.Cache;
@@ -53,12 +55,14 @@ public class SkinManagerImpl implements SkinManager {
 
     private final Cache<String, Skin> cache = CacheBuilder.newBuilder().expireAfterAccess(35, TimeUnit.MINUTES).build();
     private final Map<File, Skin> fileSkinCache = new ConcurrentHashMap<>();
-    private final Map<Head, Skin> headCache = new ConcurrentHashMap<>();
+    private final SkinStore store;
 
     private final Set<String> fetchingSkins = Sets.newConcurrentHashSet();
 
     private final File headsFolder;
 
+    private static final long SKIN_TTL = TimeUnit.HOURS.toMillis(2);
+
     private final static Pattern PATTERN_VALID_USERNAME = Pattern.compile("(?:\\p{Alnum}|_){1,16}");
     private final static Pattern PATTERN_VALID_UUID = Pattern.compile("(?i)[a-f0-9]{8}-?[a-f0-9]{4}-?4[a-f0-9]{3}-?[89ab][a-f0-9]{3}-?[a-f0-9]{12}");
     private final static Pattern PATTERN_OFFLINE_UUID = Pattern.compile("(?i)[a-f0-9]{8}-?[a-f0-9]{4}-?3[a-f0-9]{3}-?[89ab][a-f0-9]{3}-?[a-f0-9]{12}");
@@ -67,23 +71,53 @@ public class SkinManagerImpl implements SkinManager {
         this.plugin = plugin;
         this.headsFolder = headsFolder;
 
-        // load head cache
+        this.store = new SkinStore(new File(plugin.getDataFolder(), "skincache"), plugin.getLogger());
+
+        // opening the store may rebuild its index, keep that away from the tab list threads
+        ProxyServer.getInstance().getScheduler().runAsync(plugin, () -> {
+            store.open();
+            importHeadCache();
+
+            // skins from the store are available now -> update tab to all players
+            BungeeTabListPlus.getInstance().resendTabLists();
+        });
+
+        ProxyServer.getInstance().getScheduler().schedule(plugin, () -> {
+            if (store.needsCompaction()) {
+                store.compact();
+            }
+        }, 10, 10, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Move the head cache used by older versions into the store.
+     */
+    private void importHeadCache() {
         File file = new File(headsFolder, "cache.txt");
         if (file.exists()) {
-            try {
-                new BufferedReader(new FileReader(file)).lines()
+            try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+                reader.lines()
                         .filter(line -> !line.isEmpty())
                         .map(line -> line.split(" "))
-                        .forEach(entry -> headCache.put(
-                                Head.of(Base64.getDecoder().decode(entry[0])),
-                                new PlayerSkin(null, new String[][]{{"textures", entry[1], entry[2]}})
+                        .forEach(entry -> store.put(
+                                headKey(Base64.getDecoder().decode(entry[0])),
+                                SkinPool.skin(null, new String[][]{{"textures", entry[1], entry[2]}}),
+                                Long.MAX_VALUE
                         ));
+                reader.close();
+                if (!file.renameTo(new File(headsFolder, "cache.txt.old"))) {
+                    plugin.getLogger().warning("Failed to rename heads/cache.txt");
+                }
             } catch (Throwable th) {
                 plugin.getLogger().log(Level.WARNING, "Failed to load heads/cache.txt", th);
             }
         }
     }
 
+    private static String headKey(byte[] headArray) {
+        return "head:" + Base64.getEncoder().encodeToString(headArray);
+    }
+
     @Override
     @SneakyThrows
     public Skin getSkin(String nameOrUUID) {
@@ -105,11 +139,19 @@ public class SkinManagerImpl implements SkinManager {
 
         Skin skin = cache.getIfPresent(nameOrUUID);
         if (skin != null) return skin;
-        if (!fetchingSkins.contains(nameOrUUID)) {
+        if (!store.isReady()) {
+            // the store is still being opened, tab lists are resent once it is ready
+            return defaultSkin;
+        }
+        SkinStore.CachedSkin cachedSkin = store.get("player:" + nameOrUUID);
+        if (cachedSkin != null) {
+            cache.put(nameOrUUID, cachedSkin.getSkin());
+        }
+        if ((cachedSkin == null || cachedSkin.isExpired()) && !fetchingSkins.contains(nameOrUUID)) {
             fetchingSkins.add(nameOrUUID);
             ProxyServer.getInstance().getScheduler().schedule(plugin, new SkinFetchTask(nameOrUUID), 0, TimeUnit.MILLISECONDS);
         }
-        return defaultSkin;
+        return cachedSkin != null ? cachedSkin.getSkin() : defaultSkin;
     }
 
     @SneakyThrows
@@ -148,9 +190,9 @@ public class SkinManagerImpl implements SkinManager {
                 byteBuffer.asIntBuffer().put(rgb);
                 byte[] headArray = byteBuffer.array();
 
-                if (headCache.containsKey(Head.of(headArray))) {
-                    Skin skin1 = headCache.get(Head.of(headArray));
-                    fileSkinCache.put(file, skin1);
+                SkinStore.CachedSkin cachedSkin = store.get(headKey(headArray));
+                if (cachedSkin != null) {
+                    fileSkinCache.put(file, cachedSkin.getSkin());
 
                     // a new skin is available -> update tab to all players
                     BungeeTabListPlus.getInstance().resendTabLists();
@@ -190,27 +232,13 @@ public class SkinManagerImpl implements SkinManager {
                 plugin.getLogger().info("Preparing head " + file.getName() + " approx. " + map.get("timeLeft") + " minutes remaining.");
                 ProxyServer.getInstance().getScheduler().schedule(plugin, () -> fetchHeadSkin(file, headArray), 30, TimeUnit.SECONDS);
             } else if (map.get("state").equals("SUCCESS")) {
-                PlayerSkin skin = new PlayerSkin(null, new String[][]{{"textures", (String) map.get("skin"), (String) map.get("signature")}});
+                PlayerSkin skin = SkinPool.skin(null, new String[][]{{"textures", (String) map.get("skin"), (String) map.get("signature")}});
                 fileSkinCache.put(file, skin);
-                headCache.put(Head.of(headArray), skin);
+                store.put(headKey(headArray), skin, Long.MAX_VALUE);
                 plugin.getLogger().info("Head " + file.getName() + " is now ready for use.");
 
                 // we received a new skin -> update tab to all players
                 BungeeTabListPlus.getInstance().resendTabLists();
-
-                // save to cache
-                File cacheFile = new File(headsFolder, "cache.txt");
-                if (!cacheFile.exists()) {
-                    cacheFile.createNewFile();
-                }
-                BufferedWriter writer = new BufferedWriter(new FileWriter(cacheFile, true));
-                writer.write(Base64.getEncoder().encodeToString(headArray));
-                writer.write(' ');
-                writer.write(skin.toProperty()[0][1]);
-                writer.write(' ');
-                writer.write(skin.toProperty()[0][2]);
-                writer.newLine();
-                writer.close();
             } else {
                 plugin.getLogger().severe("Unexpected response from server: " + map.get("state"));
                 fileSkinCache.put(file, missingSkinTexture);
@@ -228,6 +256,11 @@ public class SkinManagerImpl implements SkinManager {
         fileSkinCache.clear();
     }
 
+    @Override
+    public void onDisable() {
+        store.close();
+    }
+
     private String fetchUUID(final String player) {
         HttpURLConnection connection = null;
         try {
@@ -287,7 +320,7 @@ public class SkinManagerImpl implements SkinManager {
                     connection.getInputStream(), Charsets.UTF_8));
             SkinProfile skin = gson.fromJson(reader, SkinProfile.class);
             if (skin != null && skin.properties != null && !skin.properties.isEmpty()) {
-                return new PlayerSkin(UUID.fromString(uuid.substring(0, 8) + "-" + uuid.substring(8, 12) + "-" + uuid.substring(12, 16) + "-" + uuid.substring(16, 20) + "-" + uuid.substring(20, 32)), new String[][]{{"textures", skin.properties.get(0).value, skin.properties.
+                return SkinPool.skin(UUID.fromString(uuid.substring(0, 8) + "-" + uuid.substring(8, 12) + "-" + uuid.substring(12, 16) + "-" + uuid.substring(16, 20) + "-" + uuid.substring(20, 32)), new String[][]{{"textures", skin.properties.get(0).value, skin.properties.
                         get(0).signature}});
             }
         } catch (Throwable e) {
@@ -314,9 +347,10 @@ public class SkinManagerImpl implements SkinManager {
         byteBuffer.asIntBuffer().put(rgb);
         byte[] headArray = byteBuffer.array();
 
-        if (headCache.containsKey(Head.of(headArray))) {
-            Skin skin1 = headCache.get(Head.of(headArray));
-            callback.accept(new Icon(skin1.getOwner(), skin1.toProperty()));
+        SkinStore.CachedSkin cachedSkin = store.get(headKey(headArray));
+        if (cachedSkin != null) {
+            Skin skin1 = cachedSkin.getSkin();
+            callback.accept(SkinPool.icon(skin1.getOwner(), skin1.toProperty()));
             return;
         }
 
@@ -335,24 +369,10 @@ public class SkinManagerImpl implements SkinManager {
             BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream(), Charsets.UTF_8));
             LinkedHashTreeMap map = gson.fromJson(reader, LinkedHashTreeMap.class);
             if (map.get("state").equals("SUCCESS")) {
-                PlayerSkin skin = new PlayerSkin(null, new String[][]{{"textures", (String) map.get("skin"), (String) map.get("signature")}});
-                headCache.put(Head.of(headArray), skin);
+                PlayerSkin skin = SkinPool.skin(null, new String[][]{{"textures", (String) map.get("skin"), (String) map.get("signature")}});
+                store.put(headKey(headArray), skin, Long.MAX_VALUE);
 
-                // save to cache
-                File cacheFile = new File(headsFolder, "cache.txt");
-                if (!cacheFile.exists()) {
-                    cacheFile.createNewFile();
-                }
-                BufferedWriter writer = new BufferedWriter(new FileWriter(cacheFile, true));
-                writer.write(Base64.getEncoder().encodeToString(headArray));
-                writer.write(' ');
-                writer.write(skin.toProperty()[0][1]);
-                writer.write(' ');
-                writer.write(skin.toProperty()[0][2]);
-                writer.newLine();
-                writer.close();
-
-                callback.accept(new Icon(skin.getOwner(), skin.toProperty()));
+                callback.accept(SkinPool.icon(skin.getOwner(), skin.toProperty()));
             } else {
                 ProxyServer.getInstance().getScheduler().schedule(plugin, () -> createIcon(image, callback), 5, TimeUnit.SECONDS);
             }
@@ -381,28 +401,6 @@ public class SkinManagerImpl implements SkinManager {
         }
     }
 
-    private static final class Head {
-        private final byte[] bytes;
-
-        private Head(byte[] bytes) {
-            this.bytes = bytes;
-        }
-
-        static Head of(byte[] bytes) {
-            return new Head(bytes);
-        }
-
-        @Override
-        public int hashCode() {
-            return Arrays.hashCode(bytes);
-        }
-
-        @Override
-        public boolean equals(Object obj) {
-            return obj instanceof Head && Arrays.equals(bytes, ((Head) obj).bytes);
-        }
-    }
-
     private class SkinFetchTask implements Runnable {
 
         final String nameOrUUID;
@@ -427,6 +425,7 @@ public class SkinManagerImpl implements SkinManager {
                 Skin skin = fetchSkin(uuid);
                 if (skin != null) {
                     cache.put(nameOrUUID, skin);
+                    store.put("player:" + nameOrUUID, skin, System.currentTimeMillis() + SKIN_TTL);
                     fetchingSkins.remove(nameOrUUID);
 
                     // we received a new skin -> update tab to all players
@@ -25,7 +25,7 @@ import codecrafter47.bungeetablistplus.config.ITabListConfig;
 import codecrafter47.bungeetablistplus.config.old.ConfigParser;
 import codecrafter47.bungeetablistplus.config.old.TabListConfig;
 import codecrafter47.bungeetablistplus.context.Context;
-import codecrafter47.bungeetablistplus.expression.ExpressionResult;
+import codecrafter47.bungeetablistplus.context.SharedPlayerSets;
 import codecrafter47.bungeetablistplus.tablistproviders.legacy.CheckedTabListProvider;
 import codecrafter47.bungeetablistplus.tablistproviders.legacy.IConfigTabListProvider;
 import codecrafter47.bungeetablistplus.yamlconfig.YamlConfig;
@@ -54,6 +54,7 @@ public class TabListManager implements Listener {
     private final BungeeTabListPlus plugin;
     private final List<IConfigTabListProvider> tabLists = new ArrayList<>();
     private final List<Config> configs = new ArrayList<>();
+    private final SharedPlayerSets sharedPlayerSets = new SharedPlayerSets();
 
     public Map<ProxiedPlayer, TabListProvider> customTabLists = new HashMap<>();
 
@@ -103,7 +104,7 @@ public class TabListManager implements Listener {
         Config config = null;
         int priority = Integer.MIN_VALUE;
         for (Config config1 : configs) {
-            if (config1.getPriority() > priority && config1.getShowTo().evaluate(context, ExpressionResult.BOOLEAN)) {
+            if (config1.getPriority() > priority && config1.getShowTo().evaluateBoolean(context)) {
                 config = config1;
                 priority = config.getPriority();
             }
@@ -111,6 +112,10 @@ public class TabListManager implements Listener {
         return config;
     }
 
+    public SharedPlayerSets getSharedPlayerSets() {
+        return sharedPlayerSets;
+    }
+
     public TabListProvider getTabListForPlayer(ProxiedPlayer player) {
         if (customTabLists.get(player) != null) return customTabLists.get(player);
         TabListProvider provider = null;
@@ -26,6 +26,7 @@ import codecrafter47.bungeetablistplus.data.DataKey;
 import codecrafter47.bungeetablistplus.data.DataKeys;
 import codecrafter47.bungeetablistplus.data.PermissionDataKey;
 import codecrafter47.bungeetablistplus.player.Player;
+import codecrafter47.bungeetablistplus.tracking.DependencyTracker;
 import codecrafter47.bungeetablistplus.util.Functions;
 import codecrafter47.bungeetablistplus.util.PingTask;
 import lombok.AllArgsConstructor;
@@ -108,6 +109,7 @@ public abstract class Placeholder {
         // Server
         serverPlaceholders.put("tps", serverInfo -> BungeeTabListPlus.getInstance().getBridge().get(serverInfo, DataKeys.TPS).map(d -> String.format("%1.1f", d)).orElse(""));
         serverPlaceholders.put("online", serverName -> {
+            DependencyTracker.recordUntrackableRead();
             PingTask serverState = BungeeTabListPlus.getInstance().getServerState(serverName);
             return serverState != null ? Boolean.toString(serverState.isOnline()) : "false";
         });
@@ -123,7 +125,10 @@ public abstract class Placeholder {
         } else if ("player".equals(tokens[0])) {
             return parsePlayerPlaceholder(Arrays.copyOfRange(tokens, 1, tokens.length), (context) -> context.get(Context.KEY_PLAYER));
         } else if ("viewer".equals(tokens[0])) {
-            return parsePlayerPlaceholder(Arrays.copyOfRange(tokens, 1, tokens.length), (context) -> context.get(Context.KEY_VIEWER));
+            return parsePlayerPlaceholder(Arrays.copyOfRange(tokens, 1, tokens.length), (context) -> {
+                DependencyTracker.recordViewerRead();
+                return context.get(Context.KEY_VIEWER);
+            });
         } else if ("server".equals(tokens[0])) {
             return parseServerPlaceholder(Arrays.copyOfRange(tokens, 1, tokens.length), (context) -> context.get(Context.KEY_SERVER));
         } else if (tokens[0].startsWith("playerset:")) {
@@ -148,27 +153,63 @@ public abstract class Placeholder {
         }
     }
 
+    /**
+     * Checks whether the value of the placeholder is independent of the viewer,
+     * i.e. it does not change if the same placeholder is evaluated for another viewer.
+     * Custom placeholders are resolved lazily, so they are considered to be viewer dependent.
+     */
+    public static boolean isViewerIndependent(String s) {
+        String[] tokens = s.split(" ");
+
+        if (tokens.length == 0) {
+            return true;
+        }
+        switch (tokens[0]) {
+            case "player":
+            case "server":
+            case "time":
+            case "server_player_count":
+            case "other_count":
+                return true;
+            default:
+                return tokens[0].startsWith("server:");
+        }
+    }
+
     private static Placeholder parsePlayerPlaceholder(String[] tokens, Function<Context, Player> playerFunction) {
+        String id = String.join(" ", tokens);
         if (tokens.length == 0) {
-            return new PlayerBoundPlaceholder(playerFunction, Player::getName);
+            return cached(id, new PlayerBoundPlaceholder(playerFunction, Player::getName));
         } else if ("server".equals(tokens[0])) {
             return parseServerPlaceholder(Arrays.copyOfRange(tokens, 1, tokens.length), Functions.composeNullable(p -> p.get(BungeeTabListPlus.DATA_KEY_SERVER).orElse(null), playerFunction));
         } else if ("permission".equals(tokens[0])) {
-            return new PermissionPlaceholder(playerFunction, tokens[1]);
+            PermissionDataKey permissionDataKey = DataKeys.permission(tokens[1]);
+            return cached(id, new PlayerBoundPlaceholder(playerFunction, player -> player.get(permissionDataKey).orElse(false).toString()));
         } else if (playerPlaceholders.containsKey(tokens[0])) {
-            return playerPlaceholders.get(tokens[0]).apply(Arrays.copyOfRange(tokens, 1, tokens.length), playerFunction);
+            return cached(id, playerPlaceholders.get(tokens[0]).apply(Arrays.copyOfRange(tokens, 1, tokens.length), playerFunction));
         } else if (thirdPartyDataKeys.containsKey(tokens[0])) {
-            return new PlayerBoundPlaceholder(playerFunction, player -> player.get(thirdPartyDataKeys.get(tokens[0])).orElse(""));
+            return cached("third_party " + id, new PlayerBoundPlaceholder(playerFunction, player -> player.get(thirdPartyDataKeys.get(tokens[0])).orElse("")));
         } else if (remoteThirdPartyDataKeys.containsKey(tokens[0])) {
-            return new PlayerBoundPlaceholder(playerFunction, player -> player.get(remoteThirdPartyDataKeys.get(tokens[0])).orElse(""));
+            return cached("remote_third_party " + id, new PlayerBoundPlaceholder(playerFunction, player -> player.get(remoteThirdPartyDataKeys.get(tokens[0])).orElse("")));
         } else if (placeholderAPIDataKeys.containsKey(tokens[0])) {
-            return new PlayerBoundPlaceholder(playerFunction, player -> player.get(placeholderAPIDataKeys.get(tokens[0])).orElse(""));
+            return cached("placeholderapi " + id, new PlayerBoundPlaceholder(playerFunction, player -> player.get(placeholderAPIDataKeys.get(tokens[0])).orElse("")));
         } else {
             BungeeTabListPlus.getInstance().getPlaceholderAPIHook().addMaybePlaceholder(tokens[0]);
             return NULL_PLACEHOLDER;
         }
     }
 
+    /**
+     * Lets the placeholder use the {@link PlaceholderCache} of the player, placeholders created from the same
+     * arguments share a cache entry.
+     */
+    private static Placeholder cached(String id, Placeholder placeholder) {
+        if (placeholder instanceof PlayerBoundPlaceholder) {
+            ((PlayerBoundPlaceholder) placeholder).cacheId = PlaceholderCache.getId(id);
+        }
+        return placeholder;
+    }
+
     private static Placeholder parseServerPlaceholder(String[] tokens, Function<Context, String> serverFunction) {
         if (tokens.length == 0) {
             return new ServerBoundPlaceholder(serverFunction, o -> o);
@@ -187,31 +228,23 @@ public abstract class Placeholder {
         }
     }
 
-    @AllArgsConstructor
     private static class PlayerBoundPlaceholder extends Placeholder {
         private final Function<Context, Player> playerFunction;
         private final Function<Player, String> function;
+        private int cacheId = -1;
 
-        @Override
-        public String evaluate(Context context) {
-            Player player = playerFunction.apply(context);
-            return player != null ? function.apply(player) : "";
-        }
-    }
-
-    private static class PermissionPlaceholder extends Placeholder {
-        private final Function<Context, Player> playerFunction;
-        private final PermissionDataKey permissionDataKey;
-
-        private PermissionPlaceholder(Function<Context, Player> playerFunction, String permission) {
+        private PlayerBoundPlaceholder(Function<Context, Player> playerFunction, Function<Player, String> function) {
             this.playerFunction = playerFunction;
-            permissionDataKey = DataKeys.permission(permission);
+            this.function = function;
         }
 
         @Override
         public String evaluate(Context context) {
             Player player = playerFunction.apply(context);
-            return player != null ? player.get(permissionDataKey).orElse(false).toString() : "";
+            if (player == null) {
+                return "";
+            }
+            return cacheId != -1 ? player.getPlaceholderCache().get(cacheId, player, function) : function.apply(player);
         }
     }
 
@@ -254,6 +287,7 @@ public abstract class Placeholder {
 
         @Override
         public String evaluate(Context context) {
+            DependencyTracker.recordUntrackableRead();
             return format.format(System.currentTimeMillis());
         }
     }
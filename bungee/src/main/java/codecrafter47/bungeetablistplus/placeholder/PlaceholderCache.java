@@ -0,0 +1,97 @@
+/*
+ * BungeeTabListPlus - a BungeeCord plugin to customize the tablist
+ *
+ * Copyright (C) 2014 - 2015 Florian Stober
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package codecrafter47.bungeetablistplus.placeholder;
+
+import codecrafter47.bungeetablistplus.player.Player;
+import codecrafter47.bungeetablistplus.tracking.DependencyTracker;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Per player cache for the values of player placeholders.
+ * <p>
+ * Within an update the same placeholder is often evaluated for the same player several times, e.g. by a filter, the
+ * player order and the player component. Each placeholder is assigned a small id, which is the index of its entry
+ * here. An entry is not cleared, instead it is recomputed once anything it has read has changed or, if it has read
+ * something untrackable, once a new update cycle has started, see {@link DependencyTracker#isOutdated()}.
+ */
+public class PlaceholderCache {
+
+    private static final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private static final AtomicInteger nextId = new AtomicInteger();
+
+    private volatile Entry[] entries = new Entry[16];
+
+    /**
+     * Get the id for a player placeholder. Placeholders with the same arguments share an id, independent of whether
+     * they refer to the player or the viewer.
+     */
+    static int getId(String placeholder) {
+        return ids.computeIfAbsent(placeholder, s -> nextId.getAndIncrement());
+    }
+
+    String get(int id, Player player, Function<Player, String> function) {
+        Entry entry = getEntry(id);
+        if (!entry.tracker.isOutdated()) {
+            DependencyTracker.recordDependenciesOf(entry.tracker);
+            return entry.value;
+        }
+        synchronized (entry) {
+            if (entry.tracker.isOutdated()) {
+                entry.tracker.begin();
+                try {
+                    entry.value = function.apply(player);
+                } finally {
+                    entry.tracker.end();
+                }
+            } else {
+                DependencyTracker.recordDependenciesOf(entry.tracker);
+            }
+            return entry.value;
+        }
+    }
+
+    private Entry getEntry(int id) {
+        Entry[] entries = this.entries;
+        Entry entry;
+        if (id < entries.length && (entry = entries[id]) != null) {
+            return entry;
+        }
+        synchronized (this) {
+            entries = this.entries;
+            if (id >= entries.length) {
+                entries = Arrays.copyOf(entries, Math.max(id + 1, entries.length * 2));
+            }
+            if ((entry = entries[id]) == null) {
+                entry = entries[id] = new Entry();
+            }
+            this.entries = entries;
+            return entry;
+        }
+    }
+
+    private static class Entry {
+        private final DependencyTracker tracker = new DependencyTracker();
+        private volatile String value;
+    }
+}
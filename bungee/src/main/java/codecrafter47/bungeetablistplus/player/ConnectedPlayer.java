@@ -28,6 +28,7 @@ import codecrafter47.bungeetablistplus.bridge.BukkitBridge;
 import codecrafter47.bungeetablistplus.common.Constants;
 import codecrafter47.bungeetablistplus.data.DataCache;
 import codecrafter47.bungeetablistplus.data.DataKey;
+import codecrafter47.bungeetablistplus.placeholder.PlaceholderCache;
 import codecrafter47.bungeetablistplus.protocol.PacketHandler;
 import codecrafter47.bungeetablistplus.skin.PlayerSkin;
 import codecrafter47.bungeetablistplus.tablisthandler.LegacyTabList;
@@ -37,6 +38,8 @@ import codecrafter47.bungeetablistplus.tablisthandler.logic.GetGamemodeLogic;
 import codecrafter47.bungeetablistplus.tablisthandler.logic.LowMemoryTabListLogic;
 import codecrafter47.bungeetablistplus.tablisthandler.logic.RewriteLogic;
 import codecrafter47.bungeetablistplus.tablisthandler.logic.TabListLogic;
+import codecrafter47.bungeetablistplus.tracking.DependencyTracker;
+import codecrafter47.bungeetablistplus.tracking.TrackingDataCache;
 import codecrafter47.bungeetablistplus.util.ReflectionUtil;
 import lombok.Getter;
 import lombok.Setter;
@@ -70,7 +73,13 @@ public class ConnectedPlayer implements Player {
     private BukkitBridge.BukkitData bukkitData;
 
     @Getter
-    private DataCache data = new DataCache();
+    private DataCache data = new TrackingDataCache();
+
+    @Getter
+    private final DependencyTracker dependencyTracker = new DependencyTracker();
+
+    @Getter
+    private final PlaceholderCache placeholderCache = new PlaceholderCache();
 
     @Getter
     @Setter
@@ -79,8 +88,12 @@ public class ConnectedPlayer implements Player {
     @Getter
     private final LocalDateTime timePointJoined = LocalDateTime.now();
 
+    // polled by the DataManager
+    private volatile int ping;
+
     public ConnectedPlayer(ProxiedPlayer player) {
         this.player = player;
+        this.ping = player.getPing();
     }
 
     @Override
@@ -102,7 +115,22 @@ public class ConnectedPlayer implements Player {
 
     @Override
     public int getPing() {
-        return player.getPing();
+        DependencyTracker.recordPingRead();
+        return ping;
+    }
+
+    /**
+     * Polls the ping of the player.
+     *
+     * @return whether the ping has changed
+     */
+    public boolean updatePing() {
+        int ping = player.getPing();
+        if (ping != this.ping) {
+            this.ping = ping;
+            return true;
+        }
+        return false;
     }
 
     @Override
@@ -141,6 +169,7 @@ public class ConnectedPlayer implements Player {
                     ObjectOutputStream out = new ObjectOutputStream(os);
                     out.writeUTF(Constants.subchannelRequestPlayerVariable);
                     out.writeObject(key);
+                    BungeeTabListPlus.getInstance().getBridge().writeHandshake(out);
                     out.close();
                     Optional.ofNullable(player.getServer()).ifPresent(server -> server.sendData(Constants.channel, os.toByteArray()));
                 } catch (IOException ex) {
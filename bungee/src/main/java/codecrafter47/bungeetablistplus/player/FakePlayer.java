@@ -22,6 +22,8 @@ package codecrafter47.bungeetablistplus.player;
 import codecrafter47.bungeetablistplus.BungeeTabListPlus;
 import codecrafter47.bungeetablistplus.api.bungee.Skin;
 import codecrafter47.bungeetablistplus.data.DataKey;
+import codecrafter47.bungeetablistplus.placeholder.PlaceholderCache;
+import codecrafter47.bungeetablistplus.tracking.DependencyTracker;
 import com.google.common.base.Charsets;
 import net.md_5.bungee.api.config.ServerInfo;
 
@@ -36,6 +38,7 @@ public class FakePlayer implements Player, codecrafter47.bungeetablistplus.api.b
     private Skin skin;
     private final UUID uuid;
     private boolean randomServerSwitchEnabled;
+    private final PlaceholderCache placeholderCache = new PlaceholderCache();
 
     public FakePlayer(String name, ServerInfo server, boolean randomServerSwitchEnabled) {
         this.randomServerSwitchEnabled = randomServerSwitchEnabled;
@@ -80,6 +83,7 @@ public class FakePlayer implements Player, codecrafter47.bungeetablistplus.api.b
     @Override
     public void setPing(int ping) {
         this.ping = ping;
+        DependencyTracker.onPlayersChanged();
     }
 
     @Override
@@ -94,16 +98,19 @@ public class FakePlayer implements Player, codecrafter47.bungeetablistplus.api.b
 
     public void setGamemode(int gamemode) {
         this.gamemode = gamemode;
+        DependencyTracker.onPlayersChanged();
     }
 
     @Override
     public void changeServer(ServerInfo newServer) {
         server = newServer;
+        DependencyTracker.onPlayersChanged();
     }
 
     @Override
     public void setSkin(Skin skin) {
         this.skin = skin;
+        DependencyTracker.onPlayersChanged();
     }
 
     @Override
@@ -120,4 +127,9 @@ public class FakePlayer implements Player, codecrafter47.bungeetablistplus.api.b
         }
         return Optional.empty();
     }
+
+    @Override
+    public PlaceholderCache getPlaceholderCache() {
+        return placeholderCache;
+    }
 }
@@ -22,6 +22,7 @@ package codecrafter47.bungeetablistplus.player;
 import codecrafter47.bungeetablistplus.BungeeTabListPlus;
 import codecrafter47.bungeetablistplus.api.bungee.FakePlayerManager;
 import codecrafter47.bungeetablistplus.api.bungee.IPlayer;
+import codecrafter47.bungeetablistplus.tracking.DependencyTracker;
 import net.md_5.bungee.api.config.ServerInfo;
 import net.md_5.bungee.api.plugin.Plugin;
 
@@ -59,6 +60,7 @@ public class FakePlayerManagerImpl implements IPlayerProvider, FakePlayerManager
                 FakePlayer player = online.get((int) (Math.random() * online.size()));
                 if (player.isRandomServerSwitchEnabled()) {
                     player.server = new ArrayList<>(plugin.getProxy().getServers().values()).get((int) (Math.random() * plugin.getProxy().getServers().values().size()));
+                    DependencyTracker.onPlayersChanged();
                 }
             }
             if (randomJoinLeaveEventsEnabled) {
@@ -68,9 +70,11 @@ public class FakePlayerManagerImpl implements IPlayerProvider, FakePlayerManager
                     FakePlayer player = new FakePlayer(name, new ArrayList<>(plugin.getProxy().getServers().values()).get((int) (Math.random() * plugin.getProxy().getServers().values().size())), true);
                     offline.remove(name);
                     online.add(player);
+                    DependencyTracker.onPlayersChanged();
                 } else if (online.size() > 0) {
                     // remove player
                     offline.add(online.remove((int) (online.size() * Math.random())).getName());
+                    DependencyTracker.onPlayersChanged();
                 }
             }
         } catch (Throwable th) {
@@ -82,6 +86,7 @@ public class FakePlayerManagerImpl implements IPlayerProvider, FakePlayerManager
         offline = new ArrayList<>(BungeeTabListPlus.getInstance().getConfig().fakePlayers);
         sanitizeFakePlayerNames();
         online = new CopyOnWriteArrayList<>();
+        DependencyTracker.onPlayersChanged();
         for (int i = offline.size(); i > 0; i--) {
             triggerRandomEvent();
         }
@@ -121,6 +126,7 @@ public class FakePlayerManagerImpl implements IPlayerProvider, FakePlayerManager
     public codecrafter47.bungeetablistplus.api.bungee.tablist.FakePlayer createFakePlayer(String name, ServerInfo server) {
         FakePlayer fakePlayer = new FakePlayer(name, server, false);
         online.add(fakePlayer);
+        DependencyTracker.onPlayersChanged();
         return fakePlayer;
     }
 
@@ -128,6 +134,7 @@ public class FakePlayerManagerImpl implements IPlayerProvider, FakePlayerManager
     public void removeFakePlayer(codecrafter47.bungeetablistplus.api.bungee.tablist.FakePlayer fakePlayer) {
         FakePlayer player = (FakePlayer) fakePlayer;
         if (online.remove(player)) {
+            DependencyTracker.onPlayersChanged();
             if (BungeeTabListPlus.getInstance().getConfig().fakePlayers.contains(player.getName())) {
                 offline.add(player.getName());
             }
@@ -21,10 +21,13 @@ package codecrafter47.bungeetablistplus.player;
 
 import codecrafter47.bungeetablistplus.api.bungee.IPlayer;
 import codecrafter47.bungeetablistplus.data.DataKey;
+import codecrafter47.bungeetablistplus.placeholder.PlaceholderCache;
 
 import java.util.Optional;
 
 public interface Player extends IPlayer {
 
     <T> Optional<T> get(DataKey<T> key);
+
+    PlaceholderCache getPlaceholderCache();
 }
@@ -23,31 +23,31 @@ import codecrafter47.bungeetablistplus.BungeeTabListPlus;
 import codecrafter47.bungeetablistplus.api.bungee.Skin;
 import codecrafter47.bungeetablistplus.data.DataCache;
 import codecrafter47.bungeetablistplus.data.DataKey;
-import com.imaginarycode.minecraft.redisbungee.RedisBungee;
+import codecrafter47.bungeetablistplus.placeholder.PlaceholderCache;
+import codecrafter47.bungeetablistplus.tracking.TrackingDataCache;
+import com.google.common.collect.Sets;
 import lombok.Getter;
 import lombok.SneakyThrows;
-import net.md_5.bungee.api.ProxyServer;
 import net.md_5.bungee.api.config.ServerInfo;
 
-import java.util.HashSet;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
-import java.util.logging.Level;
 
 public class RedisPlayer implements Player {
-    private String name;
+    private volatile String name;
     private final UUID uuid;
-    private ServerInfo server;
-    private long lastServerLookup = 0;
+    private volatile ServerInfo server;
 
     @Getter
-    private final DataCache data = new DataCache();
-    private final Set<DataKey<?>> requestedData = new HashSet<>();
+    private final DataCache data = new TrackingDataCache();
+    private final Set<DataKey<?>> requestedData = Sets.newConcurrentHashSet();
+    @Getter
+    private final PlaceholderCache placeholderCache = new PlaceholderCache();
 
     public RedisPlayer(UUID uuid) {
         this.uuid = uuid;
-        ProxyServer.getInstance().getScheduler().runAsync(BungeeTabListPlus.getInstance().getPlugin(), () -> name = RedisBungee.getApi().getNameFromUuid(RedisPlayer.this.uuid));
     }
 
     @Override
@@ -63,6 +63,24 @@ public class RedisPlayer implements Player {
         return name != null;
     }
 
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Called when RedisBungee reports that the player switched servers.
+     *
+     * @param server the new server
+     * @return whether the server has changed
+     */
+    public boolean setServer(ServerInfo server) {
+        if (!Objects.equals(this.server, server)) {
+            this.server = server;
+            return true;
+        }
+        return false;
+    }
+
     @Override
     public UUID getUniqueID() {
         return uuid;
@@ -70,14 +88,7 @@ public class RedisPlayer implements Player {
 
     @Override
     public Optional<ServerInfo> getServer() {
-        try {
-            if (server == null || System.currentTimeMillis() - lastServerLookup > 1000) {
-                server = RedisBungee.getApi().getServerFor(uuid);
-                lastServerLookup = System.currentTimeMillis();
-            }
-        } catch (RuntimeException ex) {
-            BungeeTabListPlus.getInstance().getLogger().log(Level.WARNING, "Error while trying to fetch the server of a player from RedisBungee", ex);
-        }
+        // kept up to date by RedisPlayerManager, which reports server switches as a change of the players
         return Optional.ofNullable(server);
     }
 
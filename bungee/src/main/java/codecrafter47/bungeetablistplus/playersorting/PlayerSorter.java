@@ -27,10 +27,14 @@ import codecrafter47.bungeetablistplus.api.bungee.tablist.TabListContext;
 import codecrafter47.bungeetablistplus.context.Context;
 import codecrafter47.bungeetablistplus.player.ConnectedPlayer;
 import codecrafter47.bungeetablistplus.player.Player;
+import codecrafter47.bungeetablistplus.tracking.DependencyTracker;
+import it.unimi.dsi.fastutil.ints.AbstractIntComparator;
+import it.unimi.dsi.fastutil.ints.IntArrays;
 import net.md_5.bungee.api.config.ServerInfo;
 import net.md_5.bungee.api.connection.ProxiedPlayer;
 
 import java.util.*;
+import java.util.function.ToIntFunction;
 import java.util.logging.Level;
 import java.util.stream.Collectors;
 
@@ -73,6 +77,7 @@ public class PlayerSorter {
 
             @Override
             public ProxiedPlayer getViewer() {
+                DependencyTracker.recordViewerRead();
                 return ((ConnectedPlayer) context.get(Context.KEY_VIEWER)).getPlayer();
             }
 
@@ -119,18 +124,85 @@ public class PlayerSorter {
     }
 
     public void sort(TabListContext context, List<? extends IPlayer> players) {
-        Collections.sort(players, (p1, p2) -> {
-            for (SortingRule rule : rules) {
-                int i = rule.compare(context, p1, p2);
-                if (i != 0) {
-                    return i;
+        sort0(context, players);
+    }
+
+    private <P extends IPlayer> void sort0(TabListContext context, List<P> players) {
+        int size = players.size();
+        if (size < 2 || rules.isEmpty()) {
+            return;
+        }
+
+        // group the rules into the key columns, the int keys of up to two consecutive rules are packed into a
+        // single long column
+        List<ToIntFunction<IPlayer>> intKeys = new ArrayList<>(rules.size());
+        for (SortingRule rule : rules) {
+            intKeys.add(rule.getIntSortKeyFunction(context));
+        }
+        List<SortingRule> columnRules = new ArrayList<>(rules.size());
+        List<ToIntFunction<IPlayer>> highKeys = new ArrayList<>(rules.size());
+        List<ToIntFunction<IPlayer>> lowKeys = new ArrayList<>(rules.size());
+        for (int r = 0; r < rules.size(); r++) {
+            columnRules.add(rules.get(r));
+            highKeys.add(intKeys.get(r));
+            if (intKeys.get(r) != null && r + 1 < rules.size() && intKeys.get(r + 1) != null) {
+                lowKeys.add(intKeys.get(++r));
+            } else {
+                lowKeys.add(null);
+            }
+        }
+        int columns = columnRules.size();
+
+        // extract the keys once per player
+        long[][] packedKeys = new long[columns][];
+        Object[][] keys = new Object[columns][];
+        for (int c = 0; c < columns; c++) {
+            if (highKeys.get(c) != null) {
+                packedKeys[c] = new long[size];
+            } else {
+                keys[c] = new Object[size];
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            P player = players.get(i);
+            for (int c = 0; c < columns; c++) {
+                if (packedKeys[c] != null) {
+                    long key = (long) highKeys.get(c).applyAsInt(player) << 32;
+                    if (lowKeys.get(c) != null) {
+                        // flipping the sign bit makes the unsigned order of the lower half match the int order
+                        key |= (lowKeys.get(c).applyAsInt(player) ^ Integer.MIN_VALUE) & 0xffffffffL;
+                    }
+                    packedKeys[c][i] = key;
+                } else {
+                    keys[c][i] = columnRules.get(c).getSortKey(context, player);
                 }
             }
-            if (players.indexOf(p2) > players.indexOf(p1)) {
-                return -1;
+        }
+
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        // merge sort is stable, so players with equal keys keep the previous order
+        IntArrays.mergeSort(order, new AbstractIntComparator() {
+            @Override
+            public int compare(int i1, int i2) {
+                for (int c = 0; c < columns; c++) {
+                    int i = packedKeys[c] != null
+                            ? Long.compare(packedKeys[c][i1], packedKeys[c][i2])
+                            : columnRules.get(c).compareSortKeys(context, keys[c][i1], keys[c][i2]);
+                    if (i != 0) {
+                        return i;
+                    }
+                }
+                return 0;
             }
-            return 1;
         });
+
+        List<P> copy = new ArrayList<>(players);
+        for (int i = 0; i < size; i++) {
+            players.set(i, copy.get(order[i]));
+        }
     }
 
     @Override
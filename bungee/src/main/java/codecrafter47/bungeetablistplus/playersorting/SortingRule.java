@@ -21,7 +21,54 @@ package codecrafter47.bungeetablistplus.playersorting;
 import codecrafter47.bungeetablistplus.api.bungee.IPlayer;
 import codecrafter47.bungeetablistplus.api.bungee.tablist.TabListContext;
 
+import javax.annotation.Nullable;
+import java.util.function.ToIntFunction;
+
 public interface SortingRule {
 
     int compare(TabListContext context, IPlayer player1, IPlayer player2);
+
+    /**
+     * Extracts the information used by this rule to sort the given player. When sorting a list
+     * the key is extracted once per player, instead of on each comparison.
+     * <p>
+     * The default implementation uses the player as key and delegates to
+     * {@link #compare(TabListContext, IPlayer, IPlayer)}.
+     *
+     * @param context the context
+     * @param player  the player
+     * @return the sort key
+     */
+    default Object getSortKey(TabListContext context, IPlayer player) {
+        return player;
+    }
+
+    /**
+     * Compares two keys created by {@link #getSortKey(TabListContext, IPlayer)}. Must give the same
+     * result as comparing the players using {@link #compare(TabListContext, IPlayer, IPlayer)}.
+     *
+     * @param context the context
+     * @param key1    the sort key of the first player
+     * @param key2    the sort key of the second player
+     * @return a negative integer, zero, or a positive integer as the first player should be placed before, at the same position or after the second player
+     */
+    default int compareSortKeys(TabListContext context, Object key1, Object key2) {
+        return compare(context, (IPlayer) key1, (IPlayer) key2);
+    }
+
+    /**
+     * Prepares extracting the information used by this rule to sort a list as an int. Called once
+     * per sort, so anything about the viewer should be looked up here instead of once per player.
+     * Players with smaller keys are placed first.
+     * <p>
+     * The default implementation returns null.
+     *
+     * @param context the context
+     * @return a function extracting the sort key of a player, or null if this rule uses
+     * {@link #getSortKey(TabListContext, IPlayer)} instead
+     */
+    @Nullable
+    default ToIntFunction<IPlayer> getIntSortKeyFunction(TabListContext context) {
+        return null;
+    }
 }
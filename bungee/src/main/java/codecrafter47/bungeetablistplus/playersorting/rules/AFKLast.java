@@ -24,6 +24,8 @@ import codecrafter47.bungeetablistplus.data.DataKeys;
 import codecrafter47.bungeetablistplus.player.Player;
 import codecrafter47.bungeetablistplus.playersorting.SortingRule;
 
+import java.util.function.ToIntFunction;
+
 public class AFKLast implements SortingRule {
 
     @Override
@@ -42,4 +44,9 @@ public class AFKLast implements SortingRule {
         return 0;
     }
 
+    @Override
+    public ToIntFunction<IPlayer> getIntSortKeyFunction(TabListContext context) {
+        return player -> ((Player) player).get(DataKeys.Essentials_IsAFK).orElse(false) ? 1 : 0;
+    }
+
 }
@@ -19,18 +19,13 @@
 package codecrafter47.bungeetablistplus.playersorting.rules;
 
 import codecrafter47.bungeetablistplus.api.bungee.IPlayer;
-import codecrafter47.bungeetablistplus.api.bungee.tablist.TabListContext;
-import codecrafter47.bungeetablistplus.playersorting.SortingRule;
 
-import java.text.Collator;
+import java.util.Optional;
 
-public class Alphabet implements SortingRule {
+public class Alphabet extends AlphabeticalSortingRule {
 
     @Override
-    public int compare(TabListContext context, IPlayer player1, IPlayer player2) {
-        String name1 = player1.getName();
-        String name2 = player2.getName();
-        return Collator.getInstance().compare(name1, name2);
+    protected Optional<String> getValue(IPlayer player) {
+        return Optional.of(player.getName());
     }
-
 }
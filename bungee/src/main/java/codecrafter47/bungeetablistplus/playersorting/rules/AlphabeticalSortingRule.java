@@ -0,0 +1,59 @@
+/*
+ * BungeeTabListPlus - a BungeeCord plugin to customize the tablist
+ *
+ * Copyright (C) 2014 - 2015 Florian Stober
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package codecrafter47.bungeetablistplus.playersorting.rules;
+
+import codecrafter47.bungeetablistplus.api.bungee.IPlayer;
+import codecrafter47.bungeetablistplus.api.bungee.tablist.TabListContext;
+import codecrafter47.bungeetablistplus.playersorting.SortingRule;
+
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.Optional;
+
+/**
+ * Base class for rules sorting players alphabetically by some property. Players without that property are
+ * sorted as if it was empty.
+ */
+public abstract class AlphabeticalSortingRule implements SortingRule {
+    // Collator isn't thread safe
+    private static final ThreadLocal<Collator> collator = ThreadLocal.withInitial(Collator::getInstance);
+
+    protected abstract Optional<String> getValue(IPlayer player);
+
+    @Override
+    public int compare(TabListContext context, IPlayer player1, IPlayer player2) {
+        Optional<String> value1 = getValue(player1);
+        Optional<String> value2 = getValue(player2);
+        if (value1.isPresent() || value2.isPresent()) {
+            return collator.get().compare(value1.orElse(""), value2.orElse(""));
+        }
+        return 0;
+    }
+
+    @Override
+    public Object getSortKey(TabListContext context, IPlayer player) {
+        return collator.get().getCollationKey(getValue(player).orElse(""));
+    }
+
+    @Override
+    public int compareSortKeys(TabListContext context, Object key1, Object key2) {
+        return ((CollationKey) key1).compareTo((CollationKey) key2);
+    }
+}
@@ -26,6 +26,7 @@ import codecrafter47.bungeetablistplus.player.Player;
 import codecrafter47.bungeetablistplus.playersorting.SortingRule;
 
 import java.util.Optional;
+import java.util.function.ToIntFunction;
 
 public class BungeeCordGroups implements SortingRule {
     @Override
@@ -37,4 +38,9 @@ public class BungeeCordGroups implements SortingRule {
         }
         return 0;
     }
+
+    @Override
+    public ToIntFunction<IPlayer> getIntSortKeyFunction(TabListContext context) {
+        return player -> ((Player) player).get(DataKeys.BungeeCord_Rank).orElse(Integer.MAX_VALUE);
+    }
 }
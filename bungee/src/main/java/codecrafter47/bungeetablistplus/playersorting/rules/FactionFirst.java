@@ -28,6 +28,7 @@ import codecrafter47.bungeetablistplus.player.Player;
 import codecrafter47.bungeetablistplus.playersorting.SortingRule;
 
 import java.util.Optional;
+import java.util.function.ToIntFunction;
 
 public class FactionFirst implements SortingRule {
     @Override
@@ -45,4 +46,14 @@ public class FactionFirst implements SortingRule {
         }
         return 0;
     }
+
+    @Override
+    public ToIntFunction<IPlayer> getIntSortKeyFunction(TabListContext context) {
+        IPlayer viewer = BungeeTabListPlus.getInstance().getConnectedPlayerManager().getPlayer(context.getViewer());
+        Optional<String> faction = ((Player) viewer).get(DataKeys.Factions_FactionName);
+        if (!faction.isPresent()) {
+            return player -> 1;
+        }
+        return player -> faction.equals(((Player) player).get(DataKeys.Factions_FactionName)) ? 0 : 1;
+    }
 }
@@ -20,22 +20,15 @@
 package codecrafter47.bungeetablistplus.playersorting.rules;
 
 import codecrafter47.bungeetablistplus.api.bungee.IPlayer;
-import codecrafter47.bungeetablistplus.api.bungee.tablist.TabListContext;
 import codecrafter47.bungeetablistplus.data.DataKeys;
 import codecrafter47.bungeetablistplus.player.Player;
-import codecrafter47.bungeetablistplus.playersorting.SortingRule;
 
-import java.text.Collator;
 import java.util.Optional;
 
-public class FactionsAlphabetically implements SortingRule {
+public class FactionsAlphabetically extends AlphabeticalSortingRule {
+
     @Override
-    public int compare(TabListContext context, IPlayer player1, IPlayer player2) {
-        Optional<String> faction1 = ((Player) player1).get(DataKeys.Factions_FactionName);
-        Optional<String> faction2 = ((Player) player2).get(DataKeys.Factions_FactionName);
-        if (faction1.isPresent() || faction2.isPresent()) {
-            return Collator.getInstance().compare(faction1.orElse(""), faction2.orElse(""));
-        }
-        return 0;
+    protected Optional<String> getValue(IPlayer player) {
+        return ((Player) player).get(DataKeys.Factions_FactionName);
     }
 }
@@ -27,6 +27,7 @@ import codecrafter47.bungeetablistplus.playersorting.SortingRule;
 import net.md_5.bungee.api.connection.Server;
 
 import java.util.Optional;
+import java.util.function.ToIntFunction;
 
 public class PlayerServerFirst implements SortingRule {
     @Override
@@ -46,4 +47,14 @@ public class PlayerServerFirst implements SortingRule {
         }
         return 0;
     }
+
+    @Override
+    public ToIntFunction<IPlayer> getIntSortKeyFunction(TabListContext context) {
+        Server server = context.getViewer().getServer();
+        if (server == null) {
+            return player -> 1;
+        }
+        String name = server.getInfo().getName();
+        return player -> ((Player) player).get(BungeeTabListPlus.DATA_KEY_SERVER).map(name::equals).orElse(false) ? 0 : 1;
+    }
 }
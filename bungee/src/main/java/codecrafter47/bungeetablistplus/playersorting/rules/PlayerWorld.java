@@ -27,6 +27,7 @@ import codecrafter47.bungeetablistplus.player.Player;
 import codecrafter47.bungeetablistplus.playersorting.SortingRule;
 
 import java.util.Optional;
+import java.util.function.ToIntFunction;
 
 public class PlayerWorld implements SortingRule {
 
@@ -46,4 +47,13 @@ public class PlayerWorld implements SortingRule {
         return 0;
     }
 
+    @Override
+    public ToIntFunction<IPlayer> getIntSortKeyFunction(TabListContext context) {
+        IPlayer viewer = BungeeTabListPlus.getInstance().getConnectedPlayerManager().getPlayer(context.getViewer());
+        Optional<String> world = ((Player) viewer).get(DataKeys.World);
+        if (!world.isPresent()) {
+            return player -> 1;
+        }
+        return player -> world.equals(((Player) player).get(DataKeys.World)) ? 0 : 1;
+    }
 }
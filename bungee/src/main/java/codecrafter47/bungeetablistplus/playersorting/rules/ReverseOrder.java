@@ -24,6 +24,8 @@ import codecrafter47.bungeetablistplus.api.bungee.tablist.TabListContext;
 import codecrafter47.bungeetablistplus.playersorting.SortingRule;
 import lombok.RequiredArgsConstructor;
 
+import java.util.function.ToIntFunction;
+
 @RequiredArgsConstructor
 public class ReverseOrder implements SortingRule {
     private final SortingRule delegate;
@@ -32,4 +34,21 @@ public class ReverseOrder implements SortingRule {
     public int compare(TabListContext context, IPlayer player1, IPlayer player2) {
         return -delegate.compare(context, player1, player2);
     }
+
+    @Override
+    public Object getSortKey(TabListContext context, IPlayer player) {
+        return delegate.getSortKey(context, player);
+    }
+
+    @Override
+    public int compareSortKeys(TabListContext context, Object key1, Object key2) {
+        return -delegate.compareSortKeys(context, key1, key2);
+    }
+
+    @Override
+    public ToIntFunction<IPlayer> getIntSortKeyFunction(TabListContext context) {
+        ToIntFunction<IPlayer> keys = delegate.getIntSortKeyFunction(context);
+        // ~ reverses the order without overflowing
+        return keys != null ? player -> ~keys.applyAsInt(player) : null;
+    }
 }
@@ -21,21 +21,14 @@ package codecrafter47.bungeetablistplus.playersorting.rules;
 
 import codecrafter47.bungeetablistplus.BungeeTabListPlus;
 import codecrafter47.bungeetablistplus.api.bungee.IPlayer;
-import codecrafter47.bungeetablistplus.api.bungee.tablist.TabListContext;
 import codecrafter47.bungeetablistplus.player.Player;
-import codecrafter47.bungeetablistplus.playersorting.SortingRule;
 
-import java.text.Collator;
 import java.util.Optional;
 
-public class ServerAlphabetically implements SortingRule {
+public class ServerAlphabetically extends AlphabeticalSortingRule {
+
     @Override
-    public int compare(TabListContext context, IPlayer player1, IPlayer player2) {
-        Optional<String> server1 = ((Player) player1).get(BungeeTabListPlus.DATA_KEY_SERVER);
-        Optional<String> server2 = ((Player) player2).get(BungeeTabListPlus.DATA_KEY_SERVER);
-        if (server1.isPresent() || server2.isPresent()) {
-            return Collator.getInstance().compare(server1.orElse(""), server2.orElse(""));
-        }
-        return 0;
+    protected Optional<String> getValue(IPlayer player) {
+        return ((Player) player).get(BungeeTabListPlus.DATA_KEY_SERVER);
     }
 }
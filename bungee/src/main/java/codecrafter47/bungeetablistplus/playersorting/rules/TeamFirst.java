@@ -27,6 +27,7 @@ import codecrafter47.bungeetablistplus.player.Player;
 import codecrafter47.bungeetablistplus.playersorting.SortingRule;
 
 import java.util.Optional;
+import java.util.function.ToIntFunction;
 
 public class TeamFirst implements SortingRule {
     @Override
@@ -45,4 +46,14 @@ public class TeamFirst implements SortingRule {
         }
         return 0;
     }
+
+    @Override
+    public ToIntFunction<IPlayer> getIntSortKeyFunction(TabListContext context) {
+        IPlayer viewer = BungeeTabListPlus.getInstance().getConnectedPlayerManager().getPlayerIfPresent(context.getViewer());
+        Optional<String> team = viewer != null ? ((Player) viewer).get(DataKeys.Team) : Optional.empty();
+        if (!team.isPresent()) {
+            return player -> 1;
+        }
+        return player -> team.equals(((Player) player).get(DataKeys.Team)) ? 0 : 1;
+    }
 }
@@ -20,22 +20,15 @@
 package codecrafter47.bungeetablistplus.playersorting.rules;
 
 import codecrafter47.bungeetablistplus.api.bungee.IPlayer;
-import codecrafter47.bungeetablistplus.api.bungee.tablist.TabListContext;
 import codecrafter47.bungeetablistplus.data.DataKeys;
 import codecrafter47.bungeetablistplus.player.Player;
-import codecrafter47.bungeetablistplus.playersorting.SortingRule;
 
-import java.text.Collator;
 import java.util.Optional;
 
-public class TeamsAlphabetically implements SortingRule {
+public class TeamsAlphabetically extends AlphabeticalSortingRule {
+
     @Override
-    public int compare(TabListContext context, IPlayer player1, IPlayer player2) {
-        Optional<String> team1 = ((Player) player1).get(DataKeys.Team);
-        Optional<String> team2 = ((Player) player2).get(DataKeys.Team);
-        if (team1.isPresent() || team2.isPresent()) {
-            return Collator.getInstance().compare(team1.orElse(""), team2.orElse(""));
-        }
-        return 0;
+    protected Optional<String> getValue(IPlayer player) {
+        return ((Player) player).get(DataKeys.Team);
     }
 }
@@ -24,27 +24,37 @@ import codecrafter47.bungeetablistplus.api.bungee.tablist.TabListContext;
 import codecrafter47.bungeetablistplus.data.DataKeys;
 import codecrafter47.bungeetablistplus.player.Player;
 import codecrafter47.bungeetablistplus.playersorting.SortingRule;
+import lombok.AllArgsConstructor;
 
 import java.util.Optional;
 
 public class VaultGroupInfo implements SortingRule {
     @Override
     public int compare(TabListContext context, IPlayer player1, IPlayer player2) {
-        {
-            Optional<Integer> p1Rank = ((Player) player1).get(DataKeys.Vault_PermissionGroupWeight);
-            Optional<Integer> p2Rank = ((Player) player2).get(DataKeys.Vault_PermissionGroupWeight);
-            if (p1Rank.isPresent() || p2Rank.isPresent()) {
-                return p1Rank.orElse(Integer.MAX_VALUE) - p2Rank.orElse(Integer.MAX_VALUE);
-            }
-        }
+        return compareSortKeys(context, getSortKey(context, player1), getSortKey(context, player2));
+    }
+
+    @Override
+    public Object getSortKey(TabListContext context, IPlayer player) {
+        return new Key(((Player) player).get(DataKeys.Vault_PermissionGroupWeight), ((Player) player).get(DataKeys.Vault_PermissionGroupRank));
+    }
 
-        {
-            Optional<Integer> p1Rank = ((Player) player1).get(DataKeys.Vault_PermissionGroupRank);
-            Optional<Integer> p2Rank = ((Player) player2).get(DataKeys.Vault_PermissionGroupRank);
-            if (p1Rank.isPresent() || p2Rank.isPresent()) {
-                return p1Rank.orElse(Integer.MAX_VALUE) - p2Rank.orElse(Integer.MAX_VALUE);
-            }
+    @Override
+    public int compareSortKeys(TabListContext context, Object key1, Object key2) {
+        Key k1 = (Key) key1;
+        Key k2 = (Key) key2;
+        if (k1.weight.isPresent() || k2.weight.isPresent()) {
+            return k1.weight.orElse(Integer.MAX_VALUE) - k2.weight.orElse(Integer.MAX_VALUE);
+        }
+        if (k1.rank.isPresent() || k2.rank.isPresent()) {
+            return k1.rank.orElse(Integer.MAX_VALUE) - k2.rank.orElse(Integer.MAX_VALUE);
         }
         return 0;
     }
+
+    @AllArgsConstructor
+    private static class Key {
+        private final Optional<Integer> weight;
+        private final Optional<Integer> rank;
+    }
 }
@@ -19,26 +19,16 @@
 
 package codecrafter47.bungeetablistplus.playersorting.rules;
 
-import codecrafter47.bungeetablistplus.BungeeTabListPlus;
 import codecrafter47.bungeetablistplus.api.bungee.IPlayer;
-import codecrafter47.bungeetablistplus.api.bungee.tablist.TabListContext;
-import codecrafter47.bungeetablistplus.bridge.BukkitBridge;
 import codecrafter47.bungeetablistplus.data.DataKeys;
 import codecrafter47.bungeetablistplus.player.Player;
-import codecrafter47.bungeetablistplus.playersorting.SortingRule;
 
-import java.text.Collator;
 import java.util.Optional;
 
-public class WorldByName implements SortingRule {
+public class WorldByName extends AlphabeticalSortingRule {
+
     @Override
-    public int compare(TabListContext context, IPlayer player1, IPlayer player2) {
-        BukkitBridge bridge = BungeeTabListPlus.getInstance().getBridge();
-        Optional<String> faction1 = ((Player) player1).get(DataKeys.World);
-        Optional<String> faction2 = ((Player) player2).get(DataKeys.World);
-        if (faction1.isPresent() || faction2.isPresent()) {
-            return Collator.getInstance().compare(faction1.orElse(""), faction2.orElse(""));
-        }
-        return 0;
+    protected Optional<String> getValue(IPlayer player) {
+        return ((Player) player).get(DataKeys.World);
     }
 }
@@ -23,6 +23,7 @@ import codecrafter47.bungeetablistplus.api.bungee.tablist.TabListContext;
 import codecrafter47.bungeetablistplus.playersorting.SortingRule;
 
 import java.util.Objects;
+import java.util.function.ToIntFunction;
 
 public class YouFirst implements SortingRule {
 
@@ -37,4 +38,10 @@ public class YouFirst implements SortingRule {
         return 0;
     }
 
+    @Override
+    public ToIntFunction<IPlayer> getIntSortKeyFunction(TabListContext context) {
+        String name = context.getViewer().getName();
+        return player -> Objects.equals(player.getName(), name) ? 0 : 1;
+    }
+
 }
@@ -0,0 +1,172 @@
+/*
+ * BungeeTabListPlus - a BungeeCord plugin to customize the tablist
+ *
+ * Copyright (C) 2014 - 2015 Florian Stober
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package codecrafter47.bungeetablistplus.protocol;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.IllegalReferenceCountException;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import net.md_5.bungee.protocol.DefinedPacket;
+import net.md_5.bungee.protocol.Protocol;
+import net.md_5.bungee.protocol.ProtocolConstants;
+import net.md_5.bungee.protocol.packet.PlayerListHeaderFooter;
+import net.md_5.bungee.protocol.packet.PlayerListItem;
+
+import javax.annotation.Nullable;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Content addressed cache of encoded tab list packets.
+ * <p>
+ * Viewers of the same tab list receive byte-identical header/footer and display name
+ * packets. Each of them is encoded once per protocol version, the encoded buffer is
+ * then written to the channels of all viewers. The buffers bypass the packet encoder
+ * of the connection, the compression and framing handlers still process them like
+ * the packets BungeeCord passes through from the servers.
+ * <p>
+ * The packet id is not exposed by BungeeCord. If it can't be looked up in the protocol
+ * table of the running version the cache is disabled and packets are sent as usual.
+ */
+public final class EncodedPacketCache {
+
+    private static final long MAX_WEIGHT = 4 << 20;
+
+    @Nullable
+    private static final Method getId;
+
+    private static final Cache<Key, ByteBuf> cache = CacheBuilder.newBuilder()
+            .maximumWeight(MAX_WEIGHT)
+            .<Key, ByteBuf>weigher((key, buf) -> buf.capacity())
+            .removalListener((RemovalListener<Key, ByteBuf>) notification -> notification.getValue().release())
+            .build();
+
+    static {
+        Method method;
+        try {
+            method = Protocol.GAME.TO_CLIENT.getClass().getDeclaredMethod("getId", Class.class, int.class);
+            method.setAccessible(true);
+            method.invoke(Protocol.GAME.TO_CLIENT, PlayerListHeaderFooter.class, ProtocolConstants.MINECRAFT_1_8);
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            method = null;
+        }
+        getId = method;
+    }
+
+    private EncodedPacketCache() {
+    }
+
+    /**
+     * @return whether encoded packets are cached with the running BungeeCord version
+     */
+    public static boolean isSupported() {
+        return getId != null;
+    }
+
+    /**
+     * Get the encoded packet, including the packet id. The caller owns a reference to the returned
+     * buffer, which is released by writing it to a channel.
+     *
+     * @param packet          the packet
+     * @param protocolVersion the protocol version of the client
+     * @return the encoded packet, null if packets of this kind are not cached
+     */
+    @Nullable
+    public static ByteBuf get(DefinedPacket packet, int protocolVersion) {
+        if (getId == null) {
+            return null;
+        }
+        List<Object> payload = getPayload(packet);
+        if (payload == null) {
+            return null;
+        }
+        Key key = new Key(protocolVersion, packet.getClass(), payload);
+        ByteBuf buf = cache.getIfPresent(key);
+        if (buf != null) {
+            try {
+                return buf.duplicate().retain();
+            } catch (IllegalReferenceCountException ignored) {
+                // evicted and released concurrently
+            }
+        }
+        buf = encode(packet, protocolVersion);
+        if (buf == null) {
+            return null;
+        }
+        cache.put(key, buf);
+        return buf.duplicate().retain();
+    }
+
+    /**
+     * Copy the fields which make up the encoded packet. Packets and their items are mutable and
+     * may be reused after being sent, so they can't serve as keys themselves.
+     * <p>
+     * Only packets which are likely to be identical for many viewers are cached. Other player
+     * list items are merged per viewer and rarely match.
+     *
+     * @return the payload, null if packets of this kind are not cached
+     */
+    @Nullable
+    private static List<Object> getPayload(DefinedPacket packet) {
+        if (packet instanceof PlayerListHeaderFooter) {
+            PlayerListHeaderFooter headerFooter = (PlayerListHeaderFooter) packet;
+            return Arrays.asList(headerFooter.getHeader(), headerFooter.getFooter());
+        }
+        if (packet instanceof PlayerListItem && ((PlayerListItem) packet).getAction() == PlayerListItem.Action.UPDATE_DISPLAY_NAME) {
+            PlayerListItem.Item[] items = ((PlayerListItem) packet).getItems();
+            List<Object> payload = new ArrayList<>(items.length * 2);
+            for (PlayerListItem.Item item : items) {
+                payload.add(item.getUuid());
+                payload.add(item.getDisplayName());
+            }
+            return payload;
+        }
+        return null;
+    }
+
+    @Nullable
+    private static ByteBuf encode(DefinedPacket packet, int protocolVersion) {
+        int id;
+        try {
+            id = (Integer) getId.invoke(Protocol.GAME.TO_CLIENT, packet.getClass(), protocolVersion);
+        } catch (ReflectiveOperationException ex) {
+            // packet unknown in this protocol version
+            return null;
+        }
+        ByteBuf buf = Unpooled.buffer();
+        DefinedPacket.writeVarInt(id, buf);
+        packet.write(buf, ProtocolConstants.Direction.TO_CLIENT, protocolVersion);
+        return buf.capacity(buf.writerIndex());
+    }
+
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    private static final class Key {
+        private final int protocolVersion;
+        private final Class<?> type;
+        private final List<Object> payload;
+    }
+}
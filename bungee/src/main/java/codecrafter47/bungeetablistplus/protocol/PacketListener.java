@@ -20,6 +20,7 @@
 package codecrafter47.bungeetablistplus.protocol;
 
 import codecrafter47.bungeetablistplus.BungeeTabListPlus;
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToMessageDecoder;
 import net.md_5.bungee.ServerConnection;
@@ -31,6 +32,8 @@ import net.md_5.bungee.protocol.packet.PlayerListItem;
 import net.md_5.bungee.protocol.packet.Team;
 
 import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
 
 public class PacketListener extends MessageToMessageDecoder<PacketWrapper> {
     private final ServerConnection connection;
@@ -63,11 +66,13 @@ public class PacketListener extends MessageToMessageDecoder<PacketWrapper> {
                     if (result == PacketListenerResult.CANCEL) {
                         return;
                     } else if (result == PacketListenerResult.MODIFIED) {
-                        int readerIndex = packetWrapper.buf.readerIndex();
-                        DefinedPacket.readVarInt(packetWrapper.buf);
-                        packetWrapper.buf.writerIndex(packetWrapper.buf.readerIndex());
-                        packetWrapper.packet.write(packetWrapper.buf, ProtocolConstants.Direction.TO_CLIENT, protocolVersion);
-                        packetWrapper.buf.readerIndex(readerIndex);
+                        if (!(packetWrapper.packet instanceof PlayerListItem) || !patchPlayerListItem(packetWrapper.buf, (PlayerListItem) packetWrapper.packet)) {
+                            int readerIndex = packetWrapper.buf.readerIndex();
+                            DefinedPacket.readVarInt(packetWrapper.buf);
+                            packetWrapper.buf.writerIndex(packetWrapper.buf.readerIndex());
+                            packetWrapper.packet.write(packetWrapper.buf, ProtocolConstants.Direction.TO_CLIENT, protocolVersion);
+                            packetWrapper.buf.readerIndex(readerIndex);
+                        }
                     }
                 }
             }
@@ -81,4 +86,63 @@ public class PacketListener extends MessageToMessageDecoder<PacketWrapper> {
             }
         }
     }
+
+    /**
+     * Writes the uuids of a modified player list packet directly to the buffer. Only possible if nothing
+     * else has been changed, otherwise the packet needs to be encoded again.
+     *
+     * @return true if the buffer has been updated, false if the buffer has been left untouched
+     */
+    private static boolean patchPlayerListItem(ByteBuf buf, PlayerListItem packet) {
+        if (packet.getAction() == PlayerListItem.Action.ADD_PLAYER) {
+            // properties may have been replaced as well
+            return false;
+        }
+        ByteBuf in = buf.duplicate();
+        DefinedPacket.readVarInt(in);
+        if (DefinedPacket.readVarInt(in) != packet.getAction().ordinal()) {
+            return false;
+        }
+        PlayerListItem.Item[] items = packet.getItems();
+        if (DefinedPacket.readVarInt(in) != items.length) {
+            return false;
+        }
+        int[] uuidIndex = new int[items.length];
+        for (int i = 0; i < items.length; i++) {
+            PlayerListItem.Item item = items[i];
+            uuidIndex[i] = in.readerIndex();
+            in.skipBytes(16);
+            switch (packet.getAction()) {
+                case UPDATE_GAMEMODE:
+                    if (DefinedPacket.readVarInt(in) != item.getGamemode()) {
+                        return false;
+                    }
+                    break;
+                case UPDATE_LATENCY:
+                    if (DefinedPacket.readVarInt(in) != item.getPing()) {
+                        return false;
+                    }
+                    break;
+                case UPDATE_DISPLAY_NAME:
+                    String displayName = in.readBoolean() ? DefinedPacket.readString(in) : null;
+                    if (!Objects.equals(displayName, item.getDisplayName())) {
+                        return false;
+                    }
+                    break;
+                case REMOVE_PLAYER:
+                    break;
+                default:
+                    return false;
+            }
+        }
+        if (in.isReadable()) {
+            return false;
+        }
+        for (int i = 0; i < items.length; i++) {
+            UUID uuid = items[i].getUuid();
+            buf.setLong(uuidIndex[i], uuid.getMostSignificantBits());
+            buf.setLong(uuidIndex[i] + 8, uuid.getLeastSignificantBits());
+        }
+        return true;
+    }
 }
@@ -45,6 +45,6 @@ public class PlayerSkin implements Skin {
     }
 
     public static Skin fromIcon(Icon icon) {
-        return new PlayerSkin(icon.getPlayer(), icon.getProperties());
+        return SkinPool.skin(icon.getPlayer(), icon.getProperties());
     }
 }
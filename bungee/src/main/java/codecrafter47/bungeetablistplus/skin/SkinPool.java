@@ -0,0 +1,97 @@
+/*
+ * BungeeTabListPlus - a BungeeCord plugin to customize the tablist
+ *
+ * Copyright (C) 2014 - 2015 Florian Stober
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package codecrafter47.bungeetablistplus.skin;
+
+import codecrafter47.bungeetablistplus.api.bungee.Icon;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Deduplicates skin properties across the proxy.
+ * <p>
+ * The same texture is shown in the tab lists of many players. All paths creating
+ * an {@link Icon} or a {@link PlayerSkin} go through this class, so each texture is
+ * held only once, and equal icons are the same instance. Entries are weakly referenced
+ * and disappear once the texture is no longer used.
+ */
+public final class SkinPool {
+
+    private static final String[][] EMPTY = Icon.DEFAULT.getProperties();
+
+    // keyed by the texture signature
+    private static final Cache<String, String[][]> properties = CacheBuilder.newBuilder().weakValues().build();
+    private static final Interner<Icon> icons = Interners.newWeakInterner();
+
+    static {
+        icons.intern(Icon.DEFAULT);
+    }
+
+    private SkinPool() {
+    }
+
+    /**
+     * Get the shared instance of the given skin properties.
+     */
+    public static String[][] intern(String[][] properties) {
+        if (properties.length == 0) {
+            return EMPTY;
+        }
+        if (properties.length != 1 || properties[0].length < 2) {
+            return properties;
+        }
+        String[] textures = properties[0];
+        String key = textures.length > 2 && textures[2] != null ? textures[2] : textures[1];
+        if (key == null) {
+            return properties;
+        }
+        String[][] shared;
+        try {
+            shared = SkinPool.properties.get(key, () -> properties);
+        } catch (ExecutionException ex) {
+            return properties;
+        }
+        return shared == properties || Arrays.deepEquals(shared, properties) ? shared : properties;
+    }
+
+    /**
+     * Get the shared instance of an icon. Icons returned by this method can be compared by reference.
+     */
+    public static Icon icon(Icon icon) {
+        String[][] properties = intern(icon.getProperties());
+        if (properties != icon.getProperties()) {
+            icon = new Icon(icon.getPlayer(), properties);
+        }
+        return icons.intern(icon);
+    }
+
+    public static Icon icon(UUID owner, String[][] properties) {
+        return icons.intern(new Icon(owner, intern(properties)));
+    }
+
+    public static PlayerSkin skin(UUID owner, String[][] properties) {
+        return new PlayerSkin(owner, intern(properties));
+    }
+}
@@ -0,0 +1,531 @@
+/*
+ * BungeeTabListPlus - a BungeeCord plugin to customize the tablist
+ *
+ * Copyright (C) 2014 - 2015 Florian Stober
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package codecrafter47.bungeetablistplus.skin;
+
+import codecrafter47.bungeetablistplus.api.bungee.Skin;
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+
+import javax.annotation.Nullable;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Persistent skin cache which survives restarts.
+ * <p>
+ * Skins are appended to a log file. A memory mapped hash table maps the hash of
+ * each key to the position of its latest record in the log, so a lookup reads a
+ * single record instead of parsing the whole file. The index is loaded, or rebuilt
+ * from the log, by {@link #open()}, which should be called off the threads which
+ * render tab lists.
+ * <p>
+ * Each record carries the time after which it should be refreshed. Expired records
+ * are still returned, so a skin can be shown while it is fetched again. Records
+ * replaced by a newer one, as well as records expired for a long time, are removed
+ * by {@link #compact()}, which only holds the lock of the store while it swaps in
+ * the compacted log, so lookups are not blocked while the log is rewritten.
+ */
+public class SkinStore implements Closeable {
+
+    private static final int MAGIC = 0x4254534b;
+    private static final int VERSION = 1;
+
+    // magic, version, capacity, size, log length, live bytes
+    private static final int HEADER_SIZE = 32;
+    // key hash, record position
+    private static final int SLOT_SIZE = 16;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private static final long DISCARD_AFTER = TimeUnit.DAYS.toMillis(30);
+    private static final long MIN_COMPACTION_SIZE = 1 << 20;
+
+    private final File logFile;
+    private final File indexFile;
+    private final Logger logger;
+    private final Object compactionLock = new Object();
+
+    private RandomAccessFile log;
+    private RandomAccessFile index;
+    private MappedByteBuffer table;
+    private int capacity;
+    private int size;
+    private long liveBytes;
+
+    private volatile boolean ready = false;
+    private boolean opened = false;
+    private boolean failed = false;
+    private boolean closed = false;
+
+    public SkinStore(File directory, Logger logger) {
+        this.logFile = new File(directory, "skins.log");
+        this.indexFile = new File(directory, "skins.idx");
+        this.logger = logger;
+    }
+
+    /**
+     * Open the store. If the index is missing or damaged it is rebuilt from the
+     * log, which may take a while.
+     */
+    public synchronized void open() {
+        ensureOpen();
+    }
+
+    /**
+     * @return whether {@link #open()} has completed, successfully or not. Lookups
+     * will not load the index once this returns true.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Look up a skin.
+     *
+     * @param key the key
+     * @return the skin, null if the key is unknown
+     */
+    @Nullable
+    public synchronized CachedSkin get(String key) {
+        if (!ensureOpen()) {
+            return null;
+        }
+        try {
+            int slot = findSlot(hash(key));
+            if (table.getLong(HEADER_SIZE + slot * SLOT_SIZE) == 0) {
+                return null;
+            }
+            Record record = readRecord(log, table.getLong(HEADER_SIZE + slot * SLOT_SIZE + 8));
+            return record.key.equals(key) ? record.toCachedSkin() : null;
+        } catch (IOException ex) {
+            fail("Failed to read from the skin cache", ex);
+            return null;
+        }
+    }
+
+    /**
+     * Store a skin.
+     *
+     * @param key       the key
+     * @param skin      the skin
+     * @param expiresAt the time after which the skin should be fetched again
+     */
+    public synchronized void put(String key, Skin skin, long expiresAt) {
+        if (!ensureOpen()) {
+            return;
+        }
+        String[][] properties = skin.toProperty();
+        if (properties.length != 1 || properties[0].length < 3) {
+            return;
+        }
+        try {
+            Record record = new Record(key, expiresAt, skin.getOwner(), properties[0][1], properties[0][2]);
+            long position = log.length();
+            byte[] bytes = record.toBytes();
+            log.seek(position);
+            log.write(bytes);
+            putSlot(hash(key), position, bytes.length);
+            table.putLong(16, log.length());
+            table.putLong(24, liveBytes);
+        } catch (IOException ex) {
+            fail("Failed to write to the skin cache", ex);
+        }
+    }
+
+    /**
+     * @return whether most of the log consists of records which have been replaced
+     */
+    public synchronized boolean needsCompaction() {
+        try {
+            return opened && !failed && log.length() > MIN_COMPACTION_SIZE && log.length() > 2 * liveBytes;
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Rewrite the log keeping only the latest record of each key. Records which
+     * expired a long time ago are dropped.
+     * <p>
+     * The records are copied from a snapshot of the index without holding the lock
+     * of the store. Records written in the meantime are appended to the new log
+     * once it is swapped in.
+     */
+    public void compact() {
+        synchronized (compactionLock) {
+            long[] snapshot;
+            long end;
+            RandomAccessFile source;
+            synchronized (this) {
+                if (!ensureOpen()) {
+                    return;
+                }
+                snapshot = new long[capacity * 2];
+                for (int slot = 0; slot < capacity; slot++) {
+                    snapshot[slot * 2] = table.getLong(HEADER_SIZE + slot * SLOT_SIZE);
+                    snapshot[slot * 2 + 1] = table.getLong(HEADER_SIZE + slot * SLOT_SIZE + 8);
+                }
+                source = log;
+                try {
+                    end = log.length();
+                } catch (IOException ex) {
+                    fail("Failed to compact the skin cache", ex);
+                    return;
+                }
+            }
+
+            File compacted = new File(logFile.getParentFile(), logFile.getName() + ".compact");
+            long discardBefore = System.currentTimeMillis() - DISCARD_AFTER;
+            int count = 0;
+            long[] hashes = new long[snapshot.length / 2];
+            long[] positions = new long[snapshot.length / 2];
+            int[] lengths = new int[snapshot.length / 2];
+            long position = 0;
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(compacted)))) {
+                for (int i = 0; i < snapshot.length; i += 2) {
+                    if (snapshot[i] == 0) {
+                        continue;
+                    }
+                    // positional reads, puts only append to the log
+                    Record record = readRecord(source, snapshot[i + 1]);
+                    if (record.expiresAt < discardBefore) {
+                        continue;
+                    }
+                    byte[] bytes = record.toBytes();
+                    out.write(bytes);
+                    hashes[count] = snapshot[i];
+                    positions[count] = position;
+                    lengths[count++] = bytes.length;
+                    position += bytes.length;
+                }
+            } catch (IOException ex) {
+                compacted.delete();
+                synchronized (this) {
+                    if (opened) {
+                        fail("Failed to compact the skin cache", ex);
+                    }
+                }
+                return;
+            }
+
+            synchronized (this) {
+                if (!opened || log != source) {
+                    // closed in the meantime
+                    compacted.delete();
+                    return;
+                }
+                try {
+                    long tail = log.length() - end;
+                    try (FileChannel target = FileChannel.open(compacted.toPath(), StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                        long transferred = 0;
+                        while (transferred < tail) {
+                            transferred += log.getChannel().transferTo(end + transferred, tail - transferred, target);
+                        }
+                    }
+                    log.close();
+                    Files.move(compacted.toPath(), logFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                    log = new RandomAccessFile(logFile, "rw");
+                    resetIndex(capacity);
+                    for (int i = 0; i < count; i++) {
+                        putSlot(hashes[i], positions[i], lengths[i]);
+                    }
+                    // records written while compacting, they replace older ones
+                    long length = log.length();
+                    while (position < length) {
+                        Record record = readRecord(log, position);
+                        putSlot(hash(record.key), position, record.length);
+                        position += record.length;
+                    }
+                    table.putLong(16, log.length());
+                    table.putLong(24, liveBytes);
+                } catch (IOException ex) {
+                    compacted.delete();
+                    fail("Failed to compact the skin cache", ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Write the index to disk and release the files. The store can not be
+     * opened again afterwards.
+     */
+    @Override
+    public synchronized void close() {
+        try {
+            if (table != null) {
+                table.force();
+            }
+            if (log != null) {
+                log.close();
+            }
+            if (index != null) {
+                index.close();
+            }
+        } catch (IOException ex) {
+            logger.log(Level.WARNING, "Failed to close the skin cache", ex);
+        }
+        table = null;
+        log = null;
+        index = null;
+        opened = false;
+        closed = true;
+    }
+
+    private boolean ensureOpen() {
+        if (opened || failed || closed) {
+            return opened;
+        }
+        try {
+            Files.createDirectories(logFile.getParentFile().toPath());
+            log = new RandomAccessFile(logFile, "rw");
+            index = new RandomAccessFile(indexFile, "rw");
+            if (!loadIndex()) {
+                rebuildIndex();
+            }
+            opened = true;
+        } catch (IOException ex) {
+            fail("Failed to open the skin cache", ex);
+        } finally {
+            ready = true;
+        }
+        return opened;
+    }
+
+    private boolean loadIndex() throws IOException {
+        if (index.length() < HEADER_SIZE) {
+            return false;
+        }
+        table = index.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, index.length());
+        capacity = table.getInt(8);
+        if (table.getInt(0) != MAGIC || table.getInt(4) != VERSION
+                || Integer.bitCount(capacity) != 1 || index.length() < HEADER_SIZE + (long) capacity * SLOT_SIZE
+                || table.getLong(16) != log.length()) {
+            // the index does not match the log, e.g. after a crash
+            return false;
+        }
+        size = table.getInt(12);
+        liveBytes = table.getLong(24);
+        return true;
+    }
+
+    /**
+     * Recreate the index by scanning the log. Only needed if the index is missing or
+     * has not been written completely.
+     */
+    private void rebuildIndex() throws IOException {
+        resetIndex(INITIAL_CAPACITY);
+        long position = 0;
+        long length = log.length();
+        if (length > 0) {
+            logger.info("Rebuilding skin cache index");
+        }
+        while (position < length) {
+            Record record;
+            try {
+                record = readRecord(log, position);
+            } catch (EOFException | UTFDataFormatException ex) {
+                // incomplete record at the end of the log
+                log.setLength(position);
+                break;
+            }
+            int recordLength = record.length;
+            putSlot(hash(record.key), position, recordLength);
+            position += recordLength;
+        }
+        table.putLong(16, log.length());
+        table.putLong(24, liveBytes);
+    }
+
+    private void resetIndex(int capacity) throws IOException {
+        long length = HEADER_SIZE + (long) capacity * SLOT_SIZE;
+        if (index.length() < length) {
+            index.setLength(length);
+        }
+        table = index.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, length);
+        for (int i = 0; i < length; i += 8) {
+            table.putLong(i, 0);
+        }
+        table.putInt(0, MAGIC);
+        table.putInt(4, VERSION);
+        table.putInt(8, capacity);
+        table.putInt(12, 0);
+        this.capacity = capacity;
+        this.size = 0;
+        this.liveBytes = 0;
+    }
+
+    private int findSlot(long hash) {
+        int mask = capacity - 1;
+        int slot = (int) hash & mask;
+        long h;
+        while ((h = table.getLong(HEADER_SIZE + slot * SLOT_SIZE)) != 0 && h != hash) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void putSlot(long hash, long position, int recordLength) throws IOException {
+        int slot = findSlot(hash);
+        int offset = HEADER_SIZE + slot * SLOT_SIZE;
+        if (table.getLong(offset) == 0) {
+            table.putLong(offset, hash);
+            table.putInt(12, ++size);
+        } else {
+            liveBytes -= readRecord(log, table.getLong(offset + 8)).length;
+        }
+        table.putLong(offset + 8, position);
+        liveBytes += recordLength;
+        if (size * 2 > capacity) {
+            grow();
+        }
+    }
+
+    private void grow() throws IOException {
+        long[] hashes = new long[size];
+        long[] positions = new long[size];
+        int count = 0;
+        for (int slot = 0; slot < capacity; slot++) {
+            long hash = table.getLong(HEADER_SIZE + slot * SLOT_SIZE);
+            if (hash != 0) {
+                hashes[count] = hash;
+                positions[count++] = table.getLong(HEADER_SIZE + slot * SLOT_SIZE + 8);
+            }
+        }
+        long liveBytes = this.liveBytes;
+        resetIndex(capacity * 2);
+        for (int i = 0; i < count; i++) {
+            int slot = findSlot(hashes[i]);
+            table.putLong(HEADER_SIZE + slot * SLOT_SIZE, hashes[i]);
+            table.putLong(HEADER_SIZE + slot * SLOT_SIZE + 8, positions[i]);
+        }
+        size = count;
+        table.putInt(12, size);
+        this.liveBytes = liveBytes;
+    }
+
+    private static Record readRecord(RandomAccessFile log, long position) throws IOException {
+        FileChannel channel = log.getChannel();
+        ByteBuffer lengthBuffer = ByteBuffer.allocate(4);
+        readFully(channel, lengthBuffer, position);
+        int length = lengthBuffer.getInt(0);
+        if (length < 0 || position + 4 + length > channel.size()) {
+            throw new EOFException();
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        readFully(channel, buffer, position + 4);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(buffer.array()));
+        String key = in.readUTF();
+        long expiresAt = in.readLong();
+        UUID owner = in.readBoolean() ? new UUID(in.readLong(), in.readLong()) : null;
+        String value = in.readUTF();
+        String signature = in.readUTF();
+        Record record = new Record(key, expiresAt, owner, value, signature);
+        record.length = 4 + length;
+        return record;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    private void fail(String message, IOException ex) {
+        logger.log(Level.WARNING, message + ", skins will be fetched again after a restart", ex);
+        failed = true;
+        close();
+    }
+
+    private static long hash(String key) {
+        long hash = Hashing.murmur3_128().hashString(key, Charsets.UTF_8).asLong();
+        // 0 marks an empty slot
+        return hash == 0 ? 1 : hash;
+    }
+
+    private static class Record {
+        private final String key;
+        private final long expiresAt;
+        private final UUID owner;
+        private final String value;
+        private final String signature;
+        private int length;
+
+        private Record(String key, long expiresAt, UUID owner, String value, String signature) {
+            this.key = key;
+            this.expiresAt = expiresAt;
+            this.owner = owner;
+            this.value = value;
+            this.signature = signature;
+        }
+
+        private byte[] toBytes() throws IOException {
+            ByteArrayOutputStream os = new ByteArrayOutputStream(value.length() + signature.length() + 128);
+            DataOutputStream out = new DataOutputStream(os);
+            out.writeInt(0);
+            out.writeUTF(key);
+            out.writeLong(expiresAt);
+            out.writeBoolean(owner != null);
+            if (owner != null) {
+                out.writeLong(owner.getMostSignificantBits());
+                out.writeLong(owner.getLeastSignificantBits());
+            }
+            out.writeUTF(value);
+            out.writeUTF(signature);
+            out.close();
+            byte[] bytes = os.toByteArray();
+            ByteBuffer.wrap(bytes).putInt(0, bytes.length - 4);
+            length = bytes.length;
+            return bytes;
+        }
+
+        private CachedSkin toCachedSkin() {
+            return new CachedSkin(SkinPool.skin(owner, new String[][]{{"textures", value, signature}}), expiresAt);
+        }
+    }
+
+    public static class CachedSkin {
+        private final Skin skin;
+        private final long expiresAt;
+
+        private CachedSkin(Skin skin, long expiresAt) {
+            this.skin = skin;
+            this.expiresAt = expiresAt;
+        }
+
+        public Skin getSkin() {
+            return skin;
+        }
+
+        public boolean isExpired() {
+            return System.currentTimeMillis() > expiresAt;
+        }
+    }
+}
@@ -172,6 +172,21 @@ public abstract class AbstractCustomTablist implements CustomTablist {
         }
     }
 
+    /**
+     * Same as {@link #setSlot(int, int, Icon, String, int)}, but the text is only turned into a string if it differs
+     * from the current text of the slot. Allows rendering into a reused buffer.
+     */
+    public synchronized void setSlot(int row, int column, @Nonnull @NonNull Icon icon, @Nonnull @NonNull CharSequence text, int ping) {
+        int index = index(row, column);
+        if (this.icon[index].equals(icon) && this.text[index].contentEquals(text) && this.ping[index] == ping) {
+            return;
+        }
+        this.icon[index] = icon;
+        this.text[index] = text.toString();
+        this.ping[index] = ping;
+        onSlotChanged(row, column, text);
+    }
+
     @Override
     @Nullable
     public String getHeader() {
@@ -204,5 +219,13 @@ public abstract class AbstractCustomTablist implements CustomTablist {
 
     protected abstract void onSlotChanged(int row, int column);
 
+    /**
+     * Called instead of {@link #onSlotChanged(int, int)} if the slot has been set from a buffer. Allows
+     * processing the text straight from the buffer, which is only valid during the call.
+     */
+    protected void onSlotChanged(int row, int column, CharSequence text) {
+        onSlotChanged(row, column);
+    }
+
     protected abstract void onHeaderOrFooterChanged();
 }
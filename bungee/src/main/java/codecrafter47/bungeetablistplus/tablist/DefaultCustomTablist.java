@@ -26,35 +26,47 @@ import codecrafter47.bungeetablistplus.util.FastChat;
 import com.google.common.base.Preconditions;
 import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
 import it.unimi.dsi.fastutil.objects.ReferenceSet;
+import lombok.AllArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
 
 import static java.lang.Integer.min;
 
 public class DefaultCustomTablist extends AbstractCustomTablist implements TablistProvider {
     private ReferenceSet<PlayerTablistHandler> handlers = new ReferenceOpenHashSet<>();
 
+    private int batchDepth = 0;
+    private List<Update> pendingUpdates = new ArrayList<>();
+
     @Override
     public synchronized void onActivated(PlayerTablistHandler handler) {
         Preconditions.checkState(!handlers.contains(handler));
         handlers.add(handler);
         handler.runInEventLoop(() -> {
             synchronized (DefaultCustomTablist.this) {
-                handler.setResizePolicy(PlayerTablistHandler.ResizePolicy.DEFAULT);
-                int size = min(80, getSize());
-                handler.setSize(size);
-                handler.setPassThrough(false);
-
-                for (int column = 0; column < getColumns(); column++) {
-                    for (int row = 0; row < getRows(); row++) {
-                        Icon icon = getIcon(row, column);
-                        String text = getText(row, column);
-                        int ping = getPing(row, column);
-
-                        handler.setSlot(row, column, icon, FastChat.legacyTextToJson(text, '&'), ping);
+                handler.beginBatch();
+                try {
+                    handler.setResizePolicy(PlayerTablistHandler.ResizePolicy.DEFAULT);
+                    int size = min(80, getSize());
+                    handler.setSize(size);
+                    handler.setPassThrough(false);
+
+                    for (int column = 0; column < getColumns(); column++) {
+                        for (int row = 0; row < getRows(); row++) {
+                            Icon icon = getIcon(row, column);
+                            String text = getText(row, column);
+                            int ping = getPing(row, column);
+
+                            handler.setSlot(row, column, icon, FastChat.legacyTextToJson(text, '&'), ping);
+                        }
                     }
-                }
 
-                handler.setHeaderFooter(FastChat.legacyTextToJson(getHeader(), '&')
-                        , FastChat.legacyTextToJson(getFooter(), '&'));
+                    handler.setHeaderFooter(FastChat.legacyTextToJson(getHeader(), '&')
+                            , FastChat.legacyTextToJson(getFooter(), '&'));
+                } finally {
+                    handler.commitBatch();
+                }
             }
         });
     }
@@ -66,30 +78,122 @@ public class DefaultCustomTablist extends AbstractCustomTablist implements Tabli
         }
     }
 
-    @Override
-    protected void onSizeChanged() {
-        int size = getSize();
+    /**
+     * Starts a batch of changes. Changes are collected until the matching call to
+     * {@link #commitBatch()} and then sent to each client in a single batch.
+     */
+    public synchronized void beginBatch() {
+        batchDepth++;
+    }
+
+    public synchronized void commitBatch() {
+        Preconditions.checkState(batchDepth > 0, "No batch in progress");
+        if (--batchDepth == 0) {
+            sendPendingUpdates();
+        }
+    }
+
+    /**
+     * Ends a batch of changes without sending them. Afterwards the content of the tab list no longer matches what
+     * has been sent to the clients, so it must not be shown to anyone anymore.
+     */
+    public synchronized void discardBatch() {
+        Preconditions.checkState(batchDepth > 0, "No batch in progress");
+        if (--batchDepth == 0) {
+            pendingUpdates = new ArrayList<>();
+        }
+    }
+
+    private void sendPendingUpdates() {
+        if (!pendingUpdates.isEmpty()) {
+            List<Update> updates = pendingUpdates;
+            pendingUpdates = new ArrayList<>();
+            for (PlayerTablistHandler handler : handlers) {
+                handler.runInEventLoop(() -> {
+                    handler.beginBatch();
+                    try {
+                        for (Update update : updates) {
+                            update.apply(handler);
+                        }
+                    } finally {
+                        handler.commitBatch();
+                    }
+                });
+            }
+        }
+    }
+
+    private void send(Update update) {
+        if (batchDepth > 0) {
+            pendingUpdates.add(update);
+            return;
+        }
         for (PlayerTablistHandler handler : handlers) {
-            handler.runInEventLoop(() -> handler.setSize(size));
+            handler.runInEventLoop(() -> update.apply(handler));
         }
     }
 
+    @Override
+    protected void onSizeChanged() {
+        // queued in order, as slot updates refer to the size at the time they were made
+        send(new SizeUpdate(getSize()));
+    }
+
     @Override
     protected void onSlotChanged(int row, int column) {
+        onSlotChanged(row, column, getText(row, column));
+    }
+
+    @Override
+    protected void onSlotChanged(int row, int column, CharSequence text) {
         Icon icon = getIcon(row, column);
-        String text = FastChat.legacyTextToJson(getText(row, column), '&');
         int ping = getPing(row, column);
-        for (PlayerTablistHandler handler : handlers) {
-            handler.runInEventLoop(() -> handler.setSlot(row, column, icon, text, ping));
-        }
+        send(new SlotUpdate(row, column, icon, FastChat.legacyTextToJson(text, '&'), ping));
     }
 
     @Override
     protected void onHeaderOrFooterChanged() {
-        String header = getHeader();
-        String footer = getFooter();
-        for (PlayerTablistHandler handler : handlers) {
-            handler.runInEventLoop(() -> handler.setHeaderFooter(FastChat.legacyTextToJson(header, '&'), FastChat.legacyTextToJson(footer, '&')));
+        String header = FastChat.legacyTextToJson(getHeader(), '&');
+        String footer = FastChat.legacyTextToJson(getFooter(), '&');
+        send(new HeaderFooterUpdate(header, footer));
+    }
+
+    private static abstract class Update {
+        abstract void apply(PlayerTablistHandler handler);
+    }
+
+    @AllArgsConstructor
+    private static class SlotUpdate extends Update {
+        private final int row;
+        private final int column;
+        private final Icon icon;
+        private final String text;
+        private final int ping;
+
+        @Override
+        void apply(PlayerTablistHandler handler) {
+            handler.setSlot(row, column, icon, text, ping);
+        }
+    }
+
+    @AllArgsConstructor
+    private static class SizeUpdate extends Update {
+        private final int size;
+
+        @Override
+        void apply(PlayerTablistHandler handler) {
+            handler.setSize(size);
+        }
+    }
+
+    @AllArgsConstructor
+    private static class HeaderFooterUpdate extends Update {
+        private final String header;
+        private final String footer;
+
+        @Override
+        void apply(PlayerTablistHandler handler) {
+            handler.setHeaderFooter(header, footer);
         }
     }
 }
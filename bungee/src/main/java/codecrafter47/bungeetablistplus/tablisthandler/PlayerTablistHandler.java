@@ -24,6 +24,7 @@ import codecrafter47.bungeetablistplus.api.bungee.Icon;
 import codecrafter47.bungeetablistplus.api.bungee.Skin;
 import codecrafter47.bungeetablistplus.api.bungee.tablist.Slot;
 import codecrafter47.bungeetablistplus.api.bungee.tablist.TabList;
+import codecrafter47.bungeetablistplus.skin.SkinPool;
 import codecrafter47.bungeetablistplus.tablisthandler.logic.TabListLogic;
 import codecrafter47.bungeetablistplus.tablistproviders.LegacyTablistProvider;
 import codecrafter47.bungeetablistplus.tablistproviders.TablistProvider;
@@ -106,6 +107,14 @@ public abstract class PlayerTablistHandler {
 
     public abstract void setSlot(int row, int column, Icon icon, String text, int ping);
 
+    /**
+     * Starts a batch of updates. Slot changes made until {@link #commitBatch()} is called are sent
+     * to the client using as few packets as possible. Must be called from the event loop.
+     */
+    public abstract void beginBatch();
+
+    public abstract void commitBatch();
+
     @AllArgsConstructor
     @Getter
     public enum ResizePolicy {
@@ -140,6 +149,15 @@ public abstract class PlayerTablistHandler {
                 tabList = tabList.flip();
             }
 
+            handle.beginBatch();
+            try {
+                sendTabList0(tabList);
+            } finally {
+                handle.commitBatch();
+            }
+        }
+
+        private void sendTabList0(TabList tabList) {
             handle.setResizePolicy(tabList.shouldShrink() ? ResizePolicy.DYNAMIC : ResizePolicy.DEFAULT);
             int size = min(80, tabList.shouldShrink() ? tabList.getUsedSlots() : tabList.getSize());
             handle.setSize(size);
@@ -161,11 +179,11 @@ public abstract class PlayerTablistHandler {
                     }
 
                     Skin skin1 = slot.getSkin();
-                    Icon skin = new Icon(skin1.getOwner(), skin1.toProperty());
+                    Icon skin = SkinPool.icon(skin1.getOwner(), skin1.toProperty());
                     handle.setSlot(i, skin, FastChat.legacyTextToJson(text, '&'), slot.getPing());
                 } else {
                     Skin skin1 = tabList.getDefaultSkin();
-                    Icon skin = new Icon(skin1.getOwner(), skin1.toProperty());
+                    Icon skin = SkinPool.icon(skin1.getOwner(), skin1.toProperty());
                     handle.setSlot(i, skin, FastChat.legacyTextToJson("", '&'), tabList.getDefaultPing());
                 }
             }
@@ -198,6 +216,16 @@ public abstract class PlayerTablistHandler {
                 handle.setSlot(index, icon, text, ping);
             }
         }
+
+        @Override
+        public void beginBatch() {
+            handle.beginBatch();
+        }
+
+        @Override
+        public void commitBatch() {
+            handle.commitBatch();
+        }
     }
 
     private static class Legacy extends PlayerTablistHandler {
@@ -270,5 +298,15 @@ public abstract class PlayerTablistHandler {
                 handle.setSlot(index, text, ping);
             }
         }
+
+        @Override
+        public void beginBatch() {
+            // legacy clients need one packet per slot either way
+        }
+
+        @Override
+        public void commitBatch() {
+            // legacy clients need one packet per slot either way
+        }
     }
 }
@@ -21,19 +21,21 @@ package codecrafter47.bungeetablistplus.tablisthandler.logic;
 
 import codecrafter47.bungeetablistplus.api.bungee.Icon;
 import codecrafter47.bungeetablistplus.protocol.PacketListenerResult;
+import codecrafter47.bungeetablistplus.skin.SkinPool;
 import codecrafter47.bungeetablistplus.tablisthandler.PlayerTablistHandler;
 import codecrafter47.bungeetablistplus.util.Object2IntHashMultimap;
 import com.google.common.base.Charsets;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import it.unimi.dsi.fastutil.ints.IntIterator;
 import it.unimi.dsi.fastutil.objects.Object2IntMap;
 import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
-import lombok.AllArgsConstructor;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.Setter;
 import net.md_5.bungee.protocol.DefinedPacket;
 import net.md_5.bungee.protocol.packet.PlayerListHeaderFooter;
@@ -76,6 +78,9 @@ public abstract class AbstractTabListLogic extends TabListHandler {
     protected String serverHeader = null;
     protected String serverFooter = null;
 
+    // team and player names are held by the tab lists of all players on a server
+    private static final Interner<String> sharedStrings = Interners.newWeakInterner();
+
     protected final Map<String, TeamData> serverTeams = new Object2ObjectOpenHashMap<>();
     protected final Map<String, String> playerToTeamMap = new Object2ObjectOpenHashMap<>();
     protected final Object2IntMap<String> nameToSlotMap;
@@ -103,6 +108,9 @@ public abstract class AbstractTabListLogic extends TabListHandler {
 
     protected boolean passtrough = true;
 
+    private int batchDepth = 0;
+    private final List<PendingPlayerListItem> pendingPlayerListItems = new ArrayList<>();
+
     @Setter
     protected PlayerTablistHandler.ResizePolicy resizePolicy = PlayerTablistHandler.ResizePolicy.DEFAULT;
 
@@ -112,7 +120,80 @@ public abstract class AbstractTabListLogic extends TabListHandler {
 
     abstract protected UUID getUniqueId();
 
-    abstract protected void sendPacket(DefinedPacket packet);
+    abstract protected void writePacket(DefinedPacket packet);
+
+    /**
+     * Called at the end of a batch, after all packets of the batch have been written.
+     */
+    protected void flushPackets() {
+    }
+
+    /**
+     * Sends a packet to the client. While a batch is open player list items are
+     * merged into as few packets as possible, see {@link #beginBatch()}.
+     */
+    protected void sendPacket(DefinedPacket packet) {
+        if (batchDepth > 0 && packet instanceof PlayerListItem) {
+            PlayerListItem playerListItem = (PlayerListItem) packet;
+            for (PlayerListItem.Item item : playerListItem.getItems()) {
+                queuePlayerListItem(playerListItem.getAction(), item);
+            }
+        } else {
+            writePendingPlayerListItems();
+            writePacket(packet);
+        }
+    }
+
+    /**
+     * Appends the item to the last pending packet with the same action, unless that would move it
+     * behind a pending packet concerning the same player. Other packets are never reordered.
+     */
+    private void queuePlayerListItem(PlayerListItem.Action action, PlayerListItem.Item item) {
+        UUID uuid = item.getUuid();
+        for (int i = pendingPlayerListItems.size() - 1; i >= 0; i--) {
+            PendingPlayerListItem pending = pendingPlayerListItems.get(i);
+            if (pending.action == action) {
+                pending.add(item);
+                return;
+            }
+            if (pending.uuids.contains(uuid)) {
+                break;
+            }
+        }
+        PendingPlayerListItem pending = new PendingPlayerListItem(action);
+        pending.add(item);
+        pendingPlayerListItems.add(pending);
+    }
+
+    private void writePendingPlayerListItems() {
+        if (!pendingPlayerListItems.isEmpty()) {
+            for (PendingPlayerListItem pending : pendingPlayerListItems) {
+                PlayerListItem packet = new PlayerListItem();
+                packet.setAction(pending.action);
+                packet.setItems(pending.items.toArray(new PlayerListItem.Item[pending.items.size()]));
+                writePacket(packet);
+            }
+            pendingPlayerListItems.clear();
+        }
+    }
+
+    protected boolean isBatchInProgress() {
+        return batchDepth > 0;
+    }
+
+    @Override
+    public void beginBatch() {
+        batchDepth++;
+    }
+
+    @Override
+    public void commitBatch() {
+        Preconditions.checkState(batchDepth > 0, "No batch in progress");
+        if (--batchDepth == 0) {
+            writePendingPlayerListItems();
+            flushPackets();
+        }
+    }
 
     @Override
     public void onConnected() {
@@ -156,31 +237,22 @@ public abstract class AbstractTabListLogic extends TabListHandler {
                     if (fakePlayerUsernameSet.contains(item.getUsername())) {
                         throw new AssertionError("Username collision: " + item);
                     }
-                    serverTabList.put(item.getUuid(), new TabListItem(item));
+                    serverTabList.put(item.getUuid(), TabListItem.of(item));
                 }
                 break;
             case UPDATE_GAMEMODE:
                 for (PlayerListItem.Item item : packet.getItems()) {
-                    TabListItem tabListItem = serverTabList.get(item.getUuid());
-                    if (tabListItem != null) {
-                        tabListItem.setGamemode(item.getGamemode());
-                    }
+                    serverTabList.computeIfPresent(item.getUuid(), (uuid, tabListItem) -> tabListItem.withGamemode(item.getGamemode()));
                 }
                 break;
             case UPDATE_LATENCY:
                 for (PlayerListItem.Item item : packet.getItems()) {
-                    TabListItem tabListItem = serverTabList.get(item.getUuid());
-                    if (tabListItem != null) {
-                        tabListItem.setPing(item.getPing());
-                    }
+                    serverTabList.computeIfPresent(item.getUuid(), (uuid, tabListItem) -> tabListItem.withPing(item.getPing()));
                 }
                 break;
             case UPDATE_DISPLAY_NAME:
                 for (PlayerListItem.Item item : packet.getItems()) {
-                    TabListItem tabListItem = serverTabList.get(item.getUuid());
-                    if (tabListItem != null) {
-                        tabListItem.setDisplayName(item.getDisplayName());
-                    }
+                    serverTabList.computeIfPresent(item.getUuid(), (uuid, tabListItem) -> tabListItem.withDisplayName(item.getDisplayName()));
                 }
                 break;
             case REMOVE_PLAYER:
@@ -506,22 +578,14 @@ public abstract class AbstractTabListLogic extends TabListHandler {
             TeamData t;
             if (packet.getMode() == 0) {
                 t = new TeamData();
-                serverTeams.put(packet.getName(), t);
+                serverTeams.put(sharedStrings.intern(packet.getName()), t);
             } else {
                 t = serverTeams.get(packet.getName());
             }
 
             if (t != null) {
                 if (packet.getMode() == 0 || packet.getMode() == 2) {
-                    t.setDisplayName(packet.getDisplayName());
-                    t.setPrefix(packet.getPrefix());
-                    t.setSuffix(packet.getSuffix());
-                    t.setFriendlyFire(packet.getFriendlyFire());
-                    t.setNameTagVisibility(packet.getNameTagVisibility());
-                    if (teamCollisionRuleSupported) {
-                        t.setCollisionRule(packet.getCollisionRule());
-                    }
-                    t.setColor(packet.getColor());
+                    t.setProperties(TeamProperties.of(packet));
                 }
                 if (packet.getPlayers() != null) {
                     for (String s : packet.getPlayers()) {
@@ -529,8 +593,9 @@ public abstract class AbstractTabListLogic extends TabListHandler {
                             if (playerToTeamMap.containsKey(s)) {
                                 serverTeams.get(playerToTeamMap.get(s)).removePlayer(s);
                             }
+                            s = sharedStrings.intern(s);
                             t.addPlayer(s);
-                            playerToTeamMap.put(s, packet.getName());
+                            playerToTeamMap.put(s, sharedStrings.intern(packet.getName()));
                         } else {
                             t.removePlayer(s);
                             if (!playerToTeamMap.remove(s, packet.getName())) {
@@ -1006,7 +1071,10 @@ public abstract class AbstractTabListLogic extends TabListHandler {
     public void setSlot(int index, Icon skin, String text, int ping) {
         Preconditions.checkElementIndex(index, size);
 
-        if (!clientSkin[index].equals(skin)) {
+        // all icons in clientSkin are interned, so they can be compared by reference
+        skin = SkinPool.icon(skin);
+
+        if (clientSkin[index] != skin) {
             if (clientSkin[index].getPlayer() != null) {
                 skinUuidToSlotMap.remove(clientSkin[index].getPlayer(), index);
             }
@@ -1016,7 +1084,7 @@ public abstract class AbstractTabListLogic extends TabListHandler {
         }
 
         if (!passtrough) {
-            if (clientSkin[index].equals(skin)) {
+            if (clientSkin[index] == skin) {
                 updatePingInternal(index, ping);
             } else {
                 boolean updated = false;
@@ -1182,32 +1250,108 @@ public abstract class AbstractTabListLogic extends TabListHandler {
         return packet;
     }
 
-    @Data
-    @NoArgsConstructor
-    @AllArgsConstructor
-    static class TabListItem {
-        private UUID uuid;
-        private String[][] properties;
-        private String username;
-        private String displayName;
-        private int ping;
-        private int gamemode;
-
-        private TabListItem(PlayerListItem.Item item) {
-            this(item.getUuid(), item.getProperties(), item.getUsername(), item.getDisplayName(), item.getPing(), item.getGamemode());
+    private static class PendingPlayerListItem {
+        private final PlayerListItem.Action action;
+        private final List<PlayerListItem.Item> items = new ArrayList<>();
+        private final Set<UUID> uuids = new HashSet<>();
+
+        private PendingPlayerListItem(PlayerListItem.Action action) {
+            this.action = action;
+        }
+
+        private void add(PlayerListItem.Item item) {
+            items.add(item);
+            uuids.add(item.getUuid());
+        }
+    }
+
+    /**
+     * An entry of the tab list sent by the server.
+     * <p>
+     * Instances are immutable and interned, so all players on the same server share a
+     * single instance for every entry, including its skin properties. Updates create a
+     * new version of the entry, players for which the entry differs, e.g. because of their
+     * own gamemode, simply end up with a different instance.
+     */
+    @Getter
+    @EqualsAndHashCode
+    static final class TabListItem {
+        private static final Interner<TabListItem> interner = Interners.newWeakInterner();
+
+        private final UUID uuid;
+        private final String[][] properties;
+        private final String username;
+        private final String displayName;
+        private final int ping;
+        private final int gamemode;
+
+        private TabListItem(UUID uuid, String[][] properties, String username, String displayName, int ping, int gamemode) {
+            this.uuid = uuid;
+            this.properties = properties;
+            this.username = username;
+            this.displayName = displayName;
+            this.ping = ping;
+            this.gamemode = gamemode;
+        }
+
+        static TabListItem of(PlayerListItem.Item item) {
+            return interner.intern(new TabListItem(item.getUuid(), SkinPool.intern(item.getProperties()), item.getUsername(), item.getDisplayName(), item.getPing(), item.getGamemode()));
+        }
+
+        TabListItem withGamemode(int gamemode) {
+            return gamemode == this.gamemode ? this : interner.intern(new TabListItem(uuid, properties, username, displayName, ping, gamemode));
+        }
+
+        TabListItem withPing(int ping) {
+            return ping == this.ping ? this : interner.intern(new TabListItem(uuid, properties, username, displayName, ping, gamemode));
+        }
+
+        TabListItem withDisplayName(String displayName) {
+            return Objects.equals(displayName, this.displayName) ? this : interner.intern(new TabListItem(uuid, properties, username, displayName, ping, gamemode));
         }
     }
 
-    @Data
+    /**
+     * The properties of a team sent by the server. Immutable and interned like {@link TabListItem}.
+     */
+    @Getter
+    @EqualsAndHashCode
+    static final class TeamProperties {
+        private static final Interner<TeamProperties> interner = Interners.newWeakInterner();
+        private static final TeamProperties EMPTY = new TeamProperties(null, null, null, (byte) 0, null, null, (byte) 0);
+
+        private final String displayName;
+        private final String prefix;
+        private final String suffix;
+        private final byte friendlyFire;
+        private final String nameTagVisibility;
+        private final String collisionRule;
+        private final byte color;
+
+        private TeamProperties(String displayName, String prefix, String suffix, byte friendlyFire, String nameTagVisibility, String collisionRule, byte color) {
+            this.displayName = displayName;
+            this.prefix = prefix;
+            this.suffix = suffix;
+            this.friendlyFire = friendlyFire;
+            this.nameTagVisibility = nameTagVisibility;
+            this.collisionRule = collisionRule;
+            this.color = color;
+        }
+
+        static TeamProperties of(Team packet) {
+            return interner.intern(new TeamProperties(packet.getDisplayName(), packet.getPrefix(), packet.getSuffix(), packet.getFriendlyFire(),
+                    packet.getNameTagVisibility(), teamCollisionRuleSupported ? packet.getCollisionRule() : null, packet.getColor()));
+        }
+    }
+
+    /**
+     * A team sent by the server. The members are tracked per player, the properties are shared.
+     */
     static class TeamData {
-        private String displayName;
-        private String prefix;
-        private String suffix;
-        private byte friendlyFire;
-        private String nameTagVisibility;
-        private String collisionRule;
-        private byte color;
-        private Set<String> players = new ObjectOpenHashSet<>();
+        @Setter
+        private TeamProperties properties = TeamProperties.EMPTY;
+        @Getter
+        private final Set<String> players = new ObjectOpenHashSet<>();
 
         public void addPlayer(String name) {
             players.add(name);
@@ -1217,12 +1361,32 @@ public abstract class AbstractTabListLogic extends TabListHandler {
             players.remove(name);
         }
 
-        public void setNameTagVisibility(String nameTagVisibility) {
-            this.nameTagVisibility = nameTagVisibility.intern();
+        public String getDisplayName() {
+            return properties.getDisplayName();
+        }
+
+        public String getPrefix() {
+            return properties.getPrefix();
+        }
+
+        public String getSuffix() {
+            return properties.getSuffix();
+        }
+
+        public byte getFriendlyFire() {
+            return properties.getFriendlyFire();
+        }
+
+        public String getNameTagVisibility() {
+            return properties.getNameTagVisibility();
+        }
+
+        public String getCollisionRule() {
+            return properties.getCollisionRule();
         }
 
-        public void setCollisionRule(String collisionRule) {
-            this.collisionRule = collisionRule == null ? null : collisionRule.intern();
+        public byte getColor() {
+            return properties.getColor();
         }
     }
 }
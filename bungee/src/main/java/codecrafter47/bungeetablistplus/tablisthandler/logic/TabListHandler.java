@@ -100,4 +100,20 @@ public class TabListHandler implements PacketHandler {
             parent.setHeaderFooter(header, footer);
         }
     }
+
+    /**
+     * Starts a batch of updates. Changes made until the matching call to
+     * {@link #commitBatch()} may be combined into fewer packets.
+     */
+    public void beginBatch() {
+        if (parent != null) {
+            parent.beginBatch();
+        }
+    }
+
+    public void commitBatch() {
+        if (parent != null) {
+            parent.commitBatch();
+        }
+    }
 }
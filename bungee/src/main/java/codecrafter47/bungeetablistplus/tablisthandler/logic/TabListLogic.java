@@ -23,10 +23,12 @@ import codecrafter47.bungeetablistplus.BungeeTabListPlus;
 import codecrafter47.bungeetablistplus.api.bungee.IPlayer;
 import codecrafter47.bungeetablistplus.api.bungee.Icon;
 import codecrafter47.bungeetablistplus.player.FakePlayer;
+import codecrafter47.bungeetablistplus.protocol.EncodedPacketCache;
 import codecrafter47.bungeetablistplus.protocol.PacketListenerResult;
-import codecrafter47.bungeetablistplus.skin.PlayerSkin;
+import codecrafter47.bungeetablistplus.skin.SkinPool;
 import codecrafter47.bungeetablistplus.tablisthandler.PlayerTablistHandler;
 import codecrafter47.bungeetablistplus.util.ReflectionUtil;
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.Channel;
 import lombok.Getter;
 import net.md_5.bungee.api.connection.ProxiedPlayer;
@@ -46,11 +48,13 @@ public class TabListLogic extends AbstractTabListLogic {
     private final ProxiedPlayer player;
     private final Channel channel;
     private final boolean onlineMode;
+    private final int protocolVersion;
 
     public TabListLogic(TabListHandler parent, ProxiedPlayer player) {
         super(parent);
         this.player = player;
         this.onlineMode = player.getPendingConnection().isOnlineMode();
+        this.protocolVersion = player.getPendingConnection().getVersion();
         try {
             channel = ReflectionUtil.getChannelWrapper(player).getHandle();
         } catch (NoSuchFieldException | IllegalAccessException e) {
@@ -64,7 +68,7 @@ public class TabListLogic extends AbstractTabListLogic {
     }
 
     @Override
-    protected void sendPacket(DefinedPacket packet) {
+    protected void writePacket(DefinedPacket packet) {
         if (!onlineMode && packet instanceof PlayerListItem) {
             PlayerListItem pli = (PlayerListItem) packet;
             if (pli.getAction() == PlayerListItem.Action.ADD_PLAYER) {
@@ -75,7 +79,25 @@ public class TabListLogic extends AbstractTabListLogic {
                 }
             }
         }
-        player.unsafe().sendPacket(packet);
+        ByteBuf encoded = channel.isActive() ? EncodedPacketCache.get(packet, protocolVersion) : null;
+        if (encoded != null) {
+            // encoded once for all viewers, skips the packet encoder
+            if (isBatchInProgress()) {
+                channel.write(encoded, channel.voidPromise());
+            } else {
+                channel.writeAndFlush(encoded, channel.voidPromise());
+            }
+        } else if (isBatchInProgress() && channel.isActive()) {
+            // flushed once the batch is complete
+            channel.write(packet, channel.voidPromise());
+        } else {
+            player.unsafe().sendPacket(packet);
+        }
+    }
+
+    @Override
+    protected void flushPackets() {
+        channel.flush();
     }
 
     public List<IPlayer> getServerTabList() {
@@ -87,7 +109,7 @@ public class TabListLogic extends AbstractTabListLogic {
                 FakePlayer fakePlayer = new FakePlayer(item.getUsername(), server.getInfo(), false);
                 fakePlayer.setPing(item.getPing());
                 fakePlayer.setGamemode(item.getGamemode());
-                fakePlayer.setSkin(new PlayerSkin(item.getUuid(), item.getProperties()));
+                fakePlayer.setSkin(SkinPool.skin(item.getUuid(), item.getProperties()));
                 list.add(fakePlayer);
             }
         }
@@ -182,4 +204,16 @@ public class TabListLogic extends AbstractTabListLogic {
         failIfNotInEventLoop();
         super.setHeaderFooter(header, footer);
     }
+
+    @Override
+    public void beginBatch() {
+        failIfNotInEventLoop();
+        super.beginBatch();
+    }
+
+    @Override
+    public void commitBatch() {
+        failIfNotInEventLoop();
+        super.commitBatch();
+    }
 }
@@ -25,21 +25,28 @@ import codecrafter47.bungeetablistplus.config.Config;
 import codecrafter47.bungeetablistplus.config.CustomPlaceholder;
 import codecrafter47.bungeetablistplus.config.PlayerSet;
 import codecrafter47.bungeetablistplus.config.PlayerVisibility;
+import codecrafter47.bungeetablistplus.config.components.AnimatedComponent;
 import codecrafter47.bungeetablistplus.context.Context;
 import codecrafter47.bungeetablistplus.context.PlayerSets;
-import codecrafter47.bungeetablistplus.data.DataKeys;
-import codecrafter47.bungeetablistplus.expression.ExpressionResult;
+import codecrafter47.bungeetablistplus.context.SharedPlayerSets;
 import codecrafter47.bungeetablistplus.player.IPlayerProvider;
 import codecrafter47.bungeetablistplus.player.Player;
 import codecrafter47.bungeetablistplus.tablist.DefaultCustomTablist;
 import codecrafter47.bungeetablistplus.tablisthandler.PlayerTablistHandler;
+import codecrafter47.bungeetablistplus.tracking.DependencyTracker;
+import codecrafter47.bungeetablistplus.util.TimingWheel;
 import com.google.common.collect.Collections2;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
+import net.md_5.bungee.api.connection.ProxiedPlayer;
 
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 public abstract class ConfigTablistProvider<C extends Config> extends DefaultCustomTablist {
@@ -49,15 +56,31 @@ public abstract class ConfigTablistProvider<C extends Config> extends DefaultCus
     private int headerIndex;
     private int footerIndex;
 
-    private Runnable headerUpdater;
-    private Runnable footerUpdater;
+    private final AtomicInteger headerAdvances = new AtomicInteger();
+    private final AtomicInteger footerAdvances = new AtomicInteger();
+
+    private TimingWheel.Task headerUpdater;
+    private TimingWheel.Task footerUpdater;
+
+    // animations which have advanced since they have last been rendered
+    private final Set<AnimatedComponent.Instance> advancedAnimations = ConcurrentHashMap.newKeySet();
 
     private PlayerSets playerSets;
+    private final boolean canSeeHiddenPlayers;
 
-    private boolean active = false;
+    private volatile boolean active = false;
+    private final Set<ProxiedPlayer> viewers = ConcurrentHashMap.newKeySet();
 
-    public ConfigTablistProvider(C config, Context context) {
+    // set if the tab list is shown to all viewers in an equivalence class, see SharedTablistProviders
+    boolean shared = false;
+    private final DependencyTracker dependencyTracker = new DependencyTracker();
+    private volatile boolean updateRequested = true;
+    // set once an update has been discarded because it depended on the viewer
+    private boolean discarded = false;
+
+    public ConfigTablistProvider(C config, Context context, boolean canSeeHiddenPlayers) {
         this.config = config;
+        this.canSeeHiddenPlayers = canSeeHiddenPlayers;
 
         // Create context
         this.context = context;
@@ -82,43 +105,143 @@ public abstract class ConfigTablistProvider<C extends Config> extends DefaultCus
     @Override
     public synchronized void onActivated(PlayerTablistHandler handler) {
         super.onActivated(handler);
-        active = true;
-
-        // register a header/ footer update task here
-        if (config.isShowHeaderFooter()) {
-            headerUpdater = new HeaderUpdater();
-            BungeeTabListPlus.getInstance().registerTask(config.getHeaderAnimationUpdateInterval(), headerUpdater);
-            footerUpdater = new FooterUpdater();
-            BungeeTabListPlus.getInstance().registerTask(config.getFooterAnimationUpdateInterval(), footerUpdater);
+        viewers.add(handler.getPlayer());
+        if (!active) {
+            active = true;
+            activate();
         }
     }
 
     @Override
     public synchronized void onDeactivated(PlayerTablistHandler handler) {
-        active = false;
-        if (config.isShowHeaderFooter()) {
-            BungeeTabListPlus.getInstance().unregisterTask(config.getHeaderAnimationUpdateInterval(), headerUpdater);
-            BungeeTabListPlus.getInstance().unregisterTask(config.getFooterAnimationUpdateInterval(), footerUpdater);
+        viewers.remove(handler.getPlayer());
+        if (active && viewers.isEmpty()) {
+            active = false;
+            deactivate();
         }
         super.onDeactivated(handler);
     }
 
+    /**
+     * Called when the tab list is shown to its first viewer.
+     */
+    protected void activate() {
+        // register a header/ footer update task here
+        if (config.isShowHeaderFooter()) {
+            headerUpdater = BungeeTabListPlus.getInstance().registerTask(config.getHeaderAnimationUpdateInterval(), () -> {
+                headerAdvances.incrementAndGet();
+                requestPartialUpdate();
+            });
+            footerUpdater = BungeeTabListPlus.getInstance().registerTask(config.getFooterAnimationUpdateInterval(), () -> {
+                footerAdvances.incrementAndGet();
+                requestPartialUpdate();
+            });
+        }
+    }
+
+    /**
+     * Called when the tab list is no longer shown to any viewer.
+     */
+    protected void deactivate() {
+        if (headerUpdater != null) {
+            headerUpdater.cancel();
+            headerUpdater = null;
+        }
+        if (footerUpdater != null) {
+            footerUpdater.cancel();
+            footerUpdater = null;
+        }
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public boolean isShared() {
+        return shared;
+    }
+
+    public boolean canSeeHiddenPlayers() {
+        return canSeeHiddenPlayers;
+    }
+
+    /**
+     * Updates the tab list if anything it has read during its last update has changed. Otherwise only the
+     * animations which have advanced are updated, see {@link #updateAnimations()}, or if there are none only the
+     * dependencies of the last update are recorded for the viewer the update is run for.
+     * Used for shared tab lists, which would otherwise be updated once for each of their viewers.
+     * <p>
+     * If the update has read anything about the viewer its changes are discarded instead of being sent to all
+     * viewers, see {@link #dependsOnViewer()}. The tab list must not be used anymore afterwards.
+     *
+     * @return whether the tab list has been updated
+     */
+    public synchronized boolean updateIfOutdated() {
+        if (discarded) {
+            return true;
+        }
+        boolean fullUpdate = updateRequested || dependencyTracker.isOutdated();
+        if (!fullUpdate && !hasAdvancedAnimations()) {
+            DependencyTracker.recordDependenciesOf(dependencyTracker);
+            return false;
+        }
+        if (fullUpdate) {
+            dependencyTracker.begin();
+        } else {
+            dependencyTracker.resume();
+        }
+        beginBatch();
+        try {
+            if (fullUpdate) {
+                update();
+            } else {
+                updateAnimations();
+            }
+        } finally {
+            dependencyTracker.end();
+            if (dependencyTracker.dependsOnViewer()) {
+                discarded = true;
+                discardBatch();
+            } else {
+                commitBatch();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Whether the last update via {@link #updateIfOutdated()} has read anything about the viewer.
+     */
+    public boolean dependsOnViewer() {
+        return dependencyTracker.dependsOnViewer();
+    }
+
     public synchronized void update() {
         if (!active) {
             return;
         }
+        updateRequested = false;
+        // all animations are rendered below
+        advancedAnimations.clear();
 
         BungeeTabListPlus plugin = BungeeTabListPlus.getInstance();
-        boolean canSeeHiddenPlayers = context.get(Context.KEY_VIEWER).get(DataKeys.permission("bungeetablistplus.seevanished")).orElse(false);
 
         // PlayerSets
-        ImmutableList<? extends IPlayer> all = ImmutableList.copyOf(Iterables.concat(Collections2.transform(plugin.playerProviders, IPlayerProvider::getPlayers)));
+        SharedPlayerSets sharedPlayerSets = plugin.getTabListManager().getSharedPlayerSets();
+        ImmutableList<? extends IPlayer> all = null;
         for (Map.Entry<String, PlayerSet> entry : config.getPlayerSets().entrySet()) {
+            if (entry.getValue().getFilter().isViewerIndependent()) {
+                playerSets.put(entry.getKey(), sharedPlayerSets.get(entry.getValue(), canSeeHiddenPlayers));
+                continue;
+            }
+            if (all == null) {
+                all = ImmutableList.copyOf(Iterables.concat(Collections2.transform(plugin.playerProviders, IPlayerProvider::getPlayers)));
+            }
             PlayerVisibility hiddenPlayers = entry.getValue().getHiddenPlayers();
             List<Player> players = all
                     .stream()
                     .map(p -> ((Player) p))
-                    .filter(player -> entry.getValue().getFilter().evaluate(context.derived().put(Context.KEY_PLAYER, player), ExpressionResult.BOOLEAN))
+                    .filter(player -> entry.getValue().getFilter().evaluateBoolean(context.derived().put(Context.KEY_PLAYER, player)))
                     .filter(player -> !BungeeTabListPlus.isHidden(player) || (hiddenPlayers == PlayerVisibility.VISIBLE_TO_ADMINS && canSeeHiddenPlayers) || hiddenPlayers == PlayerVisibility.VISIBLE)
                     .collect(Collectors.toList());
             playerSets.put(entry.getKey(), players);
@@ -126,40 +249,83 @@ public abstract class ConfigTablistProvider<C extends Config> extends DefaultCus
 
         // Header & Footer
         if (config.isShowHeaderFooter()) {
+            headerIndex = (headerIndex + headerAdvances.getAndSet(0)) % config.getHeader().size();
+            footerIndex = (footerIndex + footerAdvances.getAndSet(0)) % config.getFooter().size();
             setHeader(config.getHeader().get(headerIndex).evaluate(context));
             setFooter(config.getFooter().get(footerIndex).evaluate(context));
         }
     }
 
-    private class HeaderUpdater implements Runnable {
+    /**
+     * Only renders the header, the footer and the animations which have advanced since the last update, the rest of
+     * the tab list is left as it is.
+     */
+    public synchronized void updateAnimations() {
+        if (!active) {
+            return;
+        }
 
-        @Override
-        public void run() {
-            synchronized (ConfigTablistProvider.this) {
-                if (active) {
-                    headerIndex++;
-                    if (headerIndex >= config.getHeader().size()) {
-                        headerIndex = 0;
-                    }
-                    setHeader(config.getHeader().get(headerIndex).evaluate(context));
-                }
+        // Header & Footer
+        if (config.isShowHeaderFooter()) {
+            int advances = headerAdvances.getAndSet(0);
+            if (advances != 0) {
+                headerIndex = (headerIndex + advances) % config.getHeader().size();
+                setHeader(config.getHeader().get(headerIndex).evaluate(context));
+            }
+            advances = footerAdvances.getAndSet(0);
+            if (advances != 0) {
+                footerIndex = (footerIndex + advances) % config.getFooter().size();
+                setFooter(config.getFooter().get(footerIndex).evaluate(context));
             }
         }
+
+        for (Iterator<AnimatedComponent.Instance> iterator = advancedAnimations.iterator(); iterator.hasNext(); ) {
+            AnimatedComponent.Instance animation = iterator.next();
+            iterator.remove();
+            updateAnimation(animation);
+        }
     }
 
-    private class FooterUpdater implements Runnable {
+    /**
+     * Renders the next frame of an animation, see {@link #updateAnimations()}.
+     */
+    protected void updateAnimation(AnimatedComponent.Instance animation) {
+        animation.updateAnimation();
+    }
 
-        @Override
-        public void run() {
-            synchronized (ConfigTablistProvider.this) {
-                if (active) {
-                    footerIndex++;
-                    if (footerIndex >= config.getFooter().size()) {
-                        footerIndex = 0;
-                    }
-                    setFooter(config.getFooter().get(footerIndex).evaluate(context));
-                }
-            }
+    private boolean hasAdvancedAnimations() {
+        return headerAdvances.get() != 0 || footerAdvances.get() != 0 || !advancedAnimations.isEmpty();
+    }
+
+    /**
+     * Whether the next update needs to update the whole tab list, see {@link #requestUpdate()}.
+     */
+    public boolean isUpdateRequested() {
+        return updateRequested;
+    }
+
+    /**
+     * Marks the tab list of all its viewers as dirty, the next update renders the whole tab list.
+     */
+    public void requestUpdate() {
+        updateRequested = true;
+        for (ProxiedPlayer viewer : viewers) {
+            BungeeTabListPlus.getInstance().updateTabListForPlayer(viewer);
+        }
+    }
+
+    /**
+     * Called by an animation when it has advanced. Only the animation is rendered again, unless anything else in the
+     * tab list is outdated as well.
+     */
+    public void requestAnimationUpdate(AnimatedComponent.Instance animation) {
+        advancedAnimations.add(animation);
+        requestPartialUpdate();
+    }
+
+    private void requestPartialUpdate() {
+        for (ProxiedPlayer viewer : viewers) {
+            BungeeTabListPlus.getInstance().updateTabListPartiallyForPlayer(viewer);
         }
     }
 }
@@ -21,6 +21,7 @@ package codecrafter47.bungeetablistplus.tablistproviders;
 
 import codecrafter47.bungeetablistplus.config.DynamicSizeConfig;
 import codecrafter47.bungeetablistplus.config.components.Component;
+import codecrafter47.bungeetablistplus.config.components.KeyedInstances;
 import codecrafter47.bungeetablistplus.context.Context;
 import codecrafter47.bungeetablistplus.player.Player;
 import codecrafter47.bungeetablistplus.tablisthandler.PlayerTablistHandler;
@@ -32,10 +33,10 @@ import static java.lang.Integer.min;
 
 public class DynamicSizeConfigTablistProvider extends ConfigTablistProvider<DynamicSizeConfig> {
 
-    private List<Component.Instance> activeComponents = new ArrayList<>();
+    private final KeyedInstances<Player> activeComponents = new KeyedInstances<>();
 
-    public DynamicSizeConfigTablistProvider(DynamicSizeConfig config, Context context) {
-        super(config, context);
+    public DynamicSizeConfigTablistProvider(DynamicSizeConfig config, Context context, boolean canSeeHiddenPlayers) {
+        super(config, context, canSeeHiddenPlayers);
         this.context.put(Context.KEY_COLUMNS, 1);
     }
 
@@ -54,35 +55,30 @@ public class DynamicSizeConfigTablistProvider extends ConfigTablistProvider<Dyna
         super.update();
 
         // get players
-        List<Player> players = context.get(Context.KEY_PLAYER_SETS).get(config.getPlayerSet());
+        // copy, the player set may be shared with other tab lists
+        List<Player> players = new ArrayList<>(context.get(Context.KEY_PLAYER_SETS).get(config.getPlayerSet()));
         config.getPlayerOrder().sort(context, players);
 
-        // deactivate old components
-        activeComponents.forEach(Component.Instance::deactivate);
-        activeComponents.clear();
-
         int size = min(80, players.size() * config.getPlayerComponent().getSize());
         setSize(1, size);
 
-        // create & update components
+        // reuse components of players which have already been visible, create the others
         int pos = 0;
         int i;
         for (i = 0; pos < size; i++) {
             Player player = players.get(i);
-            Component.Instance component = config.getPlayerComponent().toInstance(context.derived().put(Context.KEY_PLAYER, player));
-            component.activate();
+            Component.Instance component = activeComponents.get(player, () -> config.getPlayerComponent().toInstance(context.derived().put(Context.KEY_PLAYER, player)));
             component.update1stStep();
             component.setPosition(pos, 0, config.getPlayerComponent().getSize());
             component.update2ndStep();
-            activeComponents.add(component);
             pos += config.getPlayerComponent().getSize();
         }
+        activeComponents.finish();
     }
 
     @Override
-    public synchronized void onDeactivated(PlayerTablistHandler handler) {
-        activeComponents.forEach(Component.Instance::deactivate);
+    protected void deactivate() {
         activeComponents.clear();
-        super.onDeactivated(handler);
+        super.deactivate();
     }
 }
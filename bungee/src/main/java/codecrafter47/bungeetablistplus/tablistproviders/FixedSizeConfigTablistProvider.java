@@ -21,10 +21,10 @@ package codecrafter47.bungeetablistplus.tablistproviders;
 
 import codecrafter47.bungeetablistplus.api.bungee.Icon;
 import codecrafter47.bungeetablistplus.config.FixedSizeConfig;
+import codecrafter47.bungeetablistplus.config.components.AnimatedComponent;
 import codecrafter47.bungeetablistplus.config.components.Component;
 import codecrafter47.bungeetablistplus.config.components.ListComponent;
 import codecrafter47.bungeetablistplus.context.Context;
-import codecrafter47.bungeetablistplus.tablisthandler.PlayerTablistHandler;
 import lombok.NonNull;
 
 import javax.annotation.Nonnull;
@@ -36,8 +36,8 @@ public class FixedSizeConfigTablistProvider extends ConfigTablistProvider<FixedS
 
     private boolean[] marks;
 
-    public FixedSizeConfigTablistProvider(FixedSizeConfig config, Context context) {
-        super(config, context);
+    public FixedSizeConfigTablistProvider(FixedSizeConfig config, Context context, boolean canSeeHiddenPlayers) {
+        super(config, context, canSeeHiddenPlayers);
 
         // Set custom tab list size
         setSize(config.getSize());
@@ -51,15 +51,15 @@ public class FixedSizeConfigTablistProvider extends ConfigTablistProvider<FixedS
     }
 
     @Override
-    public synchronized void onActivated(PlayerTablistHandler handler) {
-        super.onActivated(handler);
+    protected void activate() {
+        super.activate();
         content.activate();
     }
 
     @Override
-    public synchronized void onDeactivated(PlayerTablistHandler handler) {
+    protected void deactivate() {
         content.deactivate();
-        super.onDeactivated(handler);
+        super.deactivate();
     }
 
     @Override
@@ -84,4 +84,17 @@ public class FixedSizeConfigTablistProvider extends ConfigTablistProvider<FixedS
             }
         }
     }
+
+    @Override
+    protected void updateAnimation(AnimatedComponent.Instance animation) {
+        Arrays.fill(marks, false);
+        if (animation.updateAnimation()) {
+            // slots the new frame leaves empty
+            animation.forEachSlot((row, column) -> {
+                if (!marks[row * getColumns() + column]) {
+                    setSlot(row, column, config.getDefaultIcon().evaluate(context), "", config.getDefaultPing());
+                }
+            });
+        }
+    }
 }
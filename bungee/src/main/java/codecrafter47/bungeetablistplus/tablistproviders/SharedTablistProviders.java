@@ -0,0 +1,125 @@
+/*
+ * BungeeTabListPlus - a BungeeCord plugin to customize the tablist
+ *
+ * Copyright (C) 2014 - 2015 Florian Stober
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package codecrafter47.bungeetablistplus.tablistproviders;
+
+import codecrafter47.bungeetablistplus.config.Config;
+import codecrafter47.bungeetablistplus.config.DynamicSizeConfig;
+import codecrafter47.bungeetablistplus.config.FixedSizeConfig;
+import codecrafter47.bungeetablistplus.context.Context;
+import codecrafter47.bungeetablistplus.player.Player;
+import com.google.common.cache.CacheBuilder;
+
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Groups viewers into equivalence classes which see the same tab list, so it is rendered once per class instead of
+ * once per viewer.
+ * <p>
+ * Viewers using the same config which are either all allowed or all not allowed to see hidden players share a
+ * single {@link ConfigTablistProvider}, which sends its content to each of them. Whether a config depends on anything
+ * else about the viewer is learned while rendering it: once an update of a shared tab list reads data of the viewer,
+ * e.g. through a {@code ${viewer ...}} placeholder, the changes of that update are discarded, the config is marked as
+ * viewer dependent and each of its viewers gets a tab list of their own from then on.
+ */
+public class SharedTablistProviders {
+
+    // weak keys use identity comparison, configs are replaced on reload
+    private final ConcurrentMap<Config, ConfigState> states = CacheBuilder.newBuilder().weakKeys().<Config, ConfigState>build().asMap();
+
+    /**
+     * Get the tab list provider for a viewer.
+     *
+     * @param config              the config selected for the viewer
+     * @param canSeeHiddenPlayers whether the viewer is allowed to see hidden players
+     * @param viewer              the viewer
+     * @param current             the tab list provider currently used for the viewer
+     * @return the tab list provider to use for the viewer
+     */
+    public ConfigTablistProvider getTablistProvider(Config config, boolean canSeeHiddenPlayers, Player viewer, TablistProvider current) {
+        ConfigState state = states.computeIfAbsent(config, c -> new ConfigState());
+        if (state.viewerDependent) {
+            if (current instanceof ConfigTablistProvider) {
+                ConfigTablistProvider provider = (ConfigTablistProvider) current;
+                if (provider.config == config && provider.canSeeHiddenPlayers() == canSeeHiddenPlayers && !provider.isShared()) {
+                    return provider;
+                }
+            }
+            return createTablistProvider(config, canSeeHiddenPlayers, viewer);
+        }
+        int index = canSeeHiddenPlayers ? 1 : 0;
+        synchronized (state) {
+            ConfigTablistProvider provider = state.providers[index];
+            // an inactive provider has lost all its viewers, the viewer it has been created for may be gone
+            if (provider == null || (!provider.isActive() && provider != current)) {
+                provider = createTablistProvider(config, canSeeHiddenPlayers, viewer);
+                provider.shared = true;
+                state.providers[index] = provider;
+            }
+            return provider;
+        }
+    }
+
+    /**
+     * Updates the tab list of a viewer. Shared tab lists are only updated if they are outdated.
+     *
+     * @param fullUpdate false if the tab list of the viewer is known to be up to date apart from its animations, then
+     *                   only the animations are updated
+     */
+    public void update(ConfigTablistProvider provider, boolean fullUpdate) {
+        if (!provider.isShared()) {
+            provider.beginBatch();
+            try {
+                if (fullUpdate || provider.isUpdateRequested()) {
+                    provider.update();
+                } else {
+                    provider.updateAnimations();
+                }
+            } finally {
+                provider.commitBatch();
+            }
+        } else if (provider.updateIfOutdated() && provider.dependsOnViewer()) {
+            ConfigState state = states.get(provider.config);
+            if (state != null) {
+                synchronized (state) {
+                    state.viewerDependent = true;
+                    state.providers[0] = null;
+                    state.providers[1] = null;
+                }
+            }
+            // nothing has been sent, move all viewers to a tab list of their own
+            provider.requestUpdate();
+        }
+    }
+
+    private ConfigTablistProvider createTablistProvider(Config config, boolean canSeeHiddenPlayers, Player viewer) {
+        Context context = new Context().put(Context.KEY_VIEWER, viewer);
+        if (config instanceof FixedSizeConfig) {
+            return new FixedSizeConfigTablistProvider((FixedSizeConfig) config, context, canSeeHiddenPlayers);
+        } else if (config instanceof DynamicSizeConfig) {
+            return new DynamicSizeConfigTablistProvider((DynamicSizeConfig) config, context, canSeeHiddenPlayers);
+        } else {
+            throw new RuntimeException("Unknown tab list config type: " + config.getClass());
+        }
+    }
+
+    private static class ConfigState {
+        private volatile boolean viewerDependent = false;
+        private final ConfigTablistProvider[] providers = new ConfigTablistProvider[2];
+    }
+}
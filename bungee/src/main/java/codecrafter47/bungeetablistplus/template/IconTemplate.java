@@ -24,6 +24,7 @@ import codecrafter47.bungeetablistplus.api.bungee.BungeeTabListPlusAPI;
 import codecrafter47.bungeetablistplus.api.bungee.Icon;
 import codecrafter47.bungeetablistplus.api.bungee.Skin;
 import codecrafter47.bungeetablistplus.context.Context;
+import codecrafter47.bungeetablistplus.skin.SkinPool;
 import net.md_5.bungee.api.ProxyServer;
 import net.md_5.bungee.api.connection.ProxiedPlayer;
 
@@ -42,7 +43,7 @@ public class IconTemplate {
             return BungeeTabListPlusAPI.getIconFromPlayer(player);
         } else {
             Skin skin = BungeeTabListPlus.getInstance().getSkinManager().getSkin(evaluate);
-            return new Icon(skin.getOwner(), skin.toProperty());
+            return SkinPool.icon(skin.getOwner(), skin.toProperty());
         }
     }
 }
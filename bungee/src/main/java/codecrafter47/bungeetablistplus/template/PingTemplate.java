@@ -21,7 +21,6 @@ package codecrafter47.bungeetablistplus.template;
 
 import codecrafter47.bungeetablistplus.context.Context;
 import codecrafter47.bungeetablistplus.expression.Expression;
-import codecrafter47.bungeetablistplus.expression.ExpressionResult;
 
 public class PingTemplate {
     Expression expression;
@@ -31,6 +30,6 @@ public class PingTemplate {
     }
 
     public int evaluate(Context context) {
-        return expression.evaluate(context, ExpressionResult.NUMBER).intValue();
+        return (int) expression.evaluateNumber(context);
     }
 }
@@ -30,6 +30,7 @@ import java.util.regex.Pattern;
 
 public class TextTemplate {
     private static Pattern placeholder = Pattern.compile("(?ms)\\$\\{([^}]+)\\}");
+    private static final ThreadLocal<StringBuilder> buffer = ThreadLocal.withInitial(() -> new StringBuilder(256));
     private List<Part> parts;
 
     public TextTemplate(String text) {
@@ -39,28 +40,61 @@ public class TextTemplate {
         while (matcher.find()) {
             StringBuffer sb = new StringBuffer();
             matcher.appendReplacement(sb, "");
-            parts.add(new StringPart(sb.toString()));
+            if (sb.length() > 0) {
+                parts.add(new StringPart(sb.toString()));
+            }
             parts.add(new PlaceholderPart(matcher.group(1)));
         }
         StringBuffer sb = new StringBuffer();
         matcher.appendTail(sb);
-        parts.add(new StringPart(sb.toString()));
+        if (sb.length() > 0 || parts.isEmpty()) {
+            parts.add(new StringPart(sb.toString()));
+        }
+    }
+
+    /**
+     * Get the thread local buffer used for rendering templates. It is shared by nested evaluations, e.g. of custom
+     * placeholders, so anyone using it has to append only and restore its original length when done.
+     *
+     * @return the buffer
+     */
+    public static StringBuilder getBuffer() {
+        return buffer.get();
     }
 
     public String evaluate(Context context) {
         if (parts.size() == 1) {
             return parts.get(0).evaluate(context);
         } else {
-            String result = "";
-            for (Part part : parts) {
-                result += part.evaluate(context);
+            StringBuilder builder = buffer.get();
+            int start = builder.length();
+            try {
+                appendTo(builder, context);
+                return builder.substring(start);
+            } finally {
+                builder.setLength(start);
             }
-            return result;
+        }
+    }
+
+    /**
+     * Evaluates the template and appends the result to the builder, without creating intermediate strings.
+     *
+     * @param builder the builder
+     * @param context the context
+     */
+    public void appendTo(StringBuilder builder, Context context) {
+        for (int i = 0; i < parts.size(); i++) {
+            parts.get(i).appendTo(builder, context);
         }
     }
 
     private static abstract class Part {
         public abstract String evaluate(Context context);
+
+        public void appendTo(StringBuilder builder, Context context) {
+            builder.append(evaluate(context));
+        }
     }
 
     @AllArgsConstructor
@@ -71,6 +105,11 @@ public class TextTemplate {
         public String evaluate(Context context) {
             return text;
         }
+
+        @Override
+        public void appendTo(StringBuilder builder, Context context) {
+            builder.append(text);
+        }
     }
 
     private static class PlaceholderPart extends Part {
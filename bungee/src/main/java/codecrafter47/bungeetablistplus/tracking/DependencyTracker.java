@@ -0,0 +1,233 @@
+/*
+ * BungeeTabListPlus - a BungeeCord plugin to customize the tablist
+ *
+ * Copyright (C) 2014 - 2015 Florian Stober
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package codecrafter47.bungeetablistplus.tracking;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records what a tab list update has read, so the periodic refresh can skip viewers whose tab list cannot have changed.
+ * <p>
+ * Changes are counted by a global epoch. Each key of each data cache remembers the epoch it was last changed in,
+ * changes to the set of players (join, leave, server switch, hidden players, fake players) are tracked by a separate
+ * epoch. Pings are polled and change all the time, so they share one epoch which is only advanced every few seconds.
+ * A viewer is dirty if anything it read during its last update has changed since that update started, or if it read
+ * something that cannot be tracked (time, server online state, custom tab lists).
+ * <p>
+ * Additionally it is recorded whether an update has read anything about the viewer, which tells whether its result can
+ * be shown to other viewers as well.
+ */
+public class DependencyTracker {
+    private static final AtomicLong epoch = new AtomicLong();
+    private static volatile long playersEpoch = 0;
+    private static volatile long pingEpoch = 0;
+    private static volatile long reloadEpoch = 0;
+    private static final AtomicLong updateCycle = new AtomicLong();
+
+    private static final ThreadLocal<DependencyTracker> current = new ThreadLocal<>();
+
+    // only accessed by the thread running the update
+    private final Set<Dependency> dataReads = new HashSet<>();
+    private boolean ping;
+    private boolean untrackable;
+    private boolean viewer;
+    private long startEpoch;
+    private boolean resumed;
+    private DependencyTracker parent;
+
+    // result of the last completed update
+    private volatile Dependency[] dependencies = null;
+    private volatile boolean dependsOnPing = false;
+    private volatile boolean dependsOnUntrackable = true;
+    private volatile boolean dependsOnViewer = false;
+    private volatile long updatedAt = -1;
+    private volatile long updatedInCycle = -1;
+
+    static void onDataChanged(Dependency dependency) {
+        dependency.changedAt = epoch.incrementAndGet();
+    }
+
+    public static void onPlayersChanged() {
+        playersEpoch = epoch.incrementAndGet();
+    }
+
+    /**
+     * Called when the pings of some players have changed since the last call. Callers should limit the rate of calls,
+     * each one marks every viewer showing a ping dirty.
+     */
+    public static void onPingsChanged() {
+        pingEpoch = epoch.incrementAndGet();
+    }
+
+    public static void onReload() {
+        reloadEpoch = epoch.incrementAndGet();
+    }
+
+    /**
+     * Starts a new update cycle. Results depending on something untrackable are
+     * considered outdated once a new cycle has started.
+     */
+    public static void nextUpdateCycle() {
+        updateCycle.incrementAndGet();
+    }
+
+    static void recordDataRead(Dependency dependency) {
+        DependencyTracker tracker = current.get();
+        if (tracker != null) {
+            tracker.dataReads.add(dependency);
+        }
+    }
+
+    public static void recordPingRead() {
+        DependencyTracker tracker = current.get();
+        if (tracker != null) {
+            tracker.ping = true;
+        }
+    }
+
+    public static void recordUntrackableRead() {
+        DependencyTracker tracker = current.get();
+        if (tracker != null) {
+            tracker.untrackable = true;
+        }
+    }
+
+    public static void recordViewerRead() {
+        DependencyTracker tracker = current.get();
+        if (tracker != null) {
+            tracker.viewer = true;
+        }
+    }
+
+    /**
+     * Adds the dependencies recorded by the given tracker to the update currently
+     * in progress on this thread. Used when a cached result is reused.
+     */
+    public static void recordDependenciesOf(DependencyTracker tracker) {
+        DependencyTracker target = current.get();
+        if (target != null) {
+            target.addDependenciesOf(tracker);
+        }
+    }
+
+    private void addDependenciesOf(DependencyTracker tracker) {
+        Dependency[] dependencies = tracker.dependencies;
+        if (dependencies != null) {
+            Collections.addAll(dataReads, dependencies);
+        }
+        ping |= tracker.dependsOnPing;
+        untrackable |= tracker.dependsOnUntrackable;
+        viewer |= tracker.dependsOnViewer;
+    }
+
+    public void begin() {
+        dataReads.clear();
+        ping = false;
+        untrackable = false;
+        viewer = false;
+        startEpoch = epoch.get();
+        resumed = false;
+        parent = current.get();
+        current.set(this);
+    }
+
+    /**
+     * Like {@link #begin()}, but keeps what the last update has read. Used if an update only recomputes a part of
+     * the result of the last update, the result is outdated by changes to anything either of them has read.
+     */
+    public void resume() {
+        Dependency[] dependencies = this.dependencies;
+        boolean dependsOnPing = this.dependsOnPing;
+        boolean dependsOnUntrackable = this.dependsOnUntrackable;
+        boolean dependsOnViewer = this.dependsOnViewer;
+        long updatedAt = this.updatedAt;
+        begin();
+        if (dependencies != null) {
+            Collections.addAll(dataReads, dependencies);
+            startEpoch = updatedAt;
+            resumed = true;
+        }
+        ping = dependsOnPing;
+        untrackable = dependsOnUntrackable;
+        viewer = dependsOnViewer;
+    }
+
+    public void end() {
+        if (parent != null) {
+            current.set(parent);
+        } else {
+            current.remove();
+        }
+        dependencies = dataReads.toArray(new Dependency[dataReads.size()]);
+        dependsOnPing = ping;
+        dependsOnUntrackable = untrackable;
+        dependsOnViewer = viewer;
+        updatedAt = startEpoch;
+        if (!resumed) {
+            updatedInCycle = updateCycle.get();
+        }
+        dataReads.clear();
+        if (parent != null) {
+            parent.addDependenciesOf(this);
+            parent = null;
+        }
+    }
+
+    public boolean dependsOnViewer() {
+        return dependsOnViewer;
+    }
+
+    public boolean isDirty() {
+        return dependsOnUntrackable || hasTrackedChanges();
+    }
+
+    /**
+     * Like {@link #isDirty()}, but a result depending on something untrackable
+     * stays valid for the remainder of the update cycle it has been created in.
+     */
+    public boolean isOutdated() {
+        return (dependsOnUntrackable && updatedInCycle != updateCycle.get()) || hasTrackedChanges();
+    }
+
+    private boolean hasTrackedChanges() {
+        Dependency[] dependencies = this.dependencies;
+        long updatedAt = this.updatedAt;
+        if (dependencies == null || playersEpoch > updatedAt || reloadEpoch > updatedAt) {
+            return true;
+        }
+        if (dependsOnPing && pingEpoch > updatedAt) {
+            return true;
+        }
+        for (Dependency dependency : dependencies) {
+            if (dependency.changedAt > updatedAt) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A single value that can be read and changed, e.g. one key of one data cache.
+     */
+    static final class Dependency {
+        private volatile long changedAt = 0;
+    }
+}
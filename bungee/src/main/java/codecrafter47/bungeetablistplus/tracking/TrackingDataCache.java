@@ -0,0 +1,86 @@
+/*
+ * BungeeTabListPlus - a BungeeCord plugin to customize the tablist
+ *
+ * Copyright (C) 2014 - 2015 Florian Stober
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package codecrafter47.bungeetablistplus.tracking;
+
+import codecrafter47.bungeetablistplus.data.DataCache;
+import codecrafter47.bungeetablistplus.data.DataKey;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * A {@link DataCache} reporting reads and changes to the {@link DependencyTracker}.
+ * <p>
+ * Changes are tracked per key of this cache, so a change to the data of one player only affects the viewers which have
+ * read that data of that player.
+ */
+public class TrackingDataCache extends DataCache {
+
+    // indexed by DataKey.getIndex(), created when a key is first used
+    private volatile DependencyTracker.Dependency[] dependencies = new DependencyTracker.Dependency[0];
+
+    @Override
+    public <T> void updateValue(DataKey<T> dataKey, T object) {
+        boolean changed = !Objects.equals(super.getRawValue(dataKey), object);
+        super.updateValue(dataKey, object);
+        if (changed) {
+            DependencyTracker.onDataChanged(getDependency(dataKey));
+        }
+    }
+
+    @Override
+    public <T> Optional<T> getValue(DataKey<T> dataKey) {
+        DependencyTracker.recordDataRead(getDependency(dataKey));
+        return super.getValue(dataKey);
+    }
+
+    @Override
+    public <T> T getRawValue(DataKey<T> dataKey) {
+        DependencyTracker.recordDataRead(getDependency(dataKey));
+        return super.getRawValue(dataKey);
+    }
+
+    @Override
+    public void clear() {
+        for (DataKey<?> dataKey : getMap().keySet()) {
+            DependencyTracker.onDataChanged(getDependency(dataKey));
+        }
+        super.clear();
+    }
+
+    private DependencyTracker.Dependency getDependency(DataKey<?> dataKey) {
+        int index = dataKey.getIndex();
+        DependencyTracker.Dependency[] dependencies = this.dependencies;
+        DependencyTracker.Dependency dependency;
+        if (index < dependencies.length && null != (dependency = dependencies[index])) {
+            return dependency;
+        }
+        synchronized (this) {
+            dependencies = this.dependencies;
+            if (index < dependencies.length && null != (dependency = dependencies[index])) {
+                return dependency;
+            }
+            dependencies = Arrays.copyOf(dependencies, Math.max(dependencies.length, index + 1));
+            dependencies[index] = dependency = new DependencyTracker.Dependency();
+            this.dependencies = dependencies;
+            return dependency;
+        }
+    }
+}
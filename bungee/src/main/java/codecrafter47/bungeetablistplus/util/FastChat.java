@@ -25,7 +25,10 @@ import net.md_5.bungee.api.ChatColor;
 public final class FastChat {
     private final static String emptyJsonText = "{\"text\":\"\"}";
 
-    public static int legacyTextLength(String legacyText, char alternateColorChar) {
+    // reused for the conversion, only the resulting json string is allocated
+    private final static ThreadLocal<StringBuilder> jsonBuffer = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+    public static int legacyTextLength(CharSequence legacyText, char alternateColorChar) {
         double length = 0;
         boolean bold = false;
         for (int i = 0; i < legacyText.length(); ++i) {
@@ -45,14 +48,22 @@ public final class FastChat {
     }
 
     public static String legacyTextToJson(String legacyText, char alternateColorChar) {
+        return legacyTextToJson((CharSequence) legacyText, alternateColorChar);
+    }
+
+    /**
+     * Same as {@link #legacyTextToJson(String, char)}, reads the text directly from a buffer.
+     */
+    public static String legacyTextToJson(CharSequence legacyText, char alternateColorChar) {
         if (legacyText == null) {
             return null;
         }
-        if (legacyText.isEmpty()) {
+        if (legacyText.length() == 0) {
             return emptyJsonText;
         }
         // evil optimizations
-        StringBuilder builder = new StringBuilder(legacyText.length() + 10);
+        StringBuilder builder = jsonBuffer.get();
+        builder.setLength(0);
         builder.append("{\"text\":\"");
         for (int i = 0; i < legacyText.length(); ++i) {
             char c = legacyText.charAt(i);
@@ -69,7 +80,12 @@ public final class FastChat {
             }
         }
         builder.append("\"}");
-        return new String(builder);
+        String json = builder.toString();
+        if (builder.capacity() > 4096) {
+            // don't hold on to the buffer of an unusually long text
+            jsonBuffer.remove();
+        }
+        return json;
         /*
         StringBuilder jsonBuilder = new StringBuilder("{\"text\":\"\",\"extra\":[");
         StringBuilder builder = new StringBuilder();
@@ -0,0 +1,196 @@
+/*
+ * BungeeTabListPlus - a BungeeCord plugin to customize the tablist
+ *
+ * Copyright (C) 2014 - 2015 Florian Stober
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package codecrafter47.bungeetablistplus.util;
+
+import codecrafter47.bungeetablistplus.BungeeTabListPlus;
+import net.md_5.bungee.api.plugin.Plugin;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hierarchical timing wheel running periodic tasks on a single dedicated thread.
+ * <p>
+ * The first level has one bucket per tick, each further level covers the whole range of the level below with every
+ * bucket. Tasks are kept in doubly linked bucket lists, so scheduling and cancelling is O(1) regardless of the number
+ * of tasks. Buckets of higher levels are cascaded down when the wheel reaches them. All tasks due in a tick are fired
+ * as one batch outside of the lock. Tasks are expected to be cheap, e.g. marking something dirty.
+ */
+public class TimingWheel implements Runnable {
+
+    private static final int LEVEL0_BITS = 8;
+    private static final int LEVEL_BITS = 6;
+    private static final int LEVELS = 4;
+    private static final int LEVEL0_MASK = (1 << LEVEL0_BITS) - 1;
+    private static final int LEVEL_MASK = (1 << LEVEL_BITS) - 1;
+    private static final long MAX_DELAY = 1L << (LEVEL0_BITS + (LEVELS - 1) * LEVEL_BITS);
+
+    private final long tickNanos;
+    private final Task[][] wheel = new Task[LEVELS][];
+    private long currentTick = 0;
+
+    public TimingWheel(long tickDuration, TimeUnit unit) {
+        this.tickNanos = unit.toNanos(tickDuration);
+        for (int level = 0; level < LEVELS; level++) {
+            Task[] buckets = new Task[level == 0 ? LEVEL0_MASK + 1 : LEVEL_MASK + 1];
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new Task(null, 0);
+            }
+            wheel[level] = buckets;
+        }
+    }
+
+    public void start(Plugin plugin) {
+        plugin.getProxy().getScheduler().runAsync(plugin, this);
+    }
+
+    /**
+     * Schedules a task to be run every {@code interval} seconds.
+     *
+     * @return handle to cancel the task
+     */
+    public Task schedule(float interval, Runnable runnable) {
+        long period = Math.max(1, Math.round(interval * 1e9 / tickNanos));
+        Task task = new Task(runnable, period);
+        synchronized (this) {
+            task.deadline = currentTick + period;
+            insert(task);
+        }
+        return task;
+    }
+
+    private void insert(Task task) {
+        long delay = task.deadline - currentTick;
+        Task bucket;
+        if (delay < (1 << LEVEL0_BITS)) {
+            bucket = wheel[0][(int) (task.deadline & LEVEL0_MASK)];
+        } else {
+            long deadline = delay < MAX_DELAY ? task.deadline : currentTick + MAX_DELAY - 1;
+            int level = 1;
+            while (delay >= 1L << (LEVEL0_BITS + level * LEVEL_BITS) && level < LEVELS - 1) {
+                level++;
+            }
+            bucket = wheel[level][(int) ((deadline >>> (LEVEL0_BITS + (level - 1) * LEVEL_BITS)) & LEVEL_MASK)];
+        }
+        task.prev = bucket.prev;
+        task.next = bucket;
+        bucket.prev.next = task;
+        bucket.prev = task;
+    }
+
+    private static void unlink(Task task) {
+        if (task.next != null) {
+            task.prev.next = task.next;
+            task.next.prev = task.prev;
+            task.prev = null;
+            task.next = null;
+        }
+    }
+
+    private void cascade(int level, int index) {
+        Task bucket = wheel[level][index];
+        Task task = bucket.next;
+        bucket.next = bucket;
+        bucket.prev = bucket;
+        while (task != bucket) {
+            Task next = task.next;
+            insert(task);
+            task = next;
+        }
+    }
+
+    /**
+     * Advances the wheel by one tick and collects all tasks due in that tick into the given list. Periodic tasks are
+     * rescheduled immediately, so cancelling them afterwards still works.
+     */
+    synchronized void tick(List<Task> due) {
+        long tick = ++currentTick;
+        if ((tick & LEVEL0_MASK) == 0) {
+            int level = 1;
+            while (level < LEVELS - 1 && ((tick >>> (LEVEL0_BITS + (level - 1) * LEVEL_BITS)) & LEVEL_MASK) == 0) {
+                level++;
+            }
+            for (; level >= 1; level--) {
+                cascade(level, (int) ((tick >>> (LEVEL0_BITS + (level - 1) * LEVEL_BITS)) & LEVEL_MASK));
+            }
+        }
+        Task bucket = wheel[0][(int) (tick & LEVEL0_MASK)];
+        Task task = bucket.next;
+        bucket.next = bucket;
+        bucket.prev = bucket;
+        while (task != bucket) {
+            Task next = task.next;
+            if (task.deadline <= tick) {
+                due.add(task);
+                task.deadline = tick + task.period;
+            }
+            insert(task);
+            task = next;
+        }
+    }
+
+    @Override
+    public void run() {
+        List<Task> due = new ArrayList<>();
+        long start = System.nanoTime();
+        long ticks = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            long sleep = start + (ticks + 1) * tickNanos - System.nanoTime();
+            if (sleep > 0) {
+                LockSupport.parkNanos(this, sleep);
+                continue;
+            }
+            ticks++;
+            tick(due);
+            for (Task task : due) {
+                if (!task.cancelled) {
+                    try {
+                        task.runnable.run();
+                    } catch (Throwable th) {
+                        BungeeTabListPlus.getInstance().reportError(th);
+                    }
+                }
+            }
+            due.clear();
+        }
+    }
+
+    public class Task {
+        private final Runnable runnable;
+        private final long period;
+        private long deadline;
+        private Task prev = this;
+        private Task next = this;
+        private volatile boolean cancelled = false;
+
+        private Task(Runnable runnable, long period) {
+            this.runnable = runnable;
+            this.period = period;
+        }
+
+        public void cancel() {
+            cancelled = true;
+            synchronized (TimingWheel.this) {
+                unlink(this);
+            }
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * BungeeTabListPlus - a BungeeCord plugin to customize the tablist
+ *
+ * Copyright (C) 2014 - 2015 Florian Stober
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package codecrafter47.bungeetablistplus.bridge;
+
+import codecrafter47.bungeetablistplus.common.BTLPDataKeys;
+import codecrafter47.bungeetablistplus.common.BridgeProtocol;
+import codecrafter47.bungeetablistplus.common.Constants;
+import codecrafter47.bungeetablistplus.data.DataKey;
+import codecrafter47.bungeetablistplus.data.DataKeys;
+import com.google.common.collect.Lists;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.*;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+public class BridgeProtocolTest {
+
+    @Test
+    public void testDeltaRoundTrip() throws IOException {
+        Map<DataKey<?>, Object> delta = new HashMap<>();
+        delta.put(DataKeys.Health, 17.5);
+        delta.put(DataKeys.Level, -3);
+        delta.put(DataKeys.XP, 0.25f);
+        delta.put(DataKeys.World, "world_nether");
+        delta.put(DataKeys.Team, null);
+        delta.put(DataKeys.permission("btlp.admin"), true);
+        delta.put(BTLPDataKeys.REGISTERED_THIRD_PARTY_VARIABLES, Lists.newArrayList("a", "b"));
+        delta.put(BTLPDataKeys.createPlaceholderAPIDataKey("%player_ping%"), "12");
+        delta.put(BTLPDataKeys.createThirdPartyVariableDataKey("votes"), "3");
+        delta.put(DataKey.builder().bukkit().player().id("custom").build(), Duration.ofMinutes(5));
+
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(os);
+        BridgeProtocol.writeHeader(out, Constants.subchannelUpdatePlayer);
+        BridgeProtocol.writeDelta(out, delta);
+        out.close();
+
+        byte[] data = os.toByteArray();
+        Assert.assertTrue(BridgeProtocol.isBinary(data));
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        Assert.assertEquals(Constants.subchannelUpdatePlayer, BridgeProtocol.readHeader(in));
+        Assert.assertEquals(delta, BridgeProtocol.readDelta(in));
+        Assert.assertEquals(-1, in.read());
+    }
+
+    @Test
+    public void testCorruptInput() throws IOException {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(os);
+        BridgeProtocol.writeDelta(out, Collections.singletonMap(DataKey.builder().bukkit().player().id("custom").build(), "value"));
+        out.close();
+        byte[] data = os.toByteArray();
+
+        // unknown scope ordinal, the scope follows the key kind and the id of the key
+        byte[] corrupt = data.clone();
+        corrupt[3 + "custom".length()] = 17;
+        assertCorrupt(corrupt);
+
+        // string length larger than the message
+        corrupt = data.clone();
+        corrupt[2] = 0x7F;
+        assertCorrupt(corrupt);
+
+        // negative length
+        assertCorrupt(new byte[]{1, 0, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F});
+
+        // element count larger than the message
+        assertCorrupt(new byte[]{(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x7F});
+    }
+
+    private static void assertCorrupt(byte[] data) throws IOException {
+        try {
+            BridgeProtocol.readDelta(new DataInputStream(new ByteArrayInputStream(data)));
+            Assert.fail("corrupt input has been accepted");
+        } catch (StreamCorruptedException ignored) {
+        }
+    }
+
+    @Test
+    public void testSpongeServerUpdate() throws IOException, ClassNotFoundException {
+        Map<DataKey<?>, Object> delta = new HashMap<>();
+        delta.put(DataKeys.TPS, 19.5);
+        delta.put(DataKeys.World, "world");
+
+        // the Sponge bridge sends plain deltas without sequence numbers
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(os);
+        BridgeProtocol.writeHeader(out, Constants.subchannelUpdateServer);
+        BridgeProtocol.writeDelta(out, delta);
+        out.close();
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(os.toByteArray()));
+        Assert.assertEquals(Constants.subchannelUpdateServer, BridgeProtocol.readHeader(in));
+        Assert.assertEquals(delta, BukkitBridge.readUnsequencedDelta(in));
+        Assert.assertEquals(-1, in.read());
+
+        os = new ByteArrayOutputStream();
+        ObjectOutputStream legacyOut = new ObjectOutputStream(os);
+        legacyOut.writeUTF(Constants.subchannelUpdateServer);
+        legacyOut.writeObject(new HashMap<>(delta));
+        legacyOut.close();
+
+        ObjectInputStream legacyIn = new ObjectInputStream(new ByteArrayInputStream(os.toByteArray()));
+        Assert.assertEquals(Constants.subchannelUpdateServer, legacyIn.readUTF());
+        Assert.assertEquals(delta, BukkitBridge.readUnsequencedDelta(legacyIn));
+    }
+
+    @Test
+    public void testLegacyDetection() throws IOException {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(os);
+        out.writeUTF(Constants.subchannelUpdatePlayer);
+        out.writeObject(new HashMap<>());
+        out.close();
+        Assert.assertFalse(BridgeProtocol.isBinary(os.toByteArray()));
+    }
+
+    @Test
+    public void testHandshake() throws IOException {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(os);
+        out.writeUTF(Constants.subchannelRequestResetPlayerVariables);
+        out.close();
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(os.toByteArray()));
+        in.readUTF();
+        Assert.assertEquals(0, BridgeProtocol.readHandshake(in).getVersion());
+
+        os = new ByteArrayOutputStream();
+        out = new ObjectOutputStream(os);
+        out.writeUTF(Constants.subchannelRequestResetPlayerVariables);
+        BridgeProtocol.writeHandshake(out, 42);
+        out.close();
+        in = new ObjectInputStream(new ByteArrayInputStream(os.toByteArray()));
+        in.readUTF();
+        BridgeProtocol.Handshake handshake = BridgeProtocol.readHandshake(in);
+        Assert.assertEquals(BridgeProtocol.VERSION, handshake.getVersion());
+        Assert.assertEquals(42, handshake.getProxyId());
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * BungeeTabListPlus - a BungeeCord plugin to customize the tablist
+ *
+ * Copyright (C) 2014 - 2015 Florian Stober
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package codecrafter47.bungeetablistplus.data;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class DataCacheTest {
+
+    private static final int THREADS = 4;
+    private static final int CACHES = 100;
+    private static final int KEYS_PER_THREAD = 1000;
+    private static final AtomicInteger nextKey = new AtomicInteger();
+
+    /**
+     * Writes of several threads race with resizes of the value arrays, caused by keys registered while writing. No
+     * write may get lost.
+     */
+    @Test
+    public void testConcurrentUpdates() throws Exception {
+        List<DataCache> caches = new ArrayList<>();
+        for (int i = 0; i < CACHES; i++) {
+            caches.add(new DataCache());
+        }
+        List<List<DataKey<Integer>>> keys = new ArrayList<>();
+        CyclicBarrier barrier = new CyclicBarrier(THREADS);
+        List<Thread> threads = new ArrayList<>();
+        List<Throwable> errors = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            List<DataKey<Integer>> ownKeys = new ArrayList<>();
+            keys.add(ownKeys);
+            threads.add(new Thread(() -> {
+                try {
+                    barrier.await();
+                    for (int i = 0; i < KEYS_PER_THREAD; i++) {
+                        DataKey<Integer> key = newKey();
+                        ownKeys.add(key);
+                        for (DataCache cache : caches) {
+                            cache.updateValue(key, -1);
+                            // the previous key is written again, possibly while another thread resizes the array
+                            if (i > 0) {
+                                cache.updateValue(ownKeys.get(i - 1), i - 1);
+                            }
+                        }
+                    }
+                    for (DataCache cache : caches) {
+                        cache.updateValue(ownKeys.get(KEYS_PER_THREAD - 1), KEYS_PER_THREAD - 1);
+                    }
+                } catch (Throwable th) {
+                    synchronized (errors) {
+                        errors.add(th);
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertTrue(errors.toString(), errors.isEmpty());
+
+        for (DataCache cache : caches) {
+            for (List<DataKey<Integer>> ownKeys : keys) {
+                for (int i = 0; i < ownKeys.size(); i++) {
+                    Assert.assertEquals(ownKeys.get(i).toString(), Integer.valueOf(i), cache.getRawValue(ownKeys.get(i)));
+                }
+            }
+            Assert.assertEquals(THREADS * KEYS_PER_THREAD, cache.getMap().size());
+        }
+    }
+
+    @Test
+    public void testClear() {
+        DataCache cache = new DataCache();
+        DataKey<Integer> key = newKey();
+        List<Integer> notified = new ArrayList<>();
+        cache.registerValueChangeListener(key, notified::add);
+        cache.updateValue(key, 1);
+        cache.clear();
+        Assert.assertNull(cache.getRawValue(key));
+        Assert.assertEquals(2, notified.size());
+        Assert.assertNull(notified.get(1));
+    }
+
+    private static DataKey<Integer> newKey() {
+        return DataKey.builder().id("test:key" + nextKey.incrementAndGet()).player().bungee().build();
+    }
+}
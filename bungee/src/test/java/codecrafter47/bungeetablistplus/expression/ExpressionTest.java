@@ -90,4 +90,30 @@ public class ExpressionTest {
         assertTrue("true && true && false || true");
     }
 
+    @Test
+    public void testConstantFolding() {
+        Expression expression = new Expression("\"1\" . 2 . \"3\"");
+        Assert.assertEquals("123", expression.evaluateString(null));
+        Assert.assertEquals(123, expression.evaluateNumber(null), 0.001);
+        Assert.assertFalse(expression.evaluateBoolean(null));
+
+        expression = new Expression("!(1 < 2) || \"a\" . \"b\" == \"ab\"");
+        Assert.assertTrue(expression.evaluateBoolean(null));
+        Assert.assertEquals(1, expression.evaluateNumber(null), 0.001);
+        Assert.assertEquals("true", expression.evaluateString(null));
+
+        Assert.assertTrue(new Expression("true || ${viewer name} == \"\"").isViewerIndependent());
+        Assert.assertFalse(new Expression("true && ${viewer name} == \"\"").isViewerIndependent());
+    }
+
+    @Test
+    public void testViewerIndependence() {
+        Assert.assertTrue(new Expression("true").isViewerIndependent());
+        Assert.assertTrue(new Expression("${player server} == \"lobby\"").isViewerIndependent());
+        Assert.assertTrue(new Expression("${player name} . ${server:lobby} != \"\" && !${player permission test}").isViewerIndependent());
+        Assert.assertFalse(new Expression("${player server} == ${viewer server}").isViewerIndependent());
+        Assert.assertFalse(new Expression("false || !(${viewer name} == \"\")").isViewerIndependent());
+        Assert.assertFalse(new Expression("${playerset:global} > 2").isViewerIndependent());
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,157 @@
+/*
+ * BungeeTabListPlus - a BungeeCord plugin to customize the tablist
+ *
+ * Copyright (C) 2014 - 2015 Florian Stober
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package codecrafter47.bungeetablistplus.managers;
+
+import codecrafter47.bungeetablistplus.common.BTLPDataKeys;
+import codecrafter47.bungeetablistplus.common.BridgeProtocol;
+import codecrafter47.bungeetablistplus.data.DataKey;
+import codecrafter47.bungeetablistplus.data.DataKeys;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.function.Consumer;
+
+public class RedisDataBatcherTest {
+
+    private static final int PROXIES = 6;
+    private static final int PLAYERS = 10000;
+    private static final int ROUNDS = 3;
+
+    /**
+     * Stand-in for the redis server. Like redis pub/sub every message is delivered
+     * to all subscribers, including the publisher.
+     */
+    private static class LocalPubSub {
+        private final List<Consumer<String>> subscribers = new ArrayList<>();
+        private int messages = 0;
+        private long bytes = 0;
+
+        void subscribe(Consumer<String> subscriber) {
+            subscribers.add(subscriber);
+        }
+
+        void publish(String message) {
+            messages++;
+            bytes += message.length();
+            for (Consumer<String> subscriber : subscribers) {
+                subscriber.accept(message);
+            }
+        }
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        Map<UUID, Map<DataKey<?>, Object>> batch = new LinkedHashMap<>();
+        Map<DataKey<?>, Object> delta = new HashMap<>();
+        delta.put(DataKeys.Health, 20.0);
+        delta.put(DataKeys.World, "world");
+        delta.put(DataKeys.permission("btlp.admin"), false);
+        delta.put(BTLPDataKeys.createPlaceholderAPIDataKey("%vault_eco_balance%"), null);
+        batch.put(UUID.randomUUID(), delta);
+        batch.put(UUID.randomUUID(), Collections.singletonMap(DataKeys.Level, 12));
+
+        List<String> frames = RedisDataBatcher.encode(batch);
+        Assert.assertEquals(1, frames.size());
+        Assert.assertEquals(batch, RedisDataBatcher.decode(frames.get(0)));
+    }
+
+    @Test
+    public void testCorruptCount() throws IOException {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(os);
+        out.writeByte(BridgeProtocol.VERSION);
+        out.writeInt(BridgeProtocol.KEY_TABLE_FINGERPRINT);
+        // player count larger than the frame
+        BridgeProtocol.writeVarInt(out, Integer.MAX_VALUE);
+        try {
+            RedisDataBatcher.decode(Base64.getEncoder().encodeToString(os.toByteArray()));
+            Assert.fail("corrupt frame has been accepted");
+        } catch (StreamCorruptedException ignored) {
+        }
+    }
+
+    @Test
+    public void testLoad() {
+        LocalPubSub redis = new LocalPubSub();
+        List<Runnable> scheduledFlushes = new ArrayList<>();
+        List<RedisDataBatcher> batchers = new ArrayList<>();
+        List<Map<UUID, Map<DataKey<?>, Object>>> received = new ArrayList<>();
+        for (int i = 0; i < PROXIES; i++) {
+            batchers.add(new RedisDataBatcher(redis::publish, scheduledFlushes::add));
+            Map<UUID, Map<DataKey<?>, Object>> data = new HashMap<>();
+            received.add(data);
+            redis.subscribe(message -> {
+                try {
+                    RedisDataBatcher.decode(message).forEach((uuid, delta) -> data.computeIfAbsent(uuid, id -> new HashMap<>()).putAll(delta));
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        }
+
+        List<UUID> players = new ArrayList<>();
+        for (int i = 0; i < PLAYERS; i++) {
+            players.add(UUID.randomUUID());
+        }
+
+        Random random = new Random(0);
+        Map<UUID, Map<DataKey<?>, Object>> expected = new HashMap<>();
+        int updates = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            // everything happening within one flush window
+            for (int i = 0; i < PLAYERS; i++) {
+                UUID uuid = players.get(i);
+                RedisDataBatcher batcher = batchers.get(i % PROXIES);
+                Map<DataKey<?>, Object> values = expected.computeIfAbsent(uuid, id -> new HashMap<>());
+                for (int j = 0; j < 2; j++) {
+                    double health = random.nextInt(40) / 2.0;
+                    batcher.add(uuid, DataKeys.Health, health);
+                    values.put(DataKeys.Health, health);
+                    updates++;
+                }
+                int level = random.nextInt(100);
+                batcher.add(uuid, DataKeys.Level, level);
+                values.put(DataKeys.Level, level);
+                String world = "world" + random.nextInt(3);
+                batcher.add(uuid, DataKeys.World, world);
+                values.put(DataKeys.World, world);
+                batcher.add(uuid, DataKeys.permission("btlp.admin"), round == 0);
+                values.put(DataKeys.permission("btlp.admin"), round == 0);
+                updates += 3;
+            }
+            Assert.assertEquals(PROXIES, scheduledFlushes.size());
+            scheduledFlushes.forEach(Runnable::run);
+            scheduledFlushes.clear();
+        }
+
+        for (Map<UUID, Map<DataKey<?>, Object>> data : received) {
+            Assert.assertEquals(expected, data);
+        }
+        // one message per proxy and flush window instead of one per update
+        Assert.assertTrue(redis.messages < updates / 100);
+        Assert.assertTrue(redis.bytes / updates < 30);
+    }
+}
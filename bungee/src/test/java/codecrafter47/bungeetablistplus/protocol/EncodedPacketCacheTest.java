@@ -0,0 +1,77 @@
+/*
+ * BungeeTabListPlus - a BungeeCord plugin to customize the tablist
+ *
+ * Copyright (C) 2014 - 2015 Florian Stober
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package codecrafter47.bungeetablistplus.protocol;
+
+import io.netty.buffer.ByteBuf;
+import net.md_5.bungee.protocol.ProtocolConstants;
+import net.md_5.bungee.protocol.packet.PlayerListHeaderFooter;
+import net.md_5.bungee.protocol.packet.PlayerListItem;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.util.UUID;
+
+public class EncodedPacketCacheTest {
+
+    @Test
+    public void testSharedEncoding() {
+        Assume.assumeTrue(EncodedPacketCache.isSupported());
+
+        ByteBuf first = EncodedPacketCache.get(new PlayerListHeaderFooter("{\"text\":\"a\"}", "{\"text\":\"b\"}"), ProtocolConstants.MINECRAFT_1_8);
+        ByteBuf second = EncodedPacketCache.get(new PlayerListHeaderFooter("{\"text\":\"a\"}", "{\"text\":\"b\"}"), ProtocolConstants.MINECRAFT_1_8);
+        ByteBuf other = EncodedPacketCache.get(new PlayerListHeaderFooter("{\"text\":\"a\"}", "{\"text\":\"c\"}"), ProtocolConstants.MINECRAFT_1_8);
+        Assert.assertNotNull(first);
+        Assert.assertEquals(first, second);
+        Assert.assertNotEquals(first, other);
+        first.release();
+        second.release();
+        other.release();
+    }
+
+    @Test
+    public void testReusedItem() {
+        Assume.assumeTrue(EncodedPacketCache.isSupported());
+
+        PlayerListItem.Item item = new PlayerListItem.Item();
+        item.setUuid(UUID.randomUUID());
+        item.setDisplayName("{\"text\":\"a\"}");
+        PlayerListItem packet = new PlayerListItem();
+        packet.setAction(PlayerListItem.Action.UPDATE_DISPLAY_NAME);
+        packet.setItems(new PlayerListItem.Item[]{item});
+        ByteBuf first = EncodedPacketCache.get(packet, ProtocolConstants.MINECRAFT_1_8);
+
+        // items are mutable, changing one must not change the cached encoding
+        item.setDisplayName("{\"text\":\"b\"}");
+        ByteBuf second = EncodedPacketCache.get(packet, ProtocolConstants.MINECRAFT_1_8);
+        Assert.assertNotNull(first);
+        Assert.assertNotEquals(first, second);
+        first.release();
+        second.release();
+    }
+
+    @Test
+    public void testNotCached() {
+        PlayerListItem packet = new PlayerListItem();
+        packet.setAction(PlayerListItem.Action.ADD_PLAYER);
+        packet.setItems(new PlayerListItem.Item[0]);
+        Assert.assertNull(EncodedPacketCache.get(packet, ProtocolConstants.MINECRAFT_1_8));
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * BungeeTabListPlus - a BungeeCord plugin to customize the tablist
+ *
+ * Copyright (C) 2014 - 2015 Florian Stober
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package codecrafter47.bungeetablistplus.skin;
+
+import codecrafter47.bungeetablistplus.api.bungee.Skin;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+public class SkinStoreTest {
+
+    private static final Logger logger = Logger.getLogger("SkinStoreTest");
+    private static final String PADDING = String.join("", Collections.nCopies(200, "x"));
+
+    private static Skin skin(int i) {
+        return SkinPool.skin(new UUID(0, i), new String[][]{{"textures", "value" + i + PADDING, "signature" + i}});
+    }
+
+    private static void assertSkin(int i, SkinStore.CachedSkin cachedSkin) {
+        Assert.assertNotNull(cachedSkin);
+        Assert.assertEquals(new UUID(0, i), cachedSkin.getSkin().getOwner());
+        Assert.assertArrayEquals(skin(i).toProperty(), cachedSkin.getSkin().toProperty());
+    }
+
+    @Test
+    public void testPersistence() throws IOException {
+        File directory = Files.createTempDirectory("skinstore").toFile();
+        SkinStore store = new SkinStore(directory, logger);
+        for (int i = 0; i < 5000; i++) {
+            store.put("player:" + i, skin(i), Long.MAX_VALUE);
+        }
+        store.put("player:expired", skin(1), 0);
+        Assert.assertNull(store.get("player:unknown"));
+        store.close();
+
+        store = new SkinStore(directory, logger);
+        Assert.assertFalse(store.isReady());
+        store.open();
+        Assert.assertTrue(store.isReady());
+        for (int i = 0; i < 5000; i++) {
+            assertSkin(i, store.get("player:" + i));
+        }
+        Assert.assertFalse(store.get("player:1").isExpired());
+        Assert.assertTrue(store.get("player:expired").isExpired());
+        store.close();
+
+        // a closed store is not opened again
+        Assert.assertNull(store.get("player:1"));
+    }
+
+    @Test
+    public void testRebuildIndex() throws IOException {
+        File directory = Files.createTempDirectory("skinstore").toFile();
+        SkinStore store = new SkinStore(directory, logger);
+        for (int i = 0; i < 100; i++) {
+            store.put("player:" + i, skin(i), Long.MAX_VALUE);
+        }
+        store.close();
+
+        Assert.assertTrue(new File(directory, "skins.idx").delete());
+        store = new SkinStore(directory, logger);
+        for (int i = 0; i < 100; i++) {
+            assertSkin(i, store.get("player:" + i));
+        }
+        store.close();
+    }
+
+    @Test
+    public void testCompaction() throws IOException {
+        File directory = Files.createTempDirectory("skinstore").toFile();
+        File log = new File(directory, "skins.log");
+        SkinStore store = new SkinStore(directory, logger);
+        for (int round = 0; round < 100; round++) {
+            for (int i = 0; i < 100; i++) {
+                store.put("player:" + i, skin(round * 100 + i), Long.MAX_VALUE);
+            }
+        }
+        store.put("player:discarded", skin(0), 0);
+        long length = log.length();
+        Assert.assertTrue(store.needsCompaction());
+        store.compact();
+        Assert.assertFalse(store.needsCompaction());
+        Assert.assertTrue(log.length() < length / 50);
+        Assert.assertNull(store.get("player:discarded"));
+        for (int i = 0; i < 100; i++) {
+            assertSkin(9900 + i, store.get("player:" + i));
+        }
+        store.close();
+
+        store = new SkinStore(directory, logger);
+        for (int i = 0; i < 100; i++) {
+            assertSkin(9900 + i, store.get("player:" + i));
+        }
+        store.close();
+    }
+
+    @Test
+    public void testPutWhileCompacting() throws Exception {
+        File directory = Files.createTempDirectory("skinstore").toFile();
+        SkinStore store = new SkinStore(directory, logger);
+        for (int round = 0; round < 50; round++) {
+            for (int i = 0; i < 100; i++) {
+                store.put("player:" + i, skin(round * 100 + i), Long.MAX_VALUE);
+            }
+        }
+        // puts are not blocked while the log is rewritten
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 200; i++) {
+                store.put("player:" + i, skin(10000 + i), Long.MAX_VALUE);
+            }
+        });
+        writer.start();
+        store.compact();
+        writer.join();
+        for (int i = 0; i < 200; i++) {
+            assertSkin(10000 + i, store.get("player:" + i));
+        }
+        store.close();
+
+        SkinStore reopened = new SkinStore(directory, logger);
+        for (int i = 0; i < 200; i++) {
+            assertSkin(10000 + i, reopened.get("player:" + i));
+        }
+        reopened.close();
+    }
+}
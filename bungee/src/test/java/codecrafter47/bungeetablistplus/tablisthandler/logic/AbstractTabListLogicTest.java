@@ -693,4 +693,27 @@ public class AbstractTabListLogicTest extends AbstractTabListLogicTestBase {
             assertEquals("", clientTabList.teams.get(clientTabList.playerToTeamMap.get(usernames[i])).getPrefix());
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testBatchedUpdates() {
+        tabListHandler.setPassThrough(false);
+        tabListHandler.setSize(80);
+        for (int i = 0; i < 80; i++) {
+            tabListHandler.setSlot(i, Icon.DEFAULT, "Slot " + i, 0);
+        }
+
+        int packetCount = clientTabList.packetCount;
+        tabListHandler.beginBatch();
+        for (int i = 0; i < 80; i++) {
+            tabListHandler.setSlot(i, Icon.DEFAULT, "Text " + i, i);
+        }
+        assertEquals("Packets sent before end of batch", packetCount, clientTabList.packetCount);
+        tabListHandler.commitBatch();
+        assertEquals("Updates not combined", packetCount + 2, clientTabList.packetCount);
+
+        for (int i = 0; i < 80; i++) {
+            assertEquals("Text check failed", "Text " + i, clientTabList.getText(i));
+            assertEquals("Ping check failed", i, clientTabList.getPing(i));
+        }
+    }
+}
@@ -77,6 +77,7 @@ public class AbstractTabListLogicTestBase {
         final Map<UUID, TabListEntry> entries = new HashMap<>();
         final Map<String, Team> teams = new HashMap<>();
         final Map<String, String> playerToTeamMap = new HashMap<>();
+        int packetCount = 0;
         private List<TabListEntry> visibleEntries = Collections.emptyList();
 
         private void updateVisibleEntries() {
@@ -128,6 +129,10 @@ public class AbstractTabListLogicTestBase {
         }
 
         private void validateConstraints() {
+            if (isBatchInProgress()) {
+                // the client is only updated at the end of the batch
+                return;
+            }
             boolean isCitizensDisordered = false;
             // validate client tab list
             if (passtrough) {
@@ -235,7 +240,8 @@ public class AbstractTabListLogicTestBase {
         }
 
         @Override
-        protected void sendPacket(DefinedPacket packet) {
+        protected void writePacket(DefinedPacket packet) {
+            clientTabList.packetCount++;
             if (packet instanceof PlayerListItem) {
                 for (PlayerListItem.Item item : ((PlayerListItem) packet).getItems()) {
                     switch (((PlayerListItem) packet).getAction()) {
@@ -409,5 +415,11 @@ public class AbstractTabListLogicTestBase {
             super.setHeaderFooter(header, footer);
             validateConstraints();
         }
+
+        @Override
+        public void commitBatch() {
+            super.commitBatch();
+            validateConstraints();
+        }
     }
 }
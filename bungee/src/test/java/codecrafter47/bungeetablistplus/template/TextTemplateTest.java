@@ -0,0 +1,65 @@
+/*
+ * BungeeTabListPlus - a BungeeCord plugin to customize the tablist
+ *
+ * Copyright (C) 2014 - 2015 Florian Stober
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package codecrafter47.bungeetablistplus.template;
+
+import codecrafter47.bungeetablistplus.config.CustomPlaceholder;
+import codecrafter47.bungeetablistplus.context.Context;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+
+public class TextTemplateTest {
+
+    private static Context createContext() {
+        CustomPlaceholder.Conditional conditional = new CustomPlaceholder.Conditional();
+        conditional.setCondition("true");
+        conditional.setTrue("[${server_player_count}]");
+        conditional.setFalse("");
+        return new Context()
+                .put(Context.KEY_SERVER_PLAYER_COUNT, 3)
+                .put(Context.KEY_OTHER_PLAYERS_COUNT, 5)
+                .put(Context.KEY_CUSTOM_PLACEHOLDERS, Collections.singletonMap("custom", conditional));
+    }
+
+    @Test
+    public void testEvaluate() {
+        Context context = createContext();
+        Assert.assertEquals("", new TextTemplate("").evaluate(context));
+        Assert.assertEquals("text", new TextTemplate("text").evaluate(context));
+        Assert.assertEquals("3", new TextTemplate("${server_player_count}").evaluate(context));
+        Assert.assertEquals("3/5", new TextTemplate("${server_player_count}/${other_count}").evaluate(context));
+        Assert.assertEquals("a [3] b 5", new TextTemplate("a ${custom} b ${other_count}").evaluate(context));
+        Assert.assertEquals(0, TextTemplate.getBuffer().length());
+    }
+
+    @Test
+    public void testAppendTo() {
+        Context context = createContext();
+        StringBuilder builder = TextTemplate.getBuffer();
+        builder.append("prefix ");
+        try {
+            new TextTemplate("a ${custom} b ${other_count}").appendTo(builder, context);
+            Assert.assertEquals("prefix a [3] b 5", builder.toString());
+        } finally {
+            builder.setLength(0);
+        }
+    }
+}
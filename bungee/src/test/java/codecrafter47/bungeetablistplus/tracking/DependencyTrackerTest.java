@@ -0,0 +1,64 @@
+/*
+ * BungeeTabListPlus - a BungeeCord plugin to customize the tablist
+ *
+ * Copyright (C) 2014 - 2015 Florian Stober
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package codecrafter47.bungeetablistplus.tracking;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DependencyTrackerTest {
+
+    @Test
+    public void testResumeKeepsDependencies() {
+        DependencyTracker.Dependency a = new DependencyTracker.Dependency();
+        DependencyTracker.Dependency b = new DependencyTracker.Dependency();
+        DependencyTracker tracker = new DependencyTracker();
+
+        tracker.begin();
+        DependencyTracker.recordDataRead(a);
+        tracker.end();
+        Assert.assertFalse(tracker.isOutdated());
+
+        // only b is read by the partial update
+        tracker.resume();
+        DependencyTracker.recordDataRead(b);
+        tracker.end();
+        Assert.assertFalse(tracker.isOutdated());
+
+        DependencyTracker.onDataChanged(a);
+        Assert.assertTrue(tracker.isOutdated());
+
+        tracker.begin();
+        DependencyTracker.recordDataRead(a);
+        tracker.end();
+        DependencyTracker.onDataChanged(b);
+        Assert.assertFalse(tracker.isOutdated());
+    }
+
+    @Test
+    public void testResumeKeepsViewerRead() {
+        DependencyTracker tracker = new DependencyTracker();
+        tracker.begin();
+        DependencyTracker.recordViewerRead();
+        tracker.end();
+
+        tracker.resume();
+        tracker.end();
+        Assert.assertTrue(tracker.dependsOnViewer());
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * BungeeTabListPlus - a BungeeCord plugin to customize the tablist
+ *
+ * Copyright (C) 2014 - 2015 Florian Stober
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package codecrafter47.bungeetablistplus.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FastChatTest {
+
+    @Test
+    public void testLegacyTextToJson() {
+        Assert.assertEquals("{\"text\":\"\"}", FastChat.legacyTextToJson("", '&'));
+        Assert.assertEquals("{\"text\":\"\u00A7cred \\\"quoted\\\" \\\\ & done\"}", FastChat.legacyTextToJson("&cred \"quoted\" \\ & done", '&'));
+    }
+
+    @Test
+    public void testBuffer() {
+        StringBuilder buffer = new StringBuilder("prefix &aText");
+        CharSequence text = buffer.subSequence(7, buffer.length());
+        Assert.assertEquals(FastChat.legacyTextToJson("&aText", '&'), FastChat.legacyTextToJson(text, '&'));
+        Assert.assertEquals(FastChat.legacyTextToJson("prefix &aText", '&'), FastChat.legacyTextToJson(buffer, '&'));
+    }
+}
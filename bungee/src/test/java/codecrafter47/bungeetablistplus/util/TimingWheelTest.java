@@ -0,0 +1,87 @@
+/*
+ * BungeeTabListPlus - a BungeeCord plugin to customize the tablist
+ *
+ * Copyright (C) 2014 - 2015 Florian Stober
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package codecrafter47.bungeetablistplus.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class TimingWheelTest {
+
+    private static int run(TimingWheel wheel, int ticks) {
+        List<TimingWheel.Task> due = new ArrayList<>();
+        int fired = 0;
+        for (int i = 0; i < ticks; i++) {
+            wheel.tick(due);
+            fired += due.size();
+            due.clear();
+        }
+        return fired;
+    }
+
+    @Test
+    public void testPeriods() {
+        // intervals from a single tick up to several cascades of the upper levels
+        float[] intervals = {0.01f, 0.05f, 0.5f, 2.56f, 3f, 60f, 200f};
+        int ticks = 100000;
+        for (float interval : intervals) {
+            TimingWheel wheel = new TimingWheel(10, TimeUnit.MILLISECONDS);
+            wheel.schedule(interval, () -> {
+            });
+            long period = Math.round(interval * 100);
+            Assert.assertEquals("interval " + interval, ticks / period, run(wheel, ticks));
+        }
+    }
+
+    @Test
+    public void testFiresOnDeadline() {
+        TimingWheel wheel = new TimingWheel(10, TimeUnit.MILLISECONDS);
+        wheel.schedule(300f, () -> {
+        });
+        Assert.assertEquals(0, run(wheel, 29999));
+        Assert.assertEquals(1, run(wheel, 1));
+        Assert.assertEquals(0, run(wheel, 29999));
+        Assert.assertEquals(1, run(wheel, 1));
+    }
+
+    @Test
+    public void testCancel() {
+        TimingWheel wheel = new TimingWheel(10, TimeUnit.MILLISECONDS);
+        List<TimingWheel.Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            tasks.add(wheel.schedule(0.01f * (1 + i % 500), () -> {
+            }));
+        }
+        for (int i = 0; i < tasks.size(); i += 2) {
+            tasks.get(i).cancel();
+        }
+        int expected = 0;
+        for (int i = 1; i < tasks.size(); i += 2) {
+            expected += 1000 / (1 + i % 500);
+        }
+        Assert.assertEquals(expected, run(wheel, 1000));
+        for (int i = 1; i < tasks.size(); i += 2) {
+            tasks.get(i).cancel();
+        }
+        Assert.assertEquals(0, run(wheel, 1000));
+    }
+}
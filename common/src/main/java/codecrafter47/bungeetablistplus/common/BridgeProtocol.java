@@ -0,0 +1,470 @@
+/*
+ * BungeeTabListPlus - a BungeeCord plugin to customize the tablist
+ *
+ * Copyright (C) 2014 - 2015 Florian Stober
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package codecrafter47.bungeetablistplus.common;
+
+import codecrafter47.bungeetablistplus.data.DataKey;
+import codecrafter47.bungeetablistplus.data.DataKeys;
+import codecrafter47.bungeetablistplus.data.PermissionDataKey;
+
+import java.io.*;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Compact binary encoding of the data sent between the bridge plugins and the proxy.
+ * <p>
+ * A binary message starts with the protocol version followed by the subchannel.
+ * Messages written by {@link ObjectOutputStream} start with the serialization
+ * stream magic instead, so both formats can be told apart by the first byte.
+ * <p>
+ * The proxy announces the version it supports by appending it to its request
+ * messages. Older bridges never read past the request, older proxies never
+ * append it, so both sides fall back to the legacy format unless the other side
+ * is known to understand the binary one.
+ */
+public final class BridgeProtocol {
+
+    public static final int VERSION = 1;
+
+    private static final int TAG_NULL = 0;
+    private static final int TAG_TRUE = 1;
+    private static final int TAG_FALSE = 2;
+    private static final int TAG_INT = 3;
+    private static final int TAG_LONG = 4;
+    private static final int TAG_FLOAT = 5;
+    private static final int TAG_DOUBLE = 6;
+    private static final int TAG_STRING = 7;
+    private static final int TAG_LIST = 8;
+    private static final int TAG_SERIALIZED = 9;
+
+    private static final int KEY_PLAIN = 0;
+    private static final int KEY_PERMISSION = 1;
+    private static final int KEY_PLACEHOLDERAPI = 2;
+    private static final int KEY_THIRD_PARTY = 3;
+    private static final int KEY_BUNGEE_THIRD_PARTY = 4;
+    private static final int KEY_SERIALIZED = 5;
+    // key ids below this value denote one of the above kinds, larger ids index KNOWN_KEYS
+    private static final int KEY_KNOWN_OFFSET = 8;
+
+    // upper bound for lengths and counts if the number of remaining bytes is unknown, messages are much smaller
+    private static final int MAX_LENGTH = 1 << 20;
+
+    private static final DataKey.Scope[] SCOPES = DataKey.Scope.values();
+
+    private static final List<DataKey<?>> KNOWN_KEYS;
+    private static final Map<DataKey<?>, Integer> KNOWN_KEY_IDS = new HashMap<>();
+
+    /**
+     * Identifies the table of well-known keys. Both sides only use the short ids
+     * of well-known keys if their tables are identical.
+     */
+    public static final int KEY_TABLE_FINGERPRINT;
+
+    static {
+        List<DataKey<?>> keys = new ArrayList<>();
+        collectKeys(DataKeys.class, keys);
+        collectKeys(BTLPDataKeys.class, keys);
+        keys.sort(Comparator.<DataKey<?>, String>comparing(DataKey::getId).thenComparing(DataKey::getScope));
+        KNOWN_KEYS = Collections.unmodifiableList(keys);
+        int fingerprint = 1;
+        for (int i = 0; i < keys.size(); i++) {
+            KNOWN_KEY_IDS.put(keys.get(i), i + KEY_KNOWN_OFFSET);
+            fingerprint = 31 * fingerprint + keys.get(i).getId().hashCode();
+        }
+        KEY_TABLE_FINGERPRINT = fingerprint;
+    }
+
+    private BridgeProtocol() {
+    }
+
+    private static void collectKeys(Class<?> clazz, List<DataKey<?>> keys) {
+        for (Field field : clazz.getFields()) {
+            if (Modifier.isStatic(field.getModifiers()) && DataKey.class.isAssignableFrom(field.getType())) {
+                try {
+                    DataKey<?> key = (DataKey<?>) field.get(null);
+                    if (!keys.contains(key)) {
+                        keys.add(key);
+                    }
+                } catch (IllegalAccessException ignored) {
+                }
+            }
+        }
+    }
+
+    /**
+     * Check whether a message has been written using the binary protocol.
+     *
+     * @param data the message
+     * @return true if the message is binary, false if it is a legacy message
+     */
+    public static boolean isBinary(byte[] data) {
+        return data.length > 0 && data[0] == VERSION;
+    }
+
+    /**
+     * Append the protocol version to a legacy request message.
+     *
+     * @param out     the message
+     * @param proxyId random id identifying the proxy sending the message
+     */
+    public static void writeHandshake(DataOutput out, long proxyId) throws IOException {
+        out.writeInt(VERSION);
+        out.writeInt(KEY_TABLE_FINGERPRINT);
+        out.writeLong(proxyId);
+    }
+
+    /**
+     * Read the protocol version appended to a legacy request message.
+     *
+     * @return the handshake, {@link Handshake#LEGACY} if the other side only
+     * supports the legacy format
+     */
+    public static Handshake readHandshake(DataInput in) throws IOException {
+        int version;
+        int fingerprint;
+        long proxyId;
+        try {
+            version = in.readInt();
+            fingerprint = in.readInt();
+            proxyId = in.readLong();
+        } catch (EOFException ex) {
+            return Handshake.LEGACY;
+        }
+        return version >= VERSION && fingerprint == KEY_TABLE_FINGERPRINT ? new Handshake(VERSION, proxyId) : Handshake.LEGACY;
+    }
+
+    public static void writeHeader(DataOutput out, String subchannel) throws IOException {
+        out.writeByte(VERSION);
+        writeString(out, subchannel);
+    }
+
+    /**
+     * Read the header of a binary message.
+     *
+     * @return the subchannel
+     */
+    public static String readHeader(DataInput in) throws IOException {
+        int version = in.readUnsignedByte();
+        if (version != VERSION) {
+            throw new StreamCorruptedException("Unsupported protocol version " + version);
+        }
+        return readString(in);
+    }
+
+    public static void writeDelta(DataOutput out, Map<DataKey<?>, Object> delta) throws IOException {
+        writeVarInt(out, delta.size());
+        for (Map.Entry<DataKey<?>, Object> entry : delta.entrySet()) {
+            writeKey(out, entry.getKey());
+            writeValue(out, entry.getValue());
+        }
+    }
+
+    public static Map<DataKey<?>, Object> readDelta(DataInput in) throws IOException {
+        int size = readLength(in);
+        Map<DataKey<?>, Object> delta = new HashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            DataKey<?> key = readKey(in);
+            delta.put(key, readValue(in));
+        }
+        return delta;
+    }
+
+    public static void writeDataUpdate(DataOutput out, DataUpdate update) throws IOException {
+        writeVarInt(out, update.getBaseSequence());
+        writeVarInt(out, update.getSequence());
+        writeDelta(out, update.getDelta());
+    }
+
+    public static DataUpdate readDataUpdate(DataInput in) throws IOException {
+        int baseSequence = readVarInt(in);
+        int sequence = readVarInt(in);
+        return new DataUpdate(baseSequence, sequence, readDelta(in));
+    }
+
+    public static void writeKey(DataOutput out, DataKey<?> key) throws IOException {
+        Integer id = KNOWN_KEY_IDS.get(key);
+        if (id != null && key.getClass() == KNOWN_KEYS.get(id - KEY_KNOWN_OFFSET).getClass()) {
+            writeVarInt(out, id);
+        } else if (key.getClass() == DataKey.class) {
+            writeVarInt(out, KEY_PLAIN);
+            writeString(out, key.getId());
+            out.writeByte(key.getScope().ordinal());
+            out.writeBoolean(key.isBungee());
+        } else if (key instanceof PermissionDataKey) {
+            writeVarInt(out, KEY_PERMISSION);
+            writeString(out, ((PermissionDataKey) key).getPermission());
+        } else if (key instanceof BTLPDataKeys.PlaceholderAPIDataKey) {
+            writeVarInt(out, KEY_PLACEHOLDERAPI);
+            writeString(out, ((BTLPDataKeys.PlaceholderAPIDataKey) key).getPlaceholder());
+        } else if (key instanceof BTLPDataKeys.ThirdPartyVariableDataKey) {
+            writeVarInt(out, KEY_THIRD_PARTY);
+            writeString(out, ((BTLPDataKeys.ThirdPartyVariableDataKey) key).getName());
+        } else if (key instanceof BTLPDataKeys.BungeeThirdPartyVariableDataKey) {
+            writeVarInt(out, KEY_BUNGEE_THIRD_PARTY);
+            writeString(out, ((BTLPDataKeys.BungeeThirdPartyVariableDataKey) key).getName());
+        } else {
+            writeVarInt(out, KEY_SERIALIZED);
+            writeSerialized(out, key);
+        }
+    }
+
+    public static DataKey<?> readKey(DataInput in) throws IOException {
+        int id = readVarInt(in);
+        switch (id) {
+            case KEY_PLAIN:
+                String name = readString(in);
+                int ordinal = in.readUnsignedByte();
+                if (ordinal >= SCOPES.length) {
+                    throw new StreamCorruptedException("Unknown data key scope " + ordinal);
+                }
+                DataKey.Scope scope = SCOPES[ordinal];
+                DataKey.DataKeyBuilder builder = DataKey.builder().id(name).scope(scope);
+                return (in.readBoolean() ? builder.bungee() : builder.bukkit()).build();
+            case KEY_PERMISSION:
+                return DataKeys.permission(readString(in));
+            case KEY_PLACEHOLDERAPI:
+                return BTLPDataKeys.createPlaceholderAPIDataKey(readString(in));
+            case KEY_THIRD_PARTY:
+                return BTLPDataKeys.createThirdPartyVariableDataKey(readString(in));
+            case KEY_BUNGEE_THIRD_PARTY:
+                return BTLPDataKeys.createBungeeThirdPartyVariableDataKey(readString(in));
+            case KEY_SERIALIZED:
+                Object key = readSerialized(in);
+                if (!(key instanceof DataKey)) {
+                    throw new StreamCorruptedException("Expected a data key, got " + (key != null ? key.getClass().getName() : null));
+                }
+                return (DataKey<?>) key;
+            default:
+                if (id < KEY_KNOWN_OFFSET || id - KEY_KNOWN_OFFSET >= KNOWN_KEYS.size()) {
+                    throw new StreamCorruptedException("Unknown data key id " + id);
+                }
+                return KNOWN_KEYS.get(id - KEY_KNOWN_OFFSET);
+        }
+    }
+
+    public static void writeValue(DataOutput out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(TAG_NULL);
+        } else if (value instanceof Boolean) {
+            out.writeByte((Boolean) value ? TAG_TRUE : TAG_FALSE);
+        } else if (value instanceof Integer) {
+            out.writeByte(TAG_INT);
+            int i = (Integer) value;
+            writeVarInt(out, (i << 1) ^ (i >> 31));
+        } else if (value instanceof Long) {
+            out.writeByte(TAG_LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Float) {
+            out.writeByte(TAG_FLOAT);
+            out.writeFloat((Float) value);
+        } else if (value instanceof Double) {
+            out.writeByte(TAG_DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof String) {
+            out.writeByte(TAG_STRING);
+            writeString(out, (String) value);
+        } else if (value instanceof List && value instanceof Serializable) {
+            out.writeByte(TAG_LIST);
+            List<?> list = (List<?>) value;
+            writeVarInt(out, list.size());
+            for (Object element : list) {
+                writeValue(out, element);
+            }
+        } else {
+            out.writeByte(TAG_SERIALIZED);
+            writeSerialized(out, value);
+        }
+    }
+
+    public static Object readValue(DataInput in) throws IOException {
+        int tag = in.readUnsignedByte();
+        switch (tag) {
+            case TAG_NULL:
+                return null;
+            case TAG_TRUE:
+                return Boolean.TRUE;
+            case TAG_FALSE:
+                return Boolean.FALSE;
+            case TAG_INT:
+                int i = readVarInt(in);
+                return (i >>> 1) ^ -(i & 1);
+            case TAG_LONG:
+                return in.readLong();
+            case TAG_FLOAT:
+                return in.readFloat();
+            case TAG_DOUBLE:
+                return in.readDouble();
+            case TAG_STRING:
+                return readString(in);
+            case TAG_LIST:
+                int size = readLength(in);
+                List<Object> list = new ArrayList<>(size);
+                for (int j = 0; j < size; j++) {
+                    list.add(readValue(in));
+                }
+                return list;
+            case TAG_SERIALIZED:
+                return readSerialized(in);
+            default:
+                throw new StreamCorruptedException("Unknown value tag " + tag);
+        }
+    }
+
+    public static void writeUUID(DataOutput out, UUID uuid) throws IOException {
+        out.writeLong(uuid.getMostSignificantBits());
+        out.writeLong(uuid.getLeastSignificantBits());
+    }
+
+    public static UUID readUUID(DataInput in) throws IOException {
+        return new UUID(in.readLong(), in.readLong());
+    }
+
+    public static void writeVarInt(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    public static int readVarInt(DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new StreamCorruptedException("VarInt too big");
+    }
+
+    /**
+     * Read a length or element count written using {@link #writeVarInt(DataOutput, int)}. Each element takes at least
+     * one byte, so neither can exceed the number of remaining bytes.
+     *
+     * @param in the input
+     * @return the length
+     * @throws StreamCorruptedException if the length is negative or larger than the remaining input
+     */
+    public static int readLength(DataInput in) throws IOException {
+        int length = readVarInt(in);
+        int limit = in instanceof InputStream ? ((InputStream) in).available() : MAX_LENGTH;
+        if (length < 0 || length > limit) {
+            throw new StreamCorruptedException("Invalid length " + length);
+        }
+        return length;
+    }
+
+    public static void writeString(DataOutput out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    public static String readString(DataInput in) throws IOException {
+        byte[] bytes = new byte[readLength(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeSerialized(DataOutput out, Object object) throws IOException {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(os)) {
+            oos.writeObject(object);
+        }
+        writeVarInt(out, os.size());
+        out.write(os.toByteArray());
+    }
+
+    private static Object readSerialized(DataInput in) throws IOException {
+        byte[] bytes = new byte[readLength(in)];
+        in.readFully(bytes);
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return ois.readObject();
+        } catch (ClassNotFoundException ex) {
+            throw new InvalidObjectException(ex.toString());
+        }
+    }
+
+    /**
+     * A delta together with its position in the sequence of deltas sent for one
+     * data cache.
+     * <p>
+     * The delta transforms the data known after the delta with sequence number
+     * {@link #getBaseSequence()} into the data after {@link #getSequence()}. A base
+     * sequence number of 0 marks a full snapshot, which replaces all known data.
+     */
+    public static final class DataUpdate {
+        private final int baseSequence;
+        private final int sequence;
+        private final Map<DataKey<?>, Object> delta;
+
+        public DataUpdate(int baseSequence, int sequence, Map<DataKey<?>, Object> delta) {
+            this.baseSequence = baseSequence;
+            this.sequence = sequence;
+            this.delta = Collections.unmodifiableMap(delta);
+        }
+
+        public int getBaseSequence() {
+            return baseSequence;
+        }
+
+        public int getSequence() {
+            return sequence;
+        }
+
+        public Map<DataKey<?>, Object> getDelta() {
+            return delta;
+        }
+
+        public boolean isSnapshot() {
+            return baseSequence == 0;
+        }
+    }
+
+    public static final class Handshake {
+        public static final Handshake LEGACY = new Handshake(0, 0);
+
+        private final int version;
+        private final long proxyId;
+
+        private Handshake(int version, long proxyId) {
+            this.version = version;
+            this.proxyId = proxyId;
+        }
+
+        /**
+         * @return the protocol version to use, 0 for the legacy format
+         */
+        public int getVersion() {
+            return version;
+        }
+
+        /**
+         * @return the id of the proxy which sent the handshake
+         */
+        public long getProxyId() {
+            return proxyId;
+        }
+    }
+}
@@ -41,6 +41,17 @@ public class Constants {
 
     public final static String subchannelUpdatePlayer = "updateP";
 
+    // binary protocol only, delta of the server data with sequence numbers
+    public final static String subchannelUpdateServerSequenced = "seqS";
+
+    // binary protocol only, deltas of all players connected through one proxy
+    public final static String subchannelUpdatePlayers = "updatePs";
+
+    // binary protocol only, requests the deltas starting at a sequence number
+    public final static String subchannelRequestMissingPlayerData = "missP";
+
+    public final static String subchannelRequestMissingServerData = "missS";
+
     public final static String subchannelPlaceholder = "placeholder";
 
 }
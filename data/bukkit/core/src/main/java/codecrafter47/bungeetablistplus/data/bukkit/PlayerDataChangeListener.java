@@ -0,0 +1,127 @@
+/*
+ * BungeeTabListPlus - a BungeeCord plugin to customize the tablist
+ *
+ * Copyright (C) 2014 - 2015 Florian Stober
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package codecrafter47.bungeetablistplus.data.bukkit;
+
+import codecrafter47.bungeetablistplus.data.DataKey;
+import codecrafter47.bungeetablistplus.data.DataKeys;
+import codecrafter47.bungeetablistplus.data.essentials.EssentialsAFKChangeListener;
+import com.google.common.collect.ImmutableSet;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.entity.EntityDamageEvent;
+import org.bukkit.event.entity.EntityRegainHealthEvent;
+import org.bukkit.event.player.*;
+import org.bukkit.plugin.Plugin;
+
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Notifies about changes of player data keys that can be detected using events.
+ * <p>
+ * Keys in {@link #getEventDrivenKeys()} only need to be collected again after the
+ * callback has been invoked for them. The callback is invoked right away on the
+ * main thread. Most of the events are fired before the change is applied, so the
+ * receiver has to collect the keys again a little later.
+ */
+public class PlayerDataChangeListener implements Listener {
+    private static final Set<DataKey<?>> HEALTH = ImmutableSet.of(DataKeys.Health, DataKeys.MaxHealth);
+    private static final Set<DataKey<?>> EXPERIENCE = ImmutableSet.of(DataKeys.Level, DataKeys.XP, DataKeys.TotalXP);
+    private static final Set<DataKey<?>> WORLD = ImmutableSet.of(DataKeys.World, DataKeys.Multiverse_WorldAlias);
+    private static final Set<DataKey<?>> AFK = ImmutableSet.of(DataKeys.Essentials_IsAFK);
+    private static final Set<DataKey<?>> RESPAWN = ImmutableSet.<DataKey<?>>builder().addAll(HEALTH).addAll(EXPERIENCE).addAll(WORLD).build();
+
+    private final Plugin plugin;
+    private final BiConsumer<Player, Set<DataKey<?>>> callback;
+    private final Set<DataKey<?>> eventDrivenKeys;
+    private Listener essentialsListener = null;
+
+    public PlayerDataChangeListener(Plugin plugin, BiConsumer<Player, Set<DataKey<?>>> callback) {
+        this.plugin = plugin;
+        this.callback = callback;
+        ImmutableSet.Builder<DataKey<?>> builder = ImmutableSet.<DataKey<?>>builder().addAll(RESPAWN);
+        if (Bukkit.getPluginManager().getPlugin("Essentials") != null) {
+            builder.addAll(AFK);
+        }
+        eventDrivenKeys = builder.build();
+    }
+
+    public void register() {
+        Bukkit.getPluginManager().registerEvents(this, plugin);
+        if (Bukkit.getPluginManager().getPlugin("Essentials") != null) {
+            essentialsListener = new EssentialsAFKChangeListener(player -> changed(player, AFK));
+            Bukkit.getPluginManager().registerEvents(essentialsListener, plugin);
+        }
+    }
+
+    public void unregister() {
+        HandlerList.unregisterAll(this);
+        if (essentialsListener != null) {
+            HandlerList.unregisterAll(essentialsListener);
+            essentialsListener = null;
+        }
+    }
+
+    public Set<DataKey<?>> getEventDrivenKeys() {
+        return eventDrivenKeys;
+    }
+
+    private void changed(Player player, Set<DataKey<?>> keys) {
+        callback.accept(player, keys);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onDamage(EntityDamageEvent event) {
+        if (event.getEntity() instanceof Player) {
+            changed((Player) event.getEntity(), HEALTH);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onRegainHealth(EntityRegainHealthEvent event) {
+        if (event.getEntity() instanceof Player) {
+            changed((Player) event.getEntity(), HEALTH);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onRespawn(PlayerRespawnEvent event) {
+        changed(event.getPlayer(), RESPAWN);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onLevelChange(PlayerLevelChangeEvent event) {
+        changed(event.getPlayer(), EXPERIENCE);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onExpChange(PlayerExpChangeEvent event) {
+        changed(event.getPlayer(), EXPERIENCE);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChangedWorld(PlayerChangedWorldEvent event) {
+        changed(event.getPlayer(), WORLD);
+    }
+}
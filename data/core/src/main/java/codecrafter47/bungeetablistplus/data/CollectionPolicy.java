@@ -0,0 +1,136 @@
+/*
+ * BungeeTabListPlus - a BungeeCord plugin to customize the tablist
+ *
+ * Copyright (C) 2014 - 2015 Florian Stober
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package codecrafter47.bungeetablistplus.data;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Describes how often the value of a data key is collected and when a change
+ * of the value is worth sending to the proxy.
+ * <p>
+ * Policies are looked up by the id of the data key, so a policy applies to all
+ * keys sharing that id, e.g. all permission keys.
+ */
+public final class CollectionPolicy {
+
+    public static final CollectionPolicy DEFAULT = new CollectionPolicy(1, 0, Integer.MAX_VALUE);
+
+    private static final Map<String, CollectionPolicy> declaredPolicies = new ConcurrentHashMap<>();
+    private static final Map<String, CollectionPolicy> overriddenPolicies = new ConcurrentHashMap<>();
+
+    private final int pollInterval;
+    private final double changeThreshold;
+    private final int maxStaleness;
+
+    private CollectionPolicy(int pollInterval, double changeThreshold, int maxStaleness) {
+        Preconditions.checkArgument(pollInterval >= 1, "pollInterval must be positive");
+        Preconditions.checkArgument(changeThreshold >= 0, "changeThreshold must not be negative");
+        Preconditions.checkArgument(maxStaleness >= 1, "maxStaleness must be positive");
+        this.pollInterval = pollInterval;
+        this.changeThreshold = changeThreshold;
+        this.maxStaleness = maxStaleness;
+    }
+
+    /**
+     * @return the number of update cycles between two collections of the value
+     */
+    public int getPollInterval() {
+        return pollInterval;
+    }
+
+    /**
+     * @return the minimum difference between the value known to the proxy and the
+     * current value for the change to be sent, only applies to numbers
+     */
+    public double getChangeThreshold() {
+        return changeThreshold;
+    }
+
+    /**
+     * @return the number of update cycles after which a change is sent even if it
+     * is below the threshold
+     */
+    public int getMaxStaleness() {
+        return maxStaleness;
+    }
+
+    public CollectionPolicy withPollInterval(int pollInterval) {
+        return new CollectionPolicy(pollInterval, changeThreshold, maxStaleness);
+    }
+
+    public CollectionPolicy withChangeThreshold(double changeThreshold) {
+        return new CollectionPolicy(pollInterval, changeThreshold, maxStaleness);
+    }
+
+    public CollectionPolicy withMaxStaleness(int maxStaleness) {
+        return new CollectionPolicy(pollInterval, changeThreshold, maxStaleness);
+    }
+
+    /**
+     * Check whether the change from the value known to the proxy to the current
+     * value exceeds the threshold.
+     *
+     * @param sentValue    the value known to the proxy
+     * @param currentValue the current value
+     * @return true if the change should be sent
+     */
+    public boolean isSignificantChange(Object sentValue, Object currentValue) {
+        if (changeThreshold > 0 && sentValue instanceof Number && currentValue instanceof Number) {
+            return Math.abs(((Number) currentValue).doubleValue() - ((Number) sentValue).doubleValue()) >= changeThreshold;
+        }
+        return !currentValue.equals(sentValue);
+    }
+
+    /**
+     * Get the policy for a data key. Policies set using {@link #override(String, CollectionPolicy)}
+     * take precedence over those declared with the key.
+     *
+     * @param key the data key
+     * @return the policy
+     */
+    public static CollectionPolicy of(DataKey<?> key) {
+        CollectionPolicy policy = overriddenPolicies.get(key.getId());
+        if (policy == null) {
+            policy = declaredPolicies.getOrDefault(key.getId(), DEFAULT);
+        }
+        return policy;
+    }
+
+    static void declare(String id, CollectionPolicy policy) {
+        declaredPolicies.put(id, policy);
+    }
+
+    /**
+     * Override the policy declared for all keys with the given id, e.g. from the config.
+     *
+     * @param id     the id of the data key
+     * @param policy the policy
+     */
+    public static void override(String id, CollectionPolicy policy) {
+        overriddenPolicies.put(id, policy);
+    }
+
+    public static void clearOverrides() {
+        overriddenPolicies.clear();
+    }
+}
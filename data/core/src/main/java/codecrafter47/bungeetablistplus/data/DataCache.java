@@ -19,53 +19,131 @@
 
 package codecrafter47.bungeetablistplus.data;
 
-import com.google.common.collect.Multimap;
-import com.google.common.collect.MultimapBuilder;
-import com.google.common.collect.Multimaps;
-
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.function.Consumer;
 
 public class DataCache {
-    private final Map<DataKey<?>, Object> cache = new ConcurrentHashMap<>();
-    private final Multimap<DataKey<?>, Consumer<?>> listeners = Multimaps.synchronizedMultimap(MultimapBuilder.hashKeys().hashSetValues().build());
+    private static final Consumer<?>[] NO_LISTENERS = new Consumer<?>[0];
+
+    // values and listeners are indexed by DataKey.getIndex()
+    // reads are lock free, writes and resizing the array hold the lock on this
+    private volatile AtomicReferenceArray<Object> values = new AtomicReferenceArray<>(DataKey.getIndexBound());
+    private volatile Consumer<?>[][] listeners = new Consumer<?>[0][];
 
     @SuppressWarnings("unchecked")
     public <T> void updateValue(DataKey<T> dataKey, T object) {
-        if (object == null) {
-            cache.remove(dataKey);
-        } else {
-            cache.put(dataKey, object);
+        int index = dataKey.getIndex();
+        synchronized (this) {
+            getValues(index).set(index, object);
+        }
+        for (Consumer<?> consumer : getListeners(index)) {
+            ((Consumer<T>) consumer).accept(object);
         }
-        listeners.get(dataKey).forEach(consumer -> ((Consumer<T>) consumer).accept(object));
     }
 
     @SuppressWarnings("unchecked")
     public <T> Optional<T> getValue(DataKey<T> dataKey) {
-        return Optional.ofNullable((T) cache.get(dataKey));
+        return Optional.ofNullable(getRawValue(dataKey));
     }
 
     @SuppressWarnings("unchecked")
     public <T> T getRawValue(DataKey<T> dataKey) {
-        return (T) cache.get(dataKey);
+        int index = dataKey.getIndex();
+        AtomicReferenceArray<Object> values = this.values;
+        return index < values.length() ? (T) values.get(index) : null;
     }
 
     public void clear() {
-        cache.keySet().forEach(key -> listeners.get(key).forEach(consumer -> consumer.accept(null)));
-        cache.clear();
+        int[] cleared;
+        int count = 0;
+        synchronized (this) {
+            AtomicReferenceArray<Object> values = this.values;
+            cleared = new int[values.length()];
+            for (int index = 0; index < values.length(); index++) {
+                if (values.getAndSet(index, null) != null) {
+                    cleared[count++] = index;
+                }
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            for (Consumer<?> consumer : getListeners(cleared[i])) {
+                consumer.accept(null);
+            }
+        }
     }
 
-    public <T> void registerValueChangeListener(DataKey<T> key, Consumer<T> listener) {
-        listeners.put(key, listener);
+    public synchronized <T> void registerValueChangeListener(DataKey<T> key, Consumer<T> listener) {
+        int index = key.getIndex();
+        Consumer<?>[][] listeners = this.listeners;
+        if (index >= listeners.length) {
+            listeners = Arrays.copyOf(listeners, DataKey.getIndexBound());
+        } else {
+            listeners = listeners.clone();
+        }
+        Consumer<?>[] old = listeners[index] != null ? listeners[index] : NO_LISTENERS;
+        if (!Arrays.asList(old).contains(listener)) {
+            Consumer<?>[] updated = Arrays.copyOf(old, old.length + 1);
+            updated[old.length] = listener;
+            listeners[index] = updated;
+            this.listeners = listeners;
+        }
     }
 
-    public <T> void unregisterValueChangeListener(DataKey<T> key, Consumer<T> listener) {
-        listeners.remove(key, listener);
+    public synchronized <T> void unregisterValueChangeListener(DataKey<T> key, Consumer<T> listener) {
+        int index = key.getIndex();
+        Consumer<?>[][] listeners = this.listeners;
+        if (index < listeners.length && listeners[index] != null) {
+            Consumer<?>[] old = listeners[index];
+            int i = Arrays.asList(old).indexOf(listener);
+            if (i != -1) {
+                Consumer<?>[] updated = new Consumer<?>[old.length - 1];
+                System.arraycopy(old, 0, updated, 0, i);
+                System.arraycopy(old, i + 1, updated, i, old.length - i - 1);
+                listeners = listeners.clone();
+                listeners[index] = updated;
+                this.listeners = listeners;
+            }
+        }
     }
 
+    /**
+     * Creates a map containing all values in this cache. Changes to the map are
+     * not reflected in the cache.
+     *
+     * @return a map from data key to value
+     */
     public Map<DataKey<?>, Object> getMap() {
-        return cache;
+        Map<DataKey<?>, Object> map = new HashMap<>();
+        AtomicReferenceArray<Object> values = this.values;
+        for (int index = 0; index < values.length(); index++) {
+            Object value = values.get(index);
+            if (value != null) {
+                map.put(DataKey.getByIndex(index), value);
+            }
+        }
+        return map;
+    }
+
+    private Consumer<?>[] getListeners(int index) {
+        Consumer<?>[][] listeners = this.listeners;
+        Consumer<?>[] result;
+        return index < listeners.length && (result = listeners[index]) != null ? result : NO_LISTENERS;
+    }
+
+    // must hold the lock, so no write can go to the old array after it has been copied
+    private AtomicReferenceArray<Object> getValues(int index) {
+        AtomicReferenceArray<Object> values = this.values;
+        if (index >= values.length()) {
+            AtomicReferenceArray<Object> newValues = new AtomicReferenceArray<>(Math.max(index + 1, DataKey.getIndexBound()));
+            for (int i = 0; i < values.length(); i++) {
+                newValues.set(i, values.get(i));
+            }
+            this.values = values = newValues;
+        }
+        return values;
     }
 }
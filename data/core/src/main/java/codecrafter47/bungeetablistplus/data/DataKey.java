@@ -22,14 +22,23 @@ package codecrafter47.bungeetablistplus.data;
 import com.google.common.base.Preconditions;
 
 import java.io.Serializable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class DataKey<T> implements Serializable {
     private final String id;
     private final Scope scope;
     private final boolean bungee;
 
+    // index assigned by the registry, 0 if not yet known
+    private transient int index;
+
     private static final long serialVersionUID = 1L;
 
+    private static final Map<DataKey<?>, Integer> registry = new ConcurrentHashMap<>();
+    private static volatile DataKey<?>[] keysByIndex = new DataKey<?>[16];
+    private static int nextIndex = 1;
+
     public static DataKeyBuilder builder() {
         return new DataKeyBuilder();
     }
@@ -52,6 +61,57 @@ public class DataKey<T> implements Serializable {
         return bungee;
     }
 
+    /**
+     * Get the index of this key. Equal keys share the same index. Indices are
+     * small positive integers assigned in the order keys are first used, so they
+     * can be used to index arrays.
+     *
+     * @return the index of this key
+     */
+    public int getIndex() {
+        int index = this.index;
+        if (index == 0) {
+            Integer registered = registry.get(this);
+            this.index = index = registered != null ? registered : register(this);
+        }
+        return index;
+    }
+
+    private static synchronized int register(DataKey<?> key) {
+        Integer registered = registry.get(key);
+        if (registered != null) {
+            return registered;
+        }
+        int index = nextIndex++;
+        DataKey<?>[] keys = keysByIndex;
+        if (index >= keys.length) {
+            DataKey<?>[] newKeys = new DataKey<?>[keys.length * 2];
+            System.arraycopy(keys, 0, newKeys, 0, keys.length);
+            keysByIndex = keys = newKeys;
+        }
+        keys[index] = key;
+        registry.put(key, index);
+        return index;
+    }
+
+    /**
+     * Get the key registered with the given index.
+     *
+     * @param index the index
+     * @return the key, or null if there is none
+     */
+    static DataKey<?> getByIndex(int index) {
+        DataKey<?>[] keys = keysByIndex;
+        return index < keys.length ? keys[index] : null;
+    }
+
+    /**
+     * @return an upper bound for the indices of all keys registered so far
+     */
+    static int getIndexBound() {
+        return keysByIndex.length;
+    }
+
     @Override
     public int hashCode() {
         return id.hashCode() + scope.hashCode();
@@ -75,6 +135,7 @@ public class DataKey<T> implements Serializable {
         private String id = null;
         private Scope scope = null;
         private Boolean bungee = null;
+        private CollectionPolicy collectionPolicy = null;
 
         private DataKeyBuilder() {
         }
@@ -107,10 +168,21 @@ public class DataKey<T> implements Serializable {
             return this;
         }
 
+        /**
+         * Declare how the value of the key is collected by the bridge plugins.
+         */
+        public DataKeyBuilder collectionPolicy(CollectionPolicy collectionPolicy) {
+            this.collectionPolicy = collectionPolicy;
+            return this;
+        }
+
         public <T> DataKey<T> build() {
             Preconditions.checkNotNull(id, "id");
             Preconditions.checkNotNull(scope, "scope");
             Preconditions.checkNotNull(bungee, "bungee");
+            if (collectionPolicy != null) {
+                CollectionPolicy.declare(id, collectionPolicy);
+            }
             return new DataKey<>(id, scope, bungee);
         }
     }
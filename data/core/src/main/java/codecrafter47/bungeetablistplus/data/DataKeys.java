@@ -22,15 +22,19 @@ package codecrafter47.bungeetablistplus.data;
 import java.time.Duration;
 
 public class DataKeys {
+    // collection policies shared by several keys
+    private final static CollectionPolicy LOCATION_POLICY = CollectionPolicy.DEFAULT.withChangeThreshold(1).withMaxStaleness(10);
+    private final static CollectionPolicy STATIC_POLICY = CollectionPolicy.DEFAULT.withPollInterval(60);
+
     // Bukkit player data keys
-    public final static DataKey<Double> Health = DataKey.builder().bukkit().player().id("minecraft:health").build();
+    public final static DataKey<Double> Health = DataKey.builder().bukkit().player().id("minecraft:health").collectionPolicy(CollectionPolicy.DEFAULT.withChangeThreshold(0.5).withMaxStaleness(5)).build();
     public final static DataKey<Double> MaxHealth = DataKey.builder().bukkit().player().id("minecraft:maxhealth").build();
     public final static DataKey<Integer> Level = DataKey.builder().bukkit().player().id("minecraft:xplevel").build();
     public final static DataKey<Float> XP = DataKey.builder().bukkit().player().id("minecraft:xp").build();
     public final static DataKey<Integer> TotalXP = DataKey.builder().bukkit().player().id("minecraft:totalxp").build();
-    public final static DataKey<Double> PosX = DataKey.builder().bukkit().player().id("minecraft:posx").build();
-    public final static DataKey<Double> PosY = DataKey.builder().bukkit().player().id("minecraft:posy").build();
-    public final static DataKey<Double> PosZ = DataKey.builder().bukkit().player().id("minecraft:posz").build();
+    public final static DataKey<Double> PosX = DataKey.builder().bukkit().player().id("minecraft:posx").collectionPolicy(LOCATION_POLICY).build();
+    public final static DataKey<Double> PosY = DataKey.builder().bukkit().player().id("minecraft:posy").collectionPolicy(LOCATION_POLICY).build();
+    public final static DataKey<Double> PosZ = DataKey.builder().bukkit().player().id("minecraft:posz").collectionPolicy(LOCATION_POLICY).build();
     public final static DataKey<String> Team = DataKey.builder().bukkit().player().id("minecraft:team").build();
     public final static DataKey<String> PlayerListName = DataKey.builder().bukkit().player().id("bukkit:playerlistname").build();
     public final static DataKey<String> DisplayName = DataKey.builder().bukkit().player().id("bukkit:displayname").build();
@@ -40,7 +44,7 @@ public class DataKeys {
     public final static DataKey<String> Vault_PermissionGroup = DataKey.builder().bukkit().player().id("vault:permgroup").build();
     public final static DataKey<Integer> Vault_PermissionGroupRank = DataKey.builder().bukkit().player().id("vault:permgrouprank").build();
     public final static DataKey<Integer> Vault_PermissionGroupWeight = DataKey.builder().bukkit().player().id("vault:permgroupweight").build();
-    public final static DataKey<Double> Vault_Balance = DataKey.builder().bukkit().player().id("vault:balance").build();
+    public final static DataKey<Double> Vault_Balance = DataKey.builder().bukkit().player().id("vault:balance").collectionPolicy(CollectionPolicy.DEFAULT.withPollInterval(5)).build();
     public final static DataKey<String> Vault_PrimaryGroupPrefix = DataKey.builder().bukkit().player().id("vault:primarygroupprefix").build();
     public final static DataKey<String> Vault_PlayerPrefix = DataKey.builder().bukkit().player().id("vault:playerprefix").build();
     public final static DataKey<Boolean> VanishNoPacket_IsVanished = DataKey.builder().bukkit().player().id("vanishnopacket:isvanished").build();
@@ -64,12 +68,12 @@ public class DataKeys {
     public final static DataKey<String> Multiverse_WorldAlias = DataKey.builder().bukkit().player().id("multiverse:worldalias").build();
 
     // Bukkit server data keys
-    public final static DataKey<String> Vault_CurrencyNameSingular = DataKey.builder().bukkit().server().id("vault:currencynamesingular").build();
-    public final static DataKey<String> Vault_CurrencyNamePlural = DataKey.builder().bukkit().server().id("vault:currencynameplural").build();
-    public final static DataKey<Double> TPS = DataKey.builder().bukkit().server().id("minecraft:tps").build();
-    public final static DataKey<String> MinecraftVersion = DataKey.builder().bukkit().server().id("minecraft:version").build();
-    public final static DataKey<String> ServerModName = DataKey.builder().bukkit().server().id("bukkit:name").build();
-    public final static DataKey<String> ServerModVersion = DataKey.builder().bukkit().server().id("bukkit:version").build();
+    public final static DataKey<String> Vault_CurrencyNameSingular = DataKey.builder().bukkit().server().id("vault:currencynamesingular").collectionPolicy(STATIC_POLICY).build();
+    public final static DataKey<String> Vault_CurrencyNamePlural = DataKey.builder().bukkit().server().id("vault:currencynameplural").collectionPolicy(STATIC_POLICY).build();
+    public final static DataKey<Double> TPS = DataKey.builder().bukkit().server().id("minecraft:tps").collectionPolicy(CollectionPolicy.DEFAULT.withChangeThreshold(0.1).withMaxStaleness(10)).build();
+    public final static DataKey<String> MinecraftVersion = DataKey.builder().bukkit().server().id("minecraft:version").collectionPolicy(STATIC_POLICY).build();
+    public final static DataKey<String> ServerModName = DataKey.builder().bukkit().server().id("bukkit:name").collectionPolicy(STATIC_POLICY).build();
+    public final static DataKey<String> ServerModVersion = DataKey.builder().bukkit().server().id("bukkit:version").collectionPolicy(STATIC_POLICY).build();
 
     // BungeeCord player data keys
     public final static DataKey<String> BungeeCord_PrimaryGroup = DataKey.builder().bungee().player().id("bungeecord:group").build();
@@ -22,6 +22,7 @@ package codecrafter47.bungeetablistplus.spongebridge;
 import codecrafter47.bungeetablistplus.api.sponge.BungeeTabListPlusSpongeAPI;
 import codecrafter47.bungeetablistplus.api.sponge.Variable;
 import codecrafter47.bungeetablistplus.common.BTLPDataKeys;
+import codecrafter47.bungeetablistplus.common.BridgeProtocol;
 import codecrafter47.bungeetablistplus.common.Constants;
 import codecrafter47.bungeetablistplus.data.AbstractDataAccess;
 import codecrafter47.bungeetablistplus.data.DataAccess;
@@ -57,6 +58,7 @@ import org.spongepowered.api.service.economy.EconomyService;
 
 import javax.annotation.Nonnull;
 import javax.inject.Inject;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
@@ -183,19 +185,28 @@ public class SpongePlugin extends BungeeTabListPlusSpongeAPI implements RawDataL
 
             String subchannel = in.readUTF();
             UUID uniqueId = ((PlayerConnection) connection).getPlayer().getUniqueId();
+            PlayerDataUpdateTask playerDataUpdateTask = playerInformationUpdaters.get(uniqueId);
             if (subchannel.equals(Constants.subchannelRequestPlayerVariable)) {
-                if (playerInformationUpdaters.containsKey(uniqueId)) {
+                if (playerDataUpdateTask != null) {
                     DataKey<Object> dataKey = (DataKey<Object>) in.readObject();
-                    playerInformationUpdaters.get(uniqueId).requestValue(dataKey);
+                    playerDataUpdateTask.protocolVersion = BridgeProtocol.readHandshake(in).getVersion();
+                    playerDataUpdateTask.requestValue(dataKey);
                 }
             } else if (subchannel.equals(Constants.subchannelRequestServerVariable)) {
                 DataKey<Object> dataKey = (DataKey<Object>) in.readObject();
+                if (playerDataUpdateTask != null) {
+                    playerDataUpdateTask.protocolVersion = BridgeProtocol.readHandshake(in).getVersion();
+                }
                 this.serverDataUpdateTask.requestValue(dataKey);
             } else if (subchannel.equals(Constants.subchannelRequestResetPlayerVariables)) {
-                if (playerInformationUpdaters.containsKey(uniqueId)) {
-                    playerInformationUpdaters.get(uniqueId).reset();
+                if (playerDataUpdateTask != null) {
+                    playerDataUpdateTask.protocolVersion = BridgeProtocol.readHandshake(in).getVersion();
+                    playerDataUpdateTask.reset();
                 }
             } else if (subchannel.equals(Constants.subchannelRequestResetServerVariables)) {
+                if (playerDataUpdateTask != null) {
+                    playerDataUpdateTask.protocolVersion = BridgeProtocol.readHandshake(in).getVersion();
+                }
                 serverDataUpdateTask.reset();
             } else if (subchannel.equals(Constants.subchannelPlaceholder)) {
                 // we don't have this on sponge
@@ -208,31 +219,55 @@ public class SpongePlugin extends BungeeTabListPlusSpongeAPI implements RawDataL
     }
 
     protected void sendInformation(String subchannel, Map<DataKey<?>, Object> delta, Player player) {
+        boolean binary = getProtocolVersion(player) >= BridgeProtocol.VERSION;
         channel.sendTo(player, new Consumer<ChannelBuf>() {
             @Override
             @SneakyThrows
             public void accept(ChannelBuf channelBuf) {
-                ObjectOutputStream out = new ObjectOutputStream(new ChannelBufOutputStream(channelBuf));
-                out.writeUTF(subchannel);
-                out.writeObject(delta);
-                out.close();
+                if (binary) {
+                    DataOutputStream out = new DataOutputStream(new ChannelBufOutputStream(channelBuf));
+                    BridgeProtocol.writeHeader(out, subchannel);
+                    BridgeProtocol.writeDelta(out, delta);
+                    out.close();
+                } else {
+                    ObjectOutputStream out = new ObjectOutputStream(new ChannelBufOutputStream(channelBuf));
+                    out.writeUTF(subchannel);
+                    out.writeObject(delta);
+                    out.close();
+                }
             }
         });
     }
 
     protected void sendHash(String subchannel, int hash, Player player) {
+        boolean binary = getProtocolVersion(player) >= BridgeProtocol.VERSION;
         channel.sendTo(player, new Consumer<ChannelBuf>() {
             @Override
             @SneakyThrows
             public void accept(ChannelBuf channelBuf) {
-                ObjectOutputStream out = new ObjectOutputStream(new ChannelBufOutputStream(channelBuf));
-                out.writeUTF(subchannel);
-                out.writeInt(hash);
-                out.close();
+                if (binary) {
+                    DataOutputStream out = new DataOutputStream(new ChannelBufOutputStream(channelBuf));
+                    BridgeProtocol.writeHeader(out, subchannel);
+                    out.writeInt(hash);
+                    out.close();
+                } else {
+                    ObjectOutputStream out = new ObjectOutputStream(new ChannelBufOutputStream(channelBuf));
+                    out.writeUTF(subchannel);
+                    out.writeInt(hash);
+                    out.close();
+                }
             }
         });
     }
 
+    /**
+     * Get the bridge protocol version supported by the proxy the player is connected to.
+     */
+    private int getProtocolVersion(Player player) {
+        PlayerDataUpdateTask task = playerInformationUpdaters.get(player.getUniqueId());
+        return task != null ? task.protocolVersion : 0;
+    }
+
     private abstract class AbstractSpongeDataAccess<T> extends AbstractDataAccess<T> {
 
         @Override
@@ -375,6 +410,7 @@ public class SpongePlugin extends BungeeTabListPlusSpongeAPI implements RawDataL
 
     public class PlayerDataUpdateTask extends DataUpdateTask<Player> {
         private final Player player;
+        volatile int protocolVersion = 0;
 
         public PlayerDataUpdateTask(Player player) {
             this.player = player;